@@ -0,0 +1,192 @@
+// Concurrent session load test for the integration API (k6).
+//
+// Steps through increasing numbers of concurrent sessions and reports, for each
+// level, session latency and error rate, and the highest level at which the
+// instance still meets the SLO. Two kinds of sessions run side by side:
+//   - preview:   POST /clickhouse/preview (and /flatfile/preview when
+//                FLATFILE_PATH is set), as the UI does while columns are picked
+//   - ingestion: POST /execute exporting a ClickHouse table to a flat file,
+//                then polling /jobs/{id} until the job finishes
+//
+// Compare the two execution models by running it against the same instance
+// started each way:
+//   java -jar target/*.jar --spring.threads.virtual.enabled=false
+//   k6 run -e CH_HOST=... -e CH_TABLE=... loadtest/sessions.js
+//   java -jar target/*.jar --spring.threads.virtual.enabled=true
+//   k6 run -e CH_HOST=... -e CH_TABLE=... loadtest/sessions.js
+// Virtual threads need Java 21+. Raise clickhouse.pool.max-size and
+// ingestion.jobs.max-concurrent for both runs if they, rather than threads,
+// are the limit being measured.
+//
+// Environment variables (defaults in brackets):
+//   BASE_URL [http://localhost:8080], CH_HOST [localhost], CH_PORT [8123],
+//   CH_DATABASE [default], CH_USER [default], CH_TOKEN [], CH_TABLE (required),
+//   CH_COLUMNS [all, comma separated], FLATFILE_PATH [] (path on the server),
+//   LEVELS [25,50,100,200,400], STEP [1m], INGEST_SHARE [0.2],
+//   SLO_P95_MS [2000]
+
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+import { Counter, Rate, Trend } from 'k6/metrics';
+
+const BASE_URL = (__ENV.BASE_URL || 'http://localhost:8080') + '/api/integration';
+const LEVELS = (__ENV.LEVELS || '25,50,100,200,400').split(',').map(Number);
+const STEP = __ENV.STEP || '1m';
+const INGEST_SHARE = Number(__ENV.INGEST_SHARE || '0.2');
+const SLO_P95_MS = Number(__ENV.SLO_P95_MS || '2000');
+const POLL_INTERVAL_S = 0.5;
+const JOB_TIMEOUT_S = 300;
+
+const sessionDuration = new Trend('session_duration', true);
+const sessionOk = new Rate('session_ok');
+const jobsRejected = new Counter('jobs_rejected');
+
+const clickHouseConfig = {
+  host: __ENV.CH_HOST || 'localhost',
+  port: Number(__ENV.CH_PORT || '8123'),
+  database: __ENV.CH_DATABASE || 'default',
+  user: __ENV.CH_USER || 'default',
+  jwtToken: __ENV.CH_TOKEN || '',
+};
+
+function stepSeconds() {
+  const match = /^(\d+)(s|m)$/.exec(STEP);
+  return match ? Number(match[1]) * (match[2] === 'm' ? 60 : 1) : 60;
+}
+
+function buildScenarios() {
+  const scenarios = {};
+  const thresholds = {};
+  LEVELS.forEach((level, i) => {
+    const start = `${i * stepSeconds()}s`;
+    const ingestVus = Math.max(1, Math.round(level * INGEST_SHARE));
+    const previewVus = Math.max(1, level - ingestVus);
+    scenarios[`preview_${level}`] = {
+      executor: 'constant-vus', exec: 'previewSession', vus: previewVus,
+      duration: STEP, startTime: start, gracefulStop: '5s',
+    };
+    scenarios[`ingest_${level}`] = {
+      executor: 'constant-vus', exec: 'ingestionSession', vus: ingestVus,
+      duration: STEP, startTime: start, gracefulStop: `${JOB_TIMEOUT_S}s`,
+    };
+    for (const kind of ['preview', 'ingest']) {
+      // Per-scenario submetrics; failing levels are reported, not aborted
+      thresholds[`session_duration{scenario:${kind}_${level}}`] = [`p(95)<${SLO_P95_MS}`];
+      thresholds[`session_ok{scenario:${kind}_${level}}`] = ['rate>0.99'];
+    }
+  });
+  return { scenarios, thresholds };
+}
+
+const plan = buildScenarios();
+
+export const options = {
+  scenarios: plan.scenarios,
+  thresholds: plan.thresholds,
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+  if (!__ENV.CH_TABLE) {
+    throw new Error('CH_TABLE is required');
+  }
+  let columns = (__ENV.CH_COLUMNS || '').split(',').filter((c) => c);
+  if (columns.length === 0) {
+    const res = http.post(`${BASE_URL}/clickhouse/schema?tableName=${encodeURIComponent(__ENV.CH_TABLE)}`,
+      JSON.stringify(clickHouseConfig), { headers: { 'Content-Type': 'application/json' } });
+    columns = (res.json('columns') || []).map((c) => c.name);
+  }
+  return { columns: columns.map((name) => ({ name, type: 'String', selected: true })) };
+}
+
+export function previewSession(data) {
+  const started = Date.now();
+  const res = http.post(`${BASE_URL}/clickhouse/preview`, JSON.stringify({
+    sourceType: 'clickhouse', clickHouseConfig, tableName: __ENV.CH_TABLE, selectedColumns: data.columns,
+  }), { headers: { 'Content-Type': 'application/json' } });
+  let ok = check(res, { 'clickhouse preview ok': (r) => r.status === 200 });
+
+  if (__ENV.FLATFILE_PATH) {
+    const request = {
+      sourceType: 'flatfile',
+      flatFileConfig: { fileName: __ENV.FLATFILE_PATH, delimiter: ',', hasHeader: true },
+      selectedColumns: data.columns,
+    };
+    const fileRes = http.post(`${BASE_URL}/flatfile/preview`, {
+      ingestionRequest: http.file(JSON.stringify(request), 'request.json', 'application/json'),
+    });
+    ok = check(fileRes, { 'flat file preview ok': (r) => r.status === 200 }) && ok;
+  }
+
+  sessionDuration.add(Date.now() - started);
+  sessionOk.add(ok);
+  sleep(1);
+}
+
+export function ingestionSession(data) {
+  const started = Date.now();
+  const request = {
+    sourceType: 'clickhouse', targetType: 'flatfile', clickHouseConfig,
+    tableName: __ENV.CH_TABLE, selectedColumns: data.columns,
+    flatFileConfig: { delimiter: ',', hasHeader: true },
+  };
+  const submit = http.post(`${BASE_URL}/execute`, {
+    ingestionRequest: http.file(JSON.stringify(request), 'request.json', 'application/json'),
+  });
+
+  if (submit.status === 503) {
+    // Job queue full: the instance is shedding load rather than failing
+    jobsRejected.add(1);
+    sessionOk.add(false);
+    sleep(1);
+    return;
+  }
+  if (!check(submit, { 'job accepted': (r) => r.status === 202 })) {
+    sessionOk.add(false);
+    return;
+  }
+
+  const jobId = submit.json('jobId');
+  let state = submit.json('status.state');
+  while (!['COMPLETED', 'FAILED', 'CANCELLED'].includes(state)
+      && Date.now() - started < JOB_TIMEOUT_S * 1000) {
+    sleep(POLL_INTERVAL_S);
+    const status = http.get(`${BASE_URL}/jobs/${jobId}`, { tags: { name: 'job status' } });
+    state = status.status === 200 ? status.json('state') : 'FAILED';
+  }
+
+  sessionDuration.add(Date.now() - started);
+  sessionOk.add(check(state, { 'job completed': (s) => s === 'COMPLETED' }));
+}
+
+export function handleSummary(data) {
+  const rows = [];
+  let sustained = 0;
+  let degraded = false;
+  for (const level of LEVELS) {
+    let levelOk = true;
+    const cells = [String(level).padStart(6)];
+    for (const kind of ['preview', 'ingest']) {
+      const duration = data.metrics[`session_duration{scenario:${kind}_${level}}`];
+      const okRate = data.metrics[`session_ok{scenario:${kind}_${level}}`];
+      const p95 = duration ? duration.values['p(95)'] : NaN;
+      const errors = okRate ? 1 - okRate.values.rate : NaN;
+      const passed = p95 < SLO_P95_MS && errors <= 0.01;
+      levelOk = levelOk && passed;
+      cells.push(`${kind} p95 ${p95.toFixed(0).padStart(6)} ms, errors ${(errors * 100).toFixed(1).padStart(5)}%`);
+    }
+    degraded = degraded || !levelOk;
+    if (!degraded) {
+      sustained = level;
+    }
+    rows.push(`${cells.join(' | ')} | ${levelOk ? 'ok' : 'SLO missed'}`);
+  }
+  const rejected = data.metrics.jobs_rejected ? data.metrics.jobs_rejected.values.count : 0;
+  const report = [
+    `Concurrent sessions (SLO: p95 < ${SLO_P95_MS} ms, errors <= 1%)`,
+    ...rows,
+    `Highest sustained level: ${sustained || 'none'} concurrent sessions (${rejected} jobs rejected with 503)`,
+    '',
+  ].join('\n');
+  return { stdout: report, 'loadtest/sessions-summary.json': JSON.stringify(data, null, 2) };
+}
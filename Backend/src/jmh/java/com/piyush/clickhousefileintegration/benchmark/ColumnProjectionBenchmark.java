@@ -0,0 +1,130 @@
+package com.piyush.clickhousefileintegration.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.piyush.clickhousefileintegration.model.ColumnMetadata;
+import com.piyush.clickhousefileintegration.model.FlatFileConfig;
+import com.piyush.clickhousefileintegration.service.ClickHouseService;
+import com.piyush.clickhousefileintegration.service.ColumnBatch;
+import com.piyush.clickhousefileintegration.service.ColumnProjection;
+import com.piyush.clickhousefileintegration.service.FlatFileService;
+import com.piyush.clickhousefileintegration.service.IngestionMetrics;
+import com.piyush.clickhousefileintegration.service.IngestionProgress;
+import com.piyush.clickhousefileintegration.service.WorkerThreads;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Reading a selection of columns from a 500-column file, in rows per second,
+ * with a header that matches the selected names exactly or only
+ * case-insensitively: previews ({@code readData}) and batched streaming
+ * ({@code streamData}) through commons-csv or the projecting byte-level
+ * parser. {@code resolve} measures building the {@link ColumnProjection} from
+ * the header alone, in plans per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColumnProjectionBenchmark {
+
+    private static final int WIDTH = 500;
+    private static final int ROWS = 2000;
+
+    @Param({ "5", "50", "500" })
+    public int selected;
+
+    @Param({ "exact", "upper" })
+    public String headerCase;
+
+    @Param({ "commons-csv", "projecting" })
+    public String parser;
+
+    private final FlatFileService flatFileService = new FlatFileService(new IngestionMetrics(new SimpleMeterRegistry()),
+            new WorkerThreads(false));
+    private Path file;
+    private FlatFileConfig config;
+    private List<ColumnMetadata> columns;
+    private List<String> selectedNames;
+    private List<String> headerNames;
+
+    @Setup
+    public void setUp() throws IOException {
+        boolean upperCase = headerCase.equals("upper");
+        file = SyntheticData.writeCsv(WIDTH, ROWS, upperCase);
+        config = SyntheticData.config(file);
+        ReflectionTestUtils.setField(flatFileService, "projectingParser", parser.equals("projecting"));
+        ReflectionTestUtils.setField(flatFileService, "localMemoryMapped", true);
+
+        // Spread the selection over the whole width
+        List<ColumnMetadata> all = SyntheticData.selectedColumns(WIDTH);
+        columns = new ArrayList<>(selected);
+        selectedNames = new ArrayList<>(selected);
+        for (int i = 0; i < selected; i++) {
+            ColumnMetadata column = all.get(i * WIDTH / selected);
+            columns.add(column);
+            selectedNames.add(column.getName());
+        }
+        headerNames = new ArrayList<>(WIDTH);
+        for (String name : SyntheticData.columnNames(WIDTH)) {
+            headerNames.add(upperCase ? name.toUpperCase(Locale.ROOT) : name);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public ColumnProjection resolve() {
+        return ColumnProjection.resolve(selectedNames, headerNames, true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Map<String, Object>> readData() throws IOException, InterruptedException {
+        return flatFileService.readData(config, null, columns, ROWS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int streamData(Blackhole blackhole) throws IOException, SQLException, InterruptedException {
+        return flatFileService.streamData(config, null, columns, new ClickHouseService.DataHandler() {
+            @Override
+            public void processBatch(ColumnBatch batch) {
+                blackhole.consume(batch.size());
+            }
+
+            @Override
+            public void complete() {
+            }
+        }, new IngestionProgress());
+    }
+}
@@ -0,0 +1,222 @@
+package com.piyush.clickhousefileintegration.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import com.piyush.clickhousefileintegration.model.CompressionCodec;
+import com.piyush.clickhousefileintegration.service.HttpCompression;
+import com.piyush.clickhousefileintegration.service.RowBinaryEncoder;
+
+/**
+ * Measures bytes on the wire and codec throughput for the payloads this
+ * service exchanges with ClickHouse: CSV text (passthrough exports) and
+ * RowBinary (inserts).
+ *
+ * Runs without a server. The effective transfer rate over a link is modelled
+ * as the slower of the codec and the link carrying the compressed bytes; set
+ * the link speed with {@code -Dlink.mbps} (default 1000, a typical cross-AZ
+ * figure is a few hundred).
+ *
+ * Usage (with the {@code benchmarks} profile compiled):
+ * {@code java -cp <test classpath> ...CompressionBenchmark [file.csv] [rows]}.
+ * Without a file, a synthetic event table with the given number of rows
+ * (default 500000) is generated. A supplied file is benchmarked as CSV only.
+ */
+public class CompressionBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static final List<String> COLUMN_TYPES = List.of("UInt64", "DateTime", "UInt32",
+            "LowCardinality(String)", "String", "Float64", "UUID", "Nullable(String)");
+
+    private static final String[] COUNTRIES = { "US", "DE", "IN", "BR", "JP", "FR", "GB", "CA" };
+    private static final String[] PATHS = { "/", "/search", "/product/view", "/cart", "/checkout",
+            "/account/settings", "/help/article" };
+    private static final String[] STATUSES = { "ok", "ok", "ok", "redirect", "error", "" };
+
+    public static void main(String[] args) throws IOException, SQLException {
+        double linkMbps = Double.parseDouble(System.getProperty("link.mbps", "1000"));
+
+        List<Payload> payloads = new ArrayList<>();
+        if (args.length > 0 && Files.isRegularFile(Path.of(args[0]))) {
+            payloads.add(new Payload("CSV " + Path.of(args[0]).getFileName(), Files.readAllBytes(Path.of(args[0]))));
+        } else {
+            int rows = args.length > 1 ? Integer.parseInt(args[1])
+                    : args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+            List<String[]> data = generateRows(rows);
+            payloads.add(new Payload("CSV (" + rows + " rows)", toCsv(data)));
+            payloads.add(new Payload("RowBinary (" + rows + " rows)", toRowBinary(data)));
+        }
+
+        System.out.printf("Link speed: %.0f Mbit/s%n%n", linkMbps);
+        System.out.printf("%-28s %-8s %10s %8s %12s %12s %14s%n", "Payload", "Codec", "Wire MB", "Ratio",
+                "Comp MB/s", "Decomp MB/s", "Effective MB/s");
+
+        List<Object[]> codecs = List.of(
+                new Object[] { CompressionCodec.NONE, null },
+                new Object[] { CompressionCodec.LZ4, 0 },
+                new Object[] { CompressionCodec.LZ4, 9 },
+                new Object[] { CompressionCodec.ZSTD, 1 },
+                new Object[] { CompressionCodec.ZSTD, 3 },
+                new Object[] { CompressionCodec.ZSTD, 9 });
+
+        for (Payload payload : payloads) {
+            for (Object[] codec : codecs) {
+                run(payload, (CompressionCodec) codec[0], (Integer) codec[1], linkMbps);
+            }
+            System.out.println();
+        }
+    }
+
+    private static void run(Payload payload, CompressionCodec codec, Integer level, double linkMbps)
+            throws IOException {
+        byte[] compressed = null;
+        long[] compressNanos = new long[MEASURED_ROUNDS];
+        long[] decompressNanos = new long[MEASURED_ROUNDS];
+
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            ByteArrayOutputStream wire = new ByteArrayOutputStream(payload.bytes.length / 2);
+            try (OutputStream out = HttpCompression.compress(codec, level, wire)) {
+                out.write(payload.bytes);
+            }
+            long compressTime = System.nanoTime() - start;
+            compressed = wire.toByteArray();
+
+            start = System.nanoTime();
+            try (InputStream in = HttpCompression.decompress(new EncodedResponse(codec),
+                    new ByteArrayInputStream(compressed))) {
+                byte[] buffer = new byte[64 * 1024];
+                while (in.read(buffer) > 0) {
+                    // discard
+                }
+            }
+            long decompressTime = System.nanoTime() - start;
+
+            if (round >= WARMUP_ROUNDS) {
+                compressNanos[round - WARMUP_ROUNDS] = compressTime;
+                decompressNanos[round - WARMUP_ROUNDS] = decompressTime;
+            }
+        }
+
+        double rawMb = payload.bytes.length / 1e6;
+        double wireMb = compressed.length / 1e6;
+        double compressMbps = codec == CompressionCodec.NONE ? Double.POSITIVE_INFINITY
+                : rawMb / (median(compressNanos) / 1e9);
+        double decompressMbps = codec == CompressionCodec.NONE ? Double.POSITIVE_INFINITY
+                : rawMb / (median(decompressNanos) / 1e9);
+
+        // Compression, transfer and decompression are pipelined, so the slowest stage bounds throughput
+        double linkSeconds = wireMb * 8 / linkMbps;
+        double effectiveMbps = rawMb / Math.max(linkSeconds,
+                Math.max(rawMb / compressMbps, rawMb / decompressMbps));
+
+        String name = codec == CompressionCodec.NONE ? "none" : codec.name() + "-" + codec.resolveLevel(level);
+        System.out.printf("%-28s %-8s %10.1f %8.2f %12s %12s %14.1f%n", payload.name, name, wireMb,
+                rawMb / wireMb, format(compressMbps), format(decompressMbps), effectiveMbps);
+    }
+
+    private static String format(double mbps) {
+        return Double.isInfinite(mbps) ? "-" : String.format("%.1f", mbps);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static List<String[]> generateRows(int rows) {
+        Random random = new Random(42);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        List<String[]> data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            time = time.plusSeconds(random.nextInt(5));
+            data.add(new String[] {
+                    String.valueOf(1_000_000L + i),
+                    time.format(formatter),
+                    String.valueOf(random.nextInt(200_000)),
+                    COUNTRIES[random.nextInt(COUNTRIES.length)],
+                    "https://shop.example.com" + PATHS[random.nextInt(PATHS.length)] + "?ref=" + random.nextInt(50),
+                    String.format("%.2f", random.nextDouble() * 500),
+                    new UUID(random.nextLong(), random.nextLong()).toString(),
+                    STATUSES[random.nextInt(STATUSES.length)]
+            });
+        }
+        return data;
+    }
+
+    private static byte[] toCsv(List<String[]> data) {
+        StringBuilder csv = new StringBuilder(data.size() * 120);
+        csv.append("id,event_time,user_id,country,url,amount,session,status\r\n");
+        for (String[] row : data) {
+            csv.append(String.join(",", row)).append("\r\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toRowBinary(List<String[]> data) throws IOException, SQLException {
+        RowBinaryEncoder encoder = new RowBinaryEncoder(COLUMN_TYPES, ZoneId.of("UTC"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.size() * 80);
+        encoder.open(out);
+        for (String[] row : data) {
+            encoder.writeRow(row);
+        }
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private record Payload(String name, byte[] bytes) {
+    }
+
+    /**
+     * Stands in for a server response so that decoding goes through the same
+     * Content-Encoding dispatch as real responses.
+     */
+    private static final class EncodedResponse extends HttpURLConnection {
+        private final CompressionCodec codec;
+
+        EncodedResponse(CompressionCodec codec) throws IOException {
+            super(new URL("http://localhost/"));
+            this.codec = codec;
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return codec.getContentEncoding();
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+    }
+}
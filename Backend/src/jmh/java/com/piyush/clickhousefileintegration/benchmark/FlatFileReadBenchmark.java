@@ -0,0 +1,123 @@
+package com.piyush.clickhousefileintegration.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.piyush.clickhousefileintegration.model.ColumnMetadata;
+import com.piyush.clickhousefileintegration.model.FlatFileConfig;
+import com.piyush.clickhousefileintegration.service.ClickHouseService;
+import com.piyush.clickhousefileintegration.service.ColumnBatch;
+import com.piyush.clickhousefileintegration.service.FlatFileService;
+import com.piyush.clickhousefileintegration.service.IngestionMetrics;
+import com.piyush.clickhousefileintegration.service.IngestionProgress;
+import com.piyush.clickhousefileintegration.service.MappedCsvReader;
+import com.piyush.clickhousefileintegration.service.WorkerThreads;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Parse throughput on synthetic CSVs of several widths, in rows per second:
+ * the map-per-row preview reader ({@code readData}) against the batched
+ * streaming reader used for ingestion, through commons-csv
+ * ({@code streamData}) and through the memory-mapped byte scanner
+ * ({@code readMapped}), both filling column batches with every column.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlatFileReadBenchmark {
+
+    private static final int ROWS = 5000;
+
+    @Param({ "5", "50", "500" })
+    public int width;
+
+    private final FlatFileService flatFileService = new FlatFileService(new IngestionMetrics(new SimpleMeterRegistry()),
+            new WorkerThreads(false));
+    private Path file;
+    private FlatFileConfig config;
+    private List<ColumnMetadata> columns;
+    private ColumnBatch batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = SyntheticData.writeCsv(width, ROWS);
+        config = SyntheticData.config(file);
+        columns = SyntheticData.selectedColumns(width);
+        batch = new ColumnBatch(ColumnBatch.Schema.allStrings(SyntheticData.columnNames(width)),
+                ColumnBatch.DEFAULT_CAPACITY);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Map<String, Object>> readData() throws IOException, InterruptedException {
+        return flatFileService.readData(config, null, columns, ROWS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int streamData(Blackhole blackhole) throws IOException, SQLException, InterruptedException {
+        return flatFileService.streamData(config, null, columns, new ClickHouseService.DataHandler() {
+            @Override
+            public void processBatch(ColumnBatch batch) {
+                blackhole.consume(batch.size());
+            }
+
+            @Override
+            public void complete() {
+            }
+        }, new IngestionProgress());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int readMapped(Blackhole blackhole) throws IOException {
+        int rows = 0;
+        try (MappedCsvReader reader = new MappedCsvReader(file, ',', StandardCharsets.UTF_8)) {
+            reader.next();
+            while (reader.next()) {
+                for (int c = 0; c < width; c++) {
+                    reader.copyTo(c, batch, c);
+                }
+                batch.commitRow();
+                rows++;
+                if (batch.isFull()) {
+                    blackhole.consume(batch.size());
+                    batch.clear();
+                }
+            }
+        }
+        blackhole.consume(batch.size());
+        batch.clear();
+        return rows;
+    }
+}
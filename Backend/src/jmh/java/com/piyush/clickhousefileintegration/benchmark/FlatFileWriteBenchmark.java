@@ -0,0 +1,91 @@
+package com.piyush.clickhousefileintegration.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.piyush.clickhousefileintegration.model.ColumnMetadata;
+import com.piyush.clickhousefileintegration.model.FlatFileConfig;
+import com.piyush.clickhousefileintegration.service.ClickHouseService;
+import com.piyush.clickhousefileintegration.service.ColumnBatch;
+import com.piyush.clickhousefileintegration.service.FlatFileService;
+import com.piyush.clickhousefileintegration.service.IngestionMetrics;
+import com.piyush.clickhousefileintegration.service.WorkerThreads;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Write throughput of the flat file DataHandler created by
+ * {@code createFlatFileDataHandler}, in rows per second, writing to a
+ * temporary file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlatFileWriteBenchmark {
+
+    private static final int BATCHES = 10;
+
+    @Param({ "5", "50" })
+    public int width;
+
+    private final FlatFileService flatFileService = new FlatFileService(new IngestionMetrics(new SimpleMeterRegistry()),
+            new WorkerThreads(false));
+    private final FlatFileConfig config = SyntheticData.config(null);
+    private List<ColumnMetadata> columns;
+    private ColumnBatch batch;
+
+    @Setup
+    public void setUp() {
+        columns = SyntheticData.selectedColumns(width);
+        batch = new ColumnBatch(ColumnBatch.Schema.allStrings(SyntheticData.columnNames(width)),
+                ColumnBatch.DEFAULT_CAPACITY);
+        String[][] rows = SyntheticData.rows(width, ColumnBatch.DEFAULT_CAPACITY);
+        for (String[] row : rows) {
+            for (int c = 0; c < width; c++) {
+                batch.setString(c, row[c]);
+            }
+            batch.commitRow();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCHES * ColumnBatch.DEFAULT_CAPACITY)
+    public long writeCsv() throws Exception {
+        AtomicReference<File> generated = new AtomicReference<>();
+        ClickHouseService.DataHandler handler = flatFileService.createFlatFileDataHandler(config, columns, generated,
+                "jmh_write");
+        try {
+            for (int i = 0; i < BATCHES; i++) {
+                handler.processBatch(batch);
+            }
+            handler.complete();
+            return generated.get().length();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            if (generated.get() != null) {
+                Files.deleteIfExists(generated.get().toPath());
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.piyush.clickhousefileintegration.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.piyush.clickhousefileintegration.model.ColumnMetadata;
+import com.piyush.clickhousefileintegration.service.ClickHouseService;
+import com.piyush.clickhousefileintegration.service.ColumnBatch;
+import com.piyush.clickhousefileintegration.service.IngestionMetrics;
+import com.piyush.clickhousefileintegration.service.RowBinaryEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Client-side cost of the insert paths, in rows per second: JDBC statement
+ * building ({@code insertData} and the streaming insert handler) against a
+ * stub connection that discards everything, and RowBinary encoding into a
+ * discarding stream. No server is involved, so the numbers isolate the work
+ * done in this process.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertBenchmark {
+
+    private static final int ROWS = 4 * ColumnBatch.DEFAULT_CAPACITY;
+
+    @Param({ "6", "60" })
+    public int width;
+
+    private final ClickHouseService clickHouseService = new ClickHouseService(null,
+            new IngestionMetrics(new SimpleMeterRegistry()));
+    private final Connection connection = stubConnection();
+    private List<ColumnMetadata> columns;
+    private List<Map<String, Object>> rowMaps;
+    private ColumnBatch batch;
+    private RowBinaryEncoder encoder;
+    private int[] encoderColumns;
+
+    @Setup
+    public void setUp() {
+        columns = SyntheticData.selectedColumns(width);
+        String[][] rows = SyntheticData.rows(width, ColumnBatch.DEFAULT_CAPACITY);
+
+        rowMaps = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Map<String, Object> map = new HashMap<>();
+            for (int c = 0; c < width; c++) {
+                map.put(SyntheticData.columnName(c), rows[i % rows.length][c]);
+            }
+            rowMaps.add(map);
+        }
+
+        batch = new ColumnBatch(ColumnBatch.Schema.allStrings(SyntheticData.columnNames(width)),
+                ColumnBatch.DEFAULT_CAPACITY);
+        for (String[] row : rows) {
+            for (int c = 0; c < width; c++) {
+                batch.setString(c, row[c]);
+            }
+            batch.commitRow();
+        }
+
+        List<String> types = new ArrayList<>(width);
+        encoderColumns = new int[width];
+        for (int c = 0; c < width; c++) {
+            types.add(SyntheticData.type(c));
+            encoderColumns[c] = c;
+        }
+        encoder = new RowBinaryEncoder(types, ZoneId.of("UTC"));
+        encoder.open(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int insertData() throws SQLException {
+        return clickHouseService.insertData(connection, "jmh_target", columns, rowMaps);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insertHandler() throws SQLException {
+        ClickHouseService.DataHandler handler = clickHouseService.createInsertDataHandler(connection, "jmh_target",
+                columns);
+        for (int i = 0; i < ROWS / ColumnBatch.DEFAULT_CAPACITY; i++) {
+            handler.processBatch(batch);
+        }
+        handler.complete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long encodeRowBinary() throws IOException, SQLException {
+        for (int i = 0; i < ROWS / ColumnBatch.DEFAULT_CAPACITY; i++) {
+            encoder.writeBatch(batch, encoderColumns);
+        }
+        encoder.flush();
+        return encoder.getBytesWritten();
+    }
+
+    /**
+     * A connection whose prepared statements accept every call and do nothing.
+     */
+    private static Connection stubConnection() {
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(
+                InsertBenchmark.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "executeBatch":
+                            return new int[0];
+                        case "isClosed":
+                            return false;
+                        default:
+                            return null;
+                    }
+                });
+        return (Connection) Proxy.newProxyInstance(InsertBenchmark.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return statement;
+                        case "isClosed":
+                            return false;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
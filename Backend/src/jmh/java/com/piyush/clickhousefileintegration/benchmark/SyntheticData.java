@@ -0,0 +1,124 @@
+package com.piyush.clickhousefileintegration.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import com.piyush.clickhousefileintegration.model.ColumnMetadata;
+import com.piyush.clickhousefileintegration.model.FlatFileConfig;
+
+/**
+ * Deterministic synthetic data shared by the benchmarks. Columns cycle through
+ * integers, decimals, dates, date-times, low-cardinality strings and free text
+ * so that every width exercises the same mix of value shapes.
+ */
+final class SyntheticData {
+
+    static final List<String> TYPES = List.of("Int64", "Float64", "Date", "DateTime", "String", "String");
+
+    private static final String[] CATEGORIES = { "alpha", "beta", "gamma", "delta", "epsilon" };
+
+    private SyntheticData() {
+    }
+
+    static String columnName(int column) {
+        return "c" + column;
+    }
+
+    static String type(int column) {
+        return TYPES.get(column % TYPES.size());
+    }
+
+    static String value(int column, int row, Random random) {
+        switch (column % TYPES.size()) {
+            case 0:
+                return Long.toString(random.nextInt(1_000_000) - 500_000L);
+            case 1:
+                return String.format("%.3f", random.nextDouble() * 1000);
+            case 2:
+                return String.format("2024-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28));
+            case 3:
+                return String.format("2024-%02d-%02d %02d:%02d:%02d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+                        random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            case 4:
+                return CATEGORIES[random.nextInt(CATEGORIES.length)];
+            default:
+                return "row " + row + " value " + Long.toHexString(random.nextLong());
+        }
+    }
+
+    static String[][] rows(int columns, int rows) {
+        Random random = new Random(42);
+        String[][] data = new String[rows][columns];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                data[r][c] = value(c, r, random);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Writes a comma-separated file with a header row to a temporary location.
+     */
+    static Path writeCsv(int columns, int rows) throws IOException {
+        return writeCsv(columns, rows, false);
+    }
+
+    /**
+     * Writes a comma-separated file with a header row, optionally upper-casing
+     * the column names in the header so they only match case-insensitively.
+     */
+    static Path writeCsv(int columns, int rows, boolean upperCaseHeader) throws IOException {
+        Path file = Files.createTempFile("jmh_" + columns + "x" + rows + "_", ".csv");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int c = 0; c < columns; c++) {
+                String name = upperCaseHeader ? columnName(c).toUpperCase(Locale.ROOT) : columnName(c);
+                writer.write(c == 0 ? name : "," + name);
+            }
+            writer.newLine();
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    if (c > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(value(c, r, random));
+                }
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    static FlatFileConfig config(Path file) {
+        FlatFileConfig config = new FlatFileConfig();
+        config.setFileName(file == null ? null : file.toString());
+        config.setDelimiter(",");
+        config.setEncoding("UTF-8");
+        config.setHasHeader(true);
+        return config;
+    }
+
+    static List<ColumnMetadata> selectedColumns(int columns) {
+        List<ColumnMetadata> metadata = new ArrayList<>(columns);
+        for (int c = 0; c < columns; c++) {
+            metadata.add(new ColumnMetadata(columnName(c), type(c), true));
+        }
+        return metadata;
+    }
+
+    static List<String> columnNames(int columns) {
+        List<String> names = new ArrayList<>(columns);
+        for (int c = 0; c < columns; c++) {
+            names.add(columnName(c));
+        }
+        return names;
+    }
+}
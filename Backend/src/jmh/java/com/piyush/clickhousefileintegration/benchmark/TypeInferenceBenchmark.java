@@ -0,0 +1,51 @@
+package com.piyush.clickhousefileintegration.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.piyush.clickhousefileintegration.service.TypeInference;
+
+/**
+ * Classification throughput of the sampled type inference used for flat file
+ * schemas, in values per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeInferenceBenchmark {
+
+    private static final int COLUMNS = 12;
+    private static final int ROWS = 2000;
+
+    private String[][] rows;
+
+    @Setup
+    public void setUp() {
+        rows = SyntheticData.rows(COLUMNS, ROWS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COLUMNS * ROWS)
+    public List<String> inferSample() {
+        TypeInference inference = new TypeInference(COLUMNS);
+        for (String[] row : rows) {
+            inference.observe(row);
+        }
+        return inference.getTypes();
+    }
+}
@@ -1,16 +1,28 @@
 package com.piyush.clickhousefileintegration.controller;
 
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.piyush.clickhousefileintegration.model.ClickHouseConfig;
 import com.piyush.clickhousefileintegration.model.ColumnMetadata;
 import com.piyush.clickhousefileintegration.model.FlatFileConfig;
+import com.piyush.clickhousefileintegration.model.IngestionJobStatus;
 import com.piyush.clickhousefileintegration.model.IngestionRequest;
+import com.piyush.clickhousefileintegration.service.ChunkedUpload;
+import com.piyush.clickhousefileintegration.service.ChunkedUploadService;
+import com.piyush.clickhousefileintegration.service.IngestionJobService;
+import com.piyush.clickhousefileintegration.service.IngestionProgress;
 import com.piyush.clickhousefileintegration.service.IntegrationService;
 
 import lombok.RequiredArgsConstructor;
@@ -19,11 +31,12 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
@@ -43,6 +56,10 @@ public class IntegrationController {
 
     private final IntegrationService integrationService;
 
+    private final IngestionJobService ingestionJobService;
+
+    private final ChunkedUploadService chunkedUploadService;
+
     @PostMapping("/clickhouse/test-connection")
     public ResponseEntity<Map<String, Object>> testClickHouseConnection(@RequestBody ClickHouseConfig config) {
 
@@ -226,60 +243,311 @@ public class IntegrationController {
     }
 
     /**
-     * Executes the data ingestion process
+     * Submits the data ingestion process as a background job
      *
      * @param request Ingestion request with source, target, and column selection
-     * @return Ingestion result with record count
-     * @throws IOException
-     * @throws SQLException
-     * @throws InterruptedException
+     * @return Job ID and initial status; progress is available from the job
+     *         endpoints
      */
     @PostMapping(value = "/execute", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> executeIngestion(
+    public ResponseEntity<Map<String, Object>> executeIngestion(
             @RequestPart("ingestionRequest") IngestionRequest request,
-            @RequestPart(value = "file", required = false) MultipartFile file)
-            throws SQLException, IOException, InterruptedException {
+            @RequestPart(value = "file", required = false) MultipartFile file) {
 
+        Map<String, Object> response = new HashMap<>();
         try {
-            integrationService.validateRequest(request);
+            IngestionJobStatus status = ingestionJobService.submit(request, file);
+            response.put("success", true);
+            response.put("jobId", status.getJobId());
+            response.put("status", status);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (RejectedExecutionException e) {
+            response.put("success", false);
+            response.put("message", "Too many ingestion jobs in progress, please retry later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (Exception e) {
+            log.error("Error submitting ingestion job", e);
+            response.put("success", false);
+            response.put("message", "Ingestion failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
 
-            String source = request.getSourceType().toLowerCase();
-            String target = request.getTargetType().toLowerCase();
+    /**
+     * Starts a chunked upload of a flat file and the job that ingests it into
+     * ClickHouse.
+     *
+     * The job reads the upload while it arrives: every chunk accepted by
+     * {@code PUT /uploads/{uploadId}/chunks/{index}} goes straight to the
+     * parser and insert pipeline, and the job finishes once the upload is
+     * completed. A dropped chunk is resumed by asking {@code GET
+     * /uploads/{uploadId}} for the next chunk index and sending from there.
+     *
+     * @param request   Ingestion request with a flat file source and ClickHouse
+     *                  target
+     * @param totalSize Size of the file in bytes, if known, for progress and ETA
+     * @return Upload ID and job ID with the initial job status
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<Map<String, Object>> startUpload(@RequestBody IngestionRequest request,
+            @RequestParam(defaultValue = "-1") long totalSize) {
 
-            if ("clickhouse".equals(source) && "flatfile".equals(target)) {
+        Map<String, Object> response = new HashMap<>();
+        ChunkedUpload upload = null;
+        try {
+            String fileName = request.getFlatFileConfig() != null ? request.getFlatFileConfig().getFileName() : null;
+            upload = chunkedUploadService.create(fileName, totalSize);
+            IngestionJobStatus status = ingestionJobService.submitUpload(request, upload);
+            response.put("success", true);
+            response.put("uploadId", upload.getId());
+            response.put("jobId", status.getJobId());
+            response.put("nextChunk", 0);
+            response.put("status", status);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            if (upload != null) {
+                chunkedUploadService.remove(upload.getId());
+            }
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (RejectedExecutionException e) {
+            chunkedUploadService.remove(upload.getId());
+            response.put("success", false);
+            response.put("message", "Too many ingestion jobs in progress, please retry later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (Exception e) {
+            log.error("Error starting chunked upload", e);
+            if (upload != null) {
+                chunkedUploadService.remove(upload.getId());
+            }
+            response.put("success", false);
+            response.put("message", "Upload failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
 
-                // ClickHouse → Flatfile: return file
-                AtomicReference<File> generatedFileRef = new AtomicReference<>();
-                int recordCount = integrationService.ingestFromClickHouseToFlatFile(request, generatedFileRef);
+    /**
+     * Appends one chunk to an upload. The request body is the raw chunk and
+     * {@code X-Chunk-SHA256} its hex SHA-256; a chunk is only accepted when it
+     * arrives in full with a matching checksum. Sending an already accepted
+     * chunk again with the same checksum succeeds without appending it twice.
+     *
+     * @param uploadId Upload identifier returned by POST /uploads
+     * @param index    Chunk index, starting at 0
+     * @param sha256   Hex SHA-256 of the chunk
+     * @param body     Chunk bytes
+     * @return Next chunk index and bytes received; 409 with the next index if
+     *         the chunk is out of order or the upload is no longer open
+     */
+    @PutMapping(value = "/uploads/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> appendChunk(@PathVariable String uploadId, @PathVariable int index,
+            @RequestHeader(value = "X-Chunk-SHA256", required = false) String sha256, InputStream body) {
 
-                File generatedFile = generatedFileRef.get();
-                if (generatedFile == null || !generatedFile.exists()) {
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-                }
+        ChunkedUpload upload = findUpload(uploadId);
+        try {
+            boolean appended = upload.append(index, body, sha256);
+            Map<String, Object> response = uploadResponse(upload);
+            response.put("appended", appended);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return uploadError(upload, HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return uploadError(upload, HttpStatus.CONFLICT, e.getMessage());
+        } catch (IOException e) {
+            log.warn("Chunk {} of upload {} was not received: {}", index, uploadId, e.getMessage());
+            return uploadError(upload, HttpStatus.BAD_REQUEST, "Chunk " + index + " was not received: "
+                    + e.getMessage());
+        }
+    }
 
-                InputStreamResource resource = new InputStreamResource(new FileInputStream(generatedFile));
+    /**
+     * Gets the state of an upload, including the index of the next chunk to
+     * send when resuming.
+     *
+     * @param uploadId Upload identifier returned by POST /uploads
+     * @return Upload state and the status of its ingestion job
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<Map<String, Object>> getUpload(@PathVariable String uploadId) {
+        return ResponseEntity.ok(uploadResponse(findUpload(uploadId)));
+    }
 
-                return ResponseEntity.ok()
-                        .header(HttpHeaders.CONTENT_DISPOSITION,
-                                "attachment; filename=\"" + generatedFile.getName() + "\"")
-                        .header("X-Record-Count", String.valueOf(recordCount))
-                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                        .contentLength(generatedFile.length())
-                        .body(resource);
+    /**
+     * Completes an upload, ending the stream its job is reading.
+     *
+     * @param uploadId   Upload identifier returned by POST /uploads
+     * @param chunkCount Number of chunks sent
+     * @param sha256     Optional hex SHA-256 of the whole file
+     * @return Upload state and the status of its ingestion job
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<Map<String, Object>> completeUpload(@PathVariable String uploadId,
+            @RequestParam int chunkCount,
+            @RequestHeader(value = "X-Upload-SHA256", required = false) String sha256) {
 
-            } else if ("flatfile".equals(source) && "clickhouse".equals(target)) {
+        ChunkedUpload upload = findUpload(uploadId);
+        try {
+            upload.complete(chunkCount, sha256);
+            return ResponseEntity.ok(uploadResponse(upload));
+        } catch (IllegalArgumentException e) {
+            return uploadError(upload, HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return uploadError(upload, HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
 
-                // Flatfile → ClickHouse: return record count
-                int recordCount = integrationService.ingestFromFlatFileToClickHouse(request, file);
-                return ResponseEntity.ok(recordCount);
-            } else {
-                return ResponseEntity.badRequest()
-                        .body("Ingestion from " + request.getSourceType() + " to " + request.getTargetType()
-                                + " is not supported.");
-            }
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Ingestion failed: " + e.getMessage());
+    /**
+     * Aborts an upload and cancels its ingestion job.
+     *
+     * @param uploadId Upload identifier returned by POST /uploads
+     * @return Status of the cancelled job
+     */
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<IngestionJobStatus> abortUpload(@PathVariable String uploadId) {
+        ChunkedUpload upload = chunkedUploadService.remove(uploadId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown upload: " + uploadId));
+        return ingestionJobService.cancel(upload.getJobId())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    private ChunkedUpload findUpload(String uploadId) {
+        return chunkedUploadService.get(uploadId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown upload: " + uploadId));
+    }
+
+    private Map<String, Object> uploadResponse(ChunkedUpload upload) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", upload.getFailure() == null);
+        response.put("uploadId", upload.getId());
+        response.put("jobId", upload.getJobId());
+        response.put("nextChunk", upload.getNextChunk());
+        response.put("bytesReceived", upload.getBytesReceived());
+        response.put("complete", upload.isComplete());
+        if (upload.getFailure() != null) {
+            response.put("message", upload.getFailure());
+        }
+        ingestionJobService.getStatus(upload.getJobId()).ifPresent(status -> response.put("status", status));
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> uploadError(ChunkedUpload upload, HttpStatus status, String message) {
+        Map<String, Object> response = uploadResponse(upload);
+        response.put("success", false);
+        response.put("message", message);
+        return ResponseEntity.status(status).body(response);
+    }
+
+    /**
+     * Exports ClickHouse data as CSV streamed directly into the response body.
+     *
+     * Unlike /execute, nothing is staged on disk: rows are written to the socket
+     * as ClickHouse returns them, so the first bytes arrive immediately and the
+     * export proceeds at the pace the client reads. Because the response is
+     * committed before the export finishes, failures mid-stream abort the
+     * connection rather than returning an error status.
+     *
+     * @param request Ingestion request with ClickHouse source and column selection
+     * @return Streaming CSV response
+     */
+    @PostMapping("/export/stream")
+    public ResponseEntity<StreamingResponseBody> streamExport(@RequestBody IngestionRequest request) {
+        try {
+            integrationService.validateRequest(request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         }
+        if (!"clickhouse".equalsIgnoreCase(request.getSourceType())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Streaming export requires a ClickHouse source");
+        }
+        if (request.isShardedOutput()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Sharded output is only available for export jobs");
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                integrationService.exportFromClickHouseToStream(request, out, new IngestionProgress());
+            } catch (SQLException e) {
+                log.error("Streaming export failed", e);
+                throw new IOException("Streaming export failed: " + e.getMessage(), e);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + request.getTableName() + ".csv\"")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(body);
+    }
+
+    /**
+     * Gets the status of an ingestion job
+     *
+     * @param jobId Job identifier returned by /execute
+     * @return Job status with rows written, bytes read, throughput and ETA
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJobStatus> getJobStatus(@PathVariable String jobId) {
+        return ingestionJobService.getStatus(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams job progress as Server-Sent Events. A "progress" event is sent
+     * periodically while the job runs, followed by a "completed", "failed" or
+     * "cancelled" event.
+     *
+     * @param jobId Job identifier returned by /execute
+     * @return SSE emitter
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getJobEvents(@PathVariable String jobId) {
+        return ingestionJobService.subscribe(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown job: " + jobId));
+    }
+
+    /**
+     * Cancels an ingestion job
+     *
+     * @param jobId Job identifier returned by /execute
+     * @return Job status after the cancellation request
+     */
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJobStatus> cancelJob(@PathVariable String jobId) {
+        return ingestionJobService.cancel(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Downloads the flat file produced by a completed ClickHouse export job
+     *
+     * @param jobId Job identifier returned by /execute
+     * @return Generated flat file
+     * @throws IOException
+     */
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<InputStreamResource> downloadJobResult(@PathVariable String jobId) throws IOException {
+        File generatedFile = ingestionJobService.getResultFile(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "No downloadable result for job: " + jobId));
+        IngestionJobStatus status = ingestionJobService.getStatus(jobId).orElseThrow();
+
+        InputStreamResource resource = new InputStreamResource(new FileInputStream(generatedFile));
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + generatedFile.getName() + "\"")
+                .header("X-Record-Count", String.valueOf(status.getRecordCount()))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(generatedFile.length())
+                .body(resource);
     }
 }
@@ -11,14 +11,37 @@ public class ClickHouseConfig {
     private String user;
     private String jwtToken;
     private boolean secure; // Whether to use HTTPS (8443/9440) or HTTP (8123/9000)
-    
+    private CompressionCodec compression = CompressionCodec.NONE; // Applied to requests and responses
+    private Integer compressionLevel; // Codec default when null
+
+    public void setCompression(CompressionCodec compression) {
+        this.compression = compression != null ? compression : CompressionCodec.NONE;
+    }
+
     /**
      * Constructs the JDBC URL for ClickHouse connection
      * @return JDBC URL string
      */
     public String getJdbcUrl() {
         String protocol = secure ? "https" : "http";
-        // Add compress=0 parameter to disable compression and avoid LZ4 dependency issue
-        return String.format("jdbc:clickhouse:%s://%s:%d/%s?compress=0", protocol, host, port, database);
+        String base = String.format("jdbc:clickhouse:%s://%s:%d/%s", protocol, host, port, database);
+        if (compression == CompressionCodec.NONE) {
+            return base + "?compress=0";
+        }
+        // compress: server compresses responses; decompress: client compresses requests
+        int level = compression.resolveLevel(compressionLevel);
+        return String.format("%s?compress=1&compress_algorithm=%s&compress_level=%d"
+                + "&decompress=1&decompress_algorithm=%s&decompress_level=%d",
+                base, compression.name(), level, compression.name(), level);
+    }
+
+    /**
+     * Constructs the base URL of the ClickHouse HTTP interface, used for
+     * requests that bypass JDBC (e.g. RowBinary inserts)
+     * @return HTTP base URL string
+     */
+    public String getHttpUrl() {
+        String protocol = secure ? "https" : "http";
+        return String.format("%s://%s:%d", protocol, host, port);
     }
 }
@@ -0,0 +1,66 @@
+package com.piyush.clickhousefileintegration.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+/**
+ * Wire compression used between this service and ClickHouse, for both the
+ * data sent to the server and the data it returns
+ */
+public enum CompressionCodec {
+
+    NONE(null, 0, 0, 0),
+    LZ4("lz4", 0, 0, 17),
+    ZSTD("zstd", 3, 1, 22);
+
+    private final String contentEncoding;
+    private final int defaultLevel;
+    private final int minLevel;
+    private final int maxLevel;
+
+    CompressionCodec(String contentEncoding, int defaultLevel, int minLevel, int maxLevel) {
+        this.contentEncoding = contentEncoding;
+        this.defaultLevel = defaultLevel;
+        this.minLevel = minLevel;
+        this.maxLevel = maxLevel;
+    }
+
+    /**
+     * @return Value of the HTTP Content-Encoding / Accept-Encoding header, or
+     *         null when uncompressed
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Clamps a requested level to the range supported by the codec. For LZ4,
+     * level 0 selects the fast compressor and higher levels the high
+     * compression (HC) variant.
+     *
+     * @param level Requested level, or null for the codec default
+     * @return Effective compression level
+     */
+    public int resolveLevel(Integer level) {
+        if (level == null) {
+            return defaultLevel;
+        }
+        return Math.max(minLevel, Math.min(maxLevel, level));
+    }
+
+    /**
+     * Accepts codec names case-insensitively; a missing value means no
+     * compression.
+     */
+    @JsonCreator
+    public static CompressionCodec fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported compression codec: " + value
+                    + " (expected none, lz4 or zstd)");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.piyush.clickhousefileintegration.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+/**
+ * How a parallel export divides the source table into splits that are read
+ * concurrently
+ */
+public enum ExportSplit {
+
+    /** PARTITION if the table has enough partitions, else KEY_RANGE, else HASH */
+    AUTO,
+
+    /** Whole partitions (from system.parts), balanced by row count */
+    PARTITION,
+
+    /** Ranges of the first sorting key column, cut at its quantiles */
+    KEY_RANGE,
+
+    /** cityHash64 of the selected columns, as text so NULLs hash too, modulo the number of splits */
+    HASH;
+
+    /**
+     * Accepts strategy names case-insensitively, with '-' or '_'; a missing
+     * value means AUTO.
+     */
+    @JsonCreator
+    public static ExportSplit fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return AUTO;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export split: " + value
+                    + " (expected auto, partition, key-range or hash)");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.piyush.clickhousefileintegration.model;
+
+import java.time.Instant;
+
+import lombok.Data;
+
+/**
+ * Snapshot of an asynchronous ingestion job, returned by the status endpoint
+ * and pushed to SSE subscribers
+ */
+@Data
+public class IngestionJobStatus {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isTerminal() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private String jobId;
+    private State state;
+    private String sourceType;
+    private String targetType;
+
+    // Live counters
+    private long rowsWritten;
+    private long bytesRead;
+    private long totalBytes;
+    private double rowsPerSecond;
+    private long etaSeconds;
+    private int progressPercent; // -1 when the source size is unknown
+
+    // Final result
+    private Long recordCount;
+    private String message;
+    private boolean downloadAvailable;
+
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
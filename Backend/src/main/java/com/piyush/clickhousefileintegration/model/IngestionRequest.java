@@ -33,4 +33,22 @@ public class IngestionRequest {
     
     // Target table name when ClickHouse is target
     private String targetTableName;
+
+    // Number of parser threads / insert streams for flat file sources, or of splits read
+    // concurrently for single-table ClickHouse exports (1 = sequential)
+    private int parallelism = 1;
+
+    // Keep source row order when parsing in parallel (uses a single insert stream);
+    // for parallel exports, write the splits in split order
+    private boolean preserveOrder;
+
+    // How a parallel export divides the table into splits
+    private ExportSplit exportSplit = ExportSplit.AUTO;
+
+    // Write each split of a parallel export job to its own file, delivered as a zip archive
+    private boolean shardedOutput;
+
+    public void setExportSplit(ExportSplit exportSplit) {
+        this.exportSplit = exportSplit != null ? exportSplit : ExportSplit.AUTO;
+    }
 }
\ No newline at end of file
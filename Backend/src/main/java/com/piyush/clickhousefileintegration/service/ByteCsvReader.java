@@ -0,0 +1,309 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads delimited records by scanning raw bytes for delimiters, quotes and
+ * line breaks, instead of going through a Reader and commons-csv.
+ *
+ * Nothing is copied or decoded while scanning: a record is a list of byte
+ * ranges into the current window of the source, and only the fields that are
+ * asked for are extracted. Reading a projection of a wide file therefore
+ * creates no Strings for the columns that are skipped. For UTF-8 and US-ASCII
+ * sources the selected fields go into a {@link ColumnBatch} as they are, since
+ * batches store strings as UTF-8; for other ASCII-compatible encodings (see
+ * {@link CsvChunkSplitter#supports}) only those fields are decoded.
+ *
+ * Records follow the rules of {@code CSVFormat.DEFAULT} with a custom
+ * delimiter: a field that starts with a double quote is quoted, may contain
+ * delimiters and line breaks, and escapes quotes by doubling them; records end
+ * at LF, CRLF or CR, and empty lines are skipped.
+ *
+ * Subclasses supply the bytes as a sequence of windows, see
+ * {@link MappedCsvReader} and {@link StreamingCsvReader}. Instances are not
+ * thread-safe; use one per thread, e.g. one per chunk.
+ */
+public abstract class ByteCsvReader implements AutoCloseable {
+
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final byte delimiter;
+    private final Charset charset;
+    private final boolean utf8;
+
+    private ByteBuffer buffer;
+    private long windowStart;
+    private int position;
+
+    private int fieldCount;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+    private byte[] scratch = new byte[256];
+
+    protected ByteCsvReader(char delimiter, Charset charset) {
+        if (!supports(charset, delimiter)) {
+            throw new IllegalArgumentException("Byte-level parsing is not supported for encoding " + charset
+                    + " and delimiter '" + delimiter + "'");
+        }
+        this.delimiter = (byte) delimiter;
+        this.charset = charset;
+        this.utf8 = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns true if records can be read by scanning bytes for the given
+     * encoding and delimiter.
+     */
+    public static boolean supports(Charset charset, char delimiter) {
+        return CsvChunkSplitter.supports(charset) && delimiter < 0x80;
+    }
+
+    @Override
+    public abstract void close() throws IOException;
+
+    /**
+     * @return True if the current window ends where the source does
+     */
+    protected abstract boolean isLastWindow();
+
+    /**
+     * Replaces the current window with one that starts at source position
+     * {@code from}, through {@link #setWindow}.
+     *
+     * @param from   Source position of the first unread byte
+     * @param larger True if the record at {@code from} did not fit in the
+     *               current window, which already started there
+     * @throws IOException if the source cannot be read or the record cannot
+     *                     fit in a window
+     */
+    protected abstract void moveWindow(long from, boolean larger) throws IOException;
+
+    protected final void setWindow(ByteBuffer buffer, long start) {
+        this.buffer = buffer;
+        this.windowStart = start;
+        this.position = 0;
+    }
+
+    protected final ByteBuffer getWindow() {
+        return buffer;
+    }
+
+    protected final long getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * @return Source position of the next unread byte
+     */
+    public long getPosition() {
+        return windowStart + position;
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return false at the end of the source
+     * @throws IOException if the record is malformed or the source fails
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            skipEmptyLines();
+            if (position >= buffer.limit()) {
+                if (isLastWindow()) {
+                    fieldCount = 0;
+                    return false;
+                }
+                moveWindow(windowStart + position, false);
+                continue;
+            }
+            int next = parseRecord(position, isLastWindow());
+            if (next >= 0) {
+                position = next;
+                return true;
+            }
+            // The record continues past the window
+            moveWindow(windowStart + position, position == 0);
+        }
+    }
+
+    /**
+     * @return Number of fields in the current record
+     */
+    public int size() {
+        return fieldCount;
+    }
+
+    /**
+     * Decodes a field of the current record.
+     *
+     * @return The field, or an empty string if the record has fewer fields
+     */
+    public String get(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return "";
+        }
+        int length = extract(field);
+        return new String(scratch, 0, length, charset);
+    }
+
+    /**
+     * Stores a field of the current record in a string column of the next row
+     * of a batch; missing fields are stored as empty strings.
+     */
+    public void copyTo(int field, ColumnBatch batch, int column) {
+        if (field < 0 || field >= fieldCount) {
+            batch.setString(column, "");
+        } else if (!utf8) {
+            batch.setString(column, get(field));
+        } else if (escaped[field]) {
+            batch.setUtf8(column, scratch, 0, extract(field));
+        } else {
+            batch.setUtf8(column, buffer, starts[field], ends[field] - starts[field]);
+        }
+    }
+
+    private void skipEmptyLines() {
+        int limit = buffer.limit();
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b != LF && b != CR) {
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Splits the record starting at {@code p} into fields.
+     *
+     * @return Position after the record and its line break, or -1 if the
+     *         window ends before the record does
+     */
+    private int parseRecord(int p, boolean lastWindow) throws IOException {
+        int limit = buffer.limit();
+        fieldCount = 0;
+
+        while (true) {
+            if (p >= limit) {
+                // Delimiter at the end of the source: the record ends with an empty field
+                if (!lastWindow) {
+                    return -1;
+                }
+                addField(p, p, false);
+                return p;
+            }
+
+            if (buffer.get(p) == QUOTE) {
+                int q = p + 1;
+                boolean hasEscapes = false;
+                while (true) {
+                    if (q >= limit) {
+                        if (lastWindow) {
+                            throw new IOException("EOF reached before encapsulated token finished at byte "
+                                    + (windowStart + p));
+                        }
+                        return -1;
+                    }
+                    if (buffer.get(q) == QUOTE) {
+                        if (q + 1 >= limit && !lastWindow) {
+                            return -1;
+                        }
+                        if (q + 1 < limit && buffer.get(q + 1) == QUOTE) {
+                            hasEscapes = true;
+                            q += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    q++;
+                }
+                addField(p + 1, q, hasEscapes);
+                p = q + 1;
+                while (p < limit && isBlank(buffer.get(p))) {
+                    p++;
+                }
+                if (p < limit && !isFieldEnd(buffer.get(p))) {
+                    throw new IOException("Invalid char between encapsulated token and delimiter at byte "
+                            + (windowStart + p));
+                }
+            } else {
+                int q = p;
+                while (q < limit && !isFieldEnd(buffer.get(q))) {
+                    q++;
+                }
+                addField(p, q, false);
+                p = q;
+            }
+
+            if (p >= limit) {
+                return lastWindow ? p : -1;
+            }
+            byte b = buffer.get(p);
+            if (b == delimiter) {
+                p++;
+            } else if (b == LF) {
+                return p + 1;
+            } else {
+                // CR, possibly followed by LF
+                if (p + 1 < limit) {
+                    return buffer.get(p + 1) == LF ? p + 2 : p + 1;
+                }
+                return lastWindow ? p + 1 : -1;
+            }
+        }
+    }
+
+    private boolean isFieldEnd(byte b) {
+        return b == delimiter || b == LF || b == CR;
+    }
+
+    private boolean isBlank(byte b) {
+        return (b == ' ' || b == '\t') && b != delimiter;
+    }
+
+    private void addField(int start, int end, boolean hasEscapes) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = hasEscapes;
+        fieldCount++;
+    }
+
+    /**
+     * Copies a field into {@link #scratch}, turning doubled quotes into single
+     * ones.
+     *
+     * @return Length of the field in bytes
+     */
+    private int extract(int field) {
+        int start = starts[field];
+        int length = ends[field] - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        if (!escaped[field]) {
+            return length;
+        }
+        int out = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = scratch[i];
+            scratch[out++] = b;
+            if (b == QUOTE) {
+                i++;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,475 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A flat file uploaded as a sequence of numbered chunks, readable while it is
+ * still arriving.
+ *
+ * Chunks must be appended in order. Each carries the SHA-256 of its bytes and
+ * is spooled to a temporary file, but only becomes visible to readers once it
+ * has been received in full and its checksum matches; a chunk cut short by a
+ * dropped connection or a checksum mismatch leaves nothing behind and can
+ * simply be sent again. Sending a chunk that was already accepted, with the
+ * same checksum, is a no-op, so a client that lost the response can resume
+ * from {@link #getNextChunk()} without knowing whether its last chunk arrived.
+ *
+ * Readers block until more chunks are accepted, and see the end of the
+ * stream once the upload is completed. As a {@link MultipartFile} the upload
+ * can be passed to the flat-file parsers in place of a regular multipart
+ * upload, so ingestion runs while the client is still sending. A reader that
+ * waits longer than the idle timeout for the next chunk aborts the upload.
+ */
+@Slf4j
+public class ChunkedUpload implements MultipartFile {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String id;
+    private final String fileName;
+    private final long declaredSize;
+    private final long maxChunkBytes;
+    private final long idleTimeoutMs;
+    private final Path spool;
+    private final FileChannel channel;
+    private final ReentrantLock writing = new ReentrantLock();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final List<String> chunkChecksums = new ArrayList<>();
+    private MessageDigest fileDigest = sha256();
+    private long bytesReceived;
+    private boolean complete;
+    private boolean closed;
+    private String failure;
+    private volatile long lastActivity = System.currentTimeMillis();
+    private volatile String jobId;
+
+    /**
+     * @param id            Upload identifier
+     * @param fileName      Name reported as the original file name
+     * @param declaredSize  Total size announced by the client, or -1 if unknown
+     * @param maxChunkBytes Largest chunk accepted
+     * @param idleTimeoutMs Time a reader waits for the next chunk before the
+     *                      upload is aborted
+     * @throws IOException if the spool file cannot be created
+     */
+    public ChunkedUpload(String id, String fileName, long declaredSize, long maxChunkBytes, long idleTimeoutMs)
+            throws IOException {
+        this.id = id;
+        this.fileName = fileName;
+        this.declaredSize = declaredSize;
+        this.maxChunkBytes = maxChunkBytes;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.spool = Files.createTempFile("temp_upload_", ".csv");
+        this.channel = FileChannel.open(spool, StandardOpenOption.WRITE);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    /**
+     * @return Index of the next chunk to send
+     */
+    public int getNextChunk() {
+        lock.lock();
+        try {
+            return chunkChecksums.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Bytes of all accepted chunks
+     */
+    public long getBytesReceived() {
+        lock.lock();
+        try {
+            return bytesReceived;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isComplete() {
+        lock.lock();
+        try {
+            return complete;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Why the upload was aborted, or null
+     */
+    public String getFailure() {
+        lock.lock();
+        try {
+            return failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * Receives one chunk from {@code body} and makes it visible to readers if
+     * it is complete and matches its checksum.
+     *
+     * @param index  Position of the chunk, starting at 0
+     * @param body   Chunk bytes
+     * @param sha256 Hex SHA-256 of the chunk bytes
+     * @return true if the chunk was appended, false if it had already been
+     * @throws IllegalArgumentException if the checksum does not match or the
+     *                                  chunk is too large
+     * @throws IllegalStateException    if the chunk is out of order, another
+     *                                  chunk is being received, or the upload
+     *                                  is complete or aborted
+     * @throws IOException              if the body cannot be read or spooled
+     */
+    public boolean append(int index, InputStream body, String sha256) throws IOException {
+        if (sha256 == null || sha256.isBlank()) {
+            throw new IllegalArgumentException("A SHA-256 checksum is required for every chunk");
+        }
+        if (!writing.tryLock()) {
+            throw new IllegalStateException("Another chunk of upload " + id + " is still being received");
+        }
+        try {
+            long position;
+            MessageDigest candidate;
+            lock.lock();
+            try {
+                checkNotAborted();
+                if (index < chunkChecksums.size()) {
+                    if (chunkChecksums.get(index).equalsIgnoreCase(sha256.trim())) {
+                        lastActivity = System.currentTimeMillis();
+                        return false;
+                    }
+                    throw new IllegalStateException("Chunk " + index
+                            + " was already received with a different checksum");
+                }
+                if (complete) {
+                    throw new IllegalStateException("Upload " + id + " is already complete");
+                }
+                if (index > chunkChecksums.size()) {
+                    throw new IllegalStateException("Expected chunk " + chunkChecksums.size() + ", got " + index);
+                }
+                position = bytesReceived;
+                candidate = copy(fileDigest);
+            } finally {
+                lock.unlock();
+            }
+
+            MessageDigest chunkDigest = sha256();
+            long length = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                length += n;
+                if (length > maxChunkBytes) {
+                    throw new IllegalArgumentException("Chunk " + index + " exceeds " + maxChunkBytes + " bytes");
+                }
+                chunkDigest.update(buffer, 0, n);
+                candidate.update(buffer, 0, n);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, n);
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+                lastActivity = System.currentTimeMillis();
+            }
+
+            String actual = HexFormat.of().formatHex(chunkDigest.digest());
+            if (!actual.equalsIgnoreCase(sha256.trim())) {
+                throw new IllegalArgumentException("Checksum mismatch for chunk " + index + ": expected " + sha256
+                        + ", received " + actual);
+            }
+
+            lock.lock();
+            try {
+                checkNotAborted();
+                chunkChecksums.add(actual);
+                bytesReceived += length;
+                fileDigest = candidate;
+                lastActivity = System.currentTimeMillis();
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            log.debug("Upload {}: accepted chunk {} ({} bytes)", id, index, length);
+            return true;
+        } finally {
+            writing.unlock();
+        }
+    }
+
+    /**
+     * Marks the upload complete, so readers reach the end of the stream.
+     *
+     * @param chunkCount Number of chunks the client sent
+     * @param sha256     Hex SHA-256 of the whole file, or null to skip the check
+     * @throws IllegalArgumentException if the whole-file checksum does not
+     *                                  match; the upload is aborted
+     * @throws IllegalStateException    if chunks are missing or the upload was
+     *                                  aborted
+     */
+    public void complete(int chunkCount, String sha256) {
+        lock.lock();
+        try {
+            checkNotAborted();
+            if (chunkCount != chunkChecksums.size()) {
+                throw new IllegalStateException("Received " + chunkChecksums.size() + " chunks, expected "
+                        + chunkCount);
+            }
+            if (complete) {
+                return;
+            }
+            if (sha256 != null && !sha256.isBlank()) {
+                String actual = HexFormat.of().formatHex(copy(fileDigest).digest());
+                if (!actual.equalsIgnoreCase(sha256.trim())) {
+                    abort("Checksum mismatch for the whole upload");
+                    throw new IllegalArgumentException("Checksum mismatch for upload " + id + ": expected " + sha256
+                            + ", received " + actual);
+                }
+            }
+            complete = true;
+            lastActivity = System.currentTimeMillis();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Upload {} complete: {} chunks, {} bytes", id, chunkCount, getBytesReceived());
+    }
+
+    /**
+     * Aborts an upload that is not complete yet; readers fail with the reason.
+     */
+    public void abort(String reason) {
+        lock.lock();
+        try {
+            if (complete || failure != null) {
+                return;
+            }
+            failure = reason;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        log.info("Upload {} aborted: {}", id, reason);
+    }
+
+    /**
+     * Aborts the upload if it is still open and deletes the spooled data.
+     */
+    public void close() {
+        abort("Upload closed");
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            log.warn("Failed to delete upload spool {}: {}", spool, e.getMessage());
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return fileName;
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/csv";
+    }
+
+    /**
+     * @return true only once the upload is complete without any data
+     */
+    @Override
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return complete && bytesReceived == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The size announced by the client, or -1 if unknown
+     */
+    @Override
+    public long getSize() {
+        return declaredSize;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        try (InputStream in = getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Opens a stream over the upload from its first byte; reads block until
+     * the next chunk is accepted or the upload completes.
+     */
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new UploadInputStream(FileChannel.open(spool, StandardOpenOption.READ));
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        try (InputStream in = getInputStream()) {
+            Files.copy(in, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void checkNotAborted() {
+        if (failure != null) {
+            throw new IllegalStateException("Upload " + id + " was aborted: " + failure);
+        }
+    }
+
+    /**
+     * Waits until bytes past {@code position} are accepted.
+     *
+     * @return Number of readable bytes after {@code position}, or 0 at the end
+     *         of a complete upload
+     */
+    private long awaitData(long position) throws IOException {
+        lock.lock();
+        try {
+            while (bytesReceived <= position && !complete) {
+                if (failure != null) {
+                    throw new IOException("Upload " + id + " was aborted: " + failure);
+                }
+                long idleMs = lastActivity + idleTimeoutMs - System.currentTimeMillis();
+                if (idleMs <= 0) {
+                    failure = "No chunk received for " + idleTimeoutMs + " ms";
+                    changed.signalAll();
+                    log.info("Upload {} aborted: {}", id, failure);
+                    continue;
+                }
+                changed.await(idleMs, TimeUnit.MILLISECONDS);
+            }
+            return bytesReceived - position;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for upload " + id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static MessageDigest copy(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("SHA-256 digests cannot be copied", e);
+        }
+    }
+
+    /**
+     * Reads accepted chunks from the spool file by position.
+     */
+    private final class UploadInputStream extends InputStream {
+        private final FileChannel in;
+        private long position;
+
+        UploadInputStream(FileChannel in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long available = awaitData(position);
+            if (available == 0) {
+                return -1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, available));
+            int n = in.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Upload " + id + " spool ended at byte " + position);
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps track of {@link ChunkedUpload}s between the requests that create,
+ * extend and complete them.
+ *
+ * The ingestion job reading an upload closes it when the job ends. Uploads
+ * that stop receiving chunks are aborted after the idle timeout, which fails
+ * their job, and closed uploads are forgotten once they have been idle for as
+ * long, so clients can still query the final state for a while.
+ */
+@Service
+@Slf4j
+public class ChunkedUploadService {
+
+    private final Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+
+    @Value("${ingestion.uploads.max-chunk-bytes:67108864}")
+    private long maxChunkBytes;
+
+    @Value("${ingestion.uploads.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+
+    /**
+     * Starts a new upload.
+     *
+     * @param fileName  Name of the file being uploaded, if known
+     * @param totalSize Total size announced by the client, or -1 if unknown
+     * @return The empty upload
+     * @throws IOException if the spool file cannot be created
+     */
+    public ChunkedUpload create(String fileName, long totalSize) throws IOException {
+        purgeIdleUploads();
+        String id = UUID.randomUUID().toString();
+        ChunkedUpload upload = new ChunkedUpload(id, fileName != null ? fileName : "upload-" + id + ".csv",
+                totalSize, maxChunkBytes, idleTimeoutMs);
+        uploads.put(id, upload);
+        log.info("Started chunked upload {} ({} bytes announced)", id, totalSize);
+        return upload;
+    }
+
+    /**
+     * @param uploadId Upload identifier
+     * @return The upload, or empty if no such upload exists
+     */
+    public Optional<ChunkedUpload> get(String uploadId) {
+        return Optional.ofNullable(uploads.get(uploadId));
+    }
+
+    /**
+     * Aborts and forgets an upload, deleting its data.
+     *
+     * @param uploadId Upload identifier
+     * @return The removed upload, or empty if no such upload exists
+     */
+    public Optional<ChunkedUpload> remove(String uploadId) {
+        ChunkedUpload upload = uploads.remove(uploadId);
+        if (upload != null) {
+            upload.close();
+        }
+        return Optional.ofNullable(upload);
+    }
+
+    private void purgeIdleUploads() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        uploads.values().removeIf(upload -> {
+            if (upload.getLastActivity() > cutoff) {
+                return false;
+            }
+            if (!upload.isClosed()) {
+                // Fails the job reading it, which then closes the upload
+                upload.abort("No chunk received for " + idleTimeoutMs + " ms");
+                return false;
+            }
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploads.values().forEach(ChunkedUpload::close);
+    }
+}
@@ -0,0 +1,353 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.piyush.clickhousefileintegration.model.ClickHouseConfig;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pool of reusable ClickHouse JDBC connections, keyed by connection identity.
+ *
+ * Connections handed out by {@link #acquire(ClickHouseConfig)} are proxies:
+ * calling {@code close()} returns the underlying connection to the pool
+ * instead of closing it, so existing try-with-resources call sites keep
+ * working unchanged. Each key has its own upper bound on open connections,
+ * and idle connections are closed by a background evictor once they exceed
+ * the idle timeout.
+ */
+@Component
+@Slf4j
+public class ClickHouseConnectionPool {
+
+    private final Map<PoolKey, KeyedPool> pools = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long acquireTimeoutMs;
+
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger idleConnections = new AtomicInteger();
+    private final AtomicInteger pendingAcquires = new AtomicInteger();
+
+    private final Timer acquireTimer;
+    private final Counter saturatedCounter;
+    private final Counter createdCounter;
+    private final Counter evictedCounter;
+
+    public ClickHouseConnectionPool(MeterRegistry meterRegistry,
+            @Value("${clickhouse.pool.max-size:8}") int maxSize,
+            @Value("${clickhouse.pool.idle-timeout-ms:300000}") long idleTimeoutMs,
+            @Value("${clickhouse.pool.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+            @Value("${clickhouse.pool.eviction-interval-ms:30000}") long evictionIntervalMs) {
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+
+        this.acquireTimer = Timer.builder("clickhouse.pool.acquire")
+                .description("Time spent waiting for a pooled ClickHouse connection")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.saturatedCounter = Counter.builder("clickhouse.pool.saturated")
+                .description("Acquires that found every connection for their key in use")
+                .register(meterRegistry);
+        this.createdCounter = Counter.builder("clickhouse.pool.created")
+                .description("Physical ClickHouse connections opened")
+                .register(meterRegistry);
+        this.evictedCounter = Counter.builder("clickhouse.pool.evicted")
+                .description("Idle ClickHouse connections closed by the evictor")
+                .register(meterRegistry);
+        Gauge.builder("clickhouse.pool.active", activeConnections, AtomicInteger::get)
+                .description("Pooled connections currently borrowed")
+                .register(meterRegistry);
+        Gauge.builder("clickhouse.pool.idle", idleConnections, AtomicInteger::get)
+                .description("Pooled connections currently idle")
+                .register(meterRegistry);
+        Gauge.builder("clickhouse.pool.pending", pendingAcquires, AtomicInteger::get)
+                .description("Callers blocked waiting for a connection")
+                .register(meterRegistry);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "clickhouse-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.evictor.scheduleWithFixedDelay(this::evictIdleConnections,
+                evictionIntervalMs, evictionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return Maximum number of open connections per connection identity
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Borrows a connection for the given configuration, opening a new one if no
+     * idle connection is available and the key is below its maximum size.
+     *
+     * @param config ClickHouse Connection Configuration
+     * @return Connection whose close() returns it to the pool
+     * @throws SQLException if no connection becomes available within the acquire
+     *                      timeout, or a new connection cannot be opened
+     */
+    public Connection acquire(ClickHouseConfig config) throws SQLException {
+        long start = System.nanoTime();
+        KeyedPool pool = pools.computeIfAbsent(PoolKey.of(config), key -> new KeyedPool(maxSize));
+
+        acquirePermit(pool);
+        Connection connection = checkOut(config, pool);
+        acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return connection;
+    }
+
+    /**
+     * Borrows up to {@code count} connections without waiting for any: only
+     * connections that are free right now, with no other caller queued for
+     * them, are taken. A caller that already holds a connection fans out with
+     * these instead of {@link #acquire}, so it never blocks on connections
+     * held by other callers doing the same.
+     *
+     * @param config ClickHouse Connection Configuration
+     * @param count  Maximum number of connections to borrow
+     * @return Between 0 and count connections whose close() returns them to
+     *         the pool
+     * @throws SQLException if a new connection cannot be opened
+     */
+    public List<Connection> tryAcquire(ClickHouseConfig config, int count) throws SQLException {
+        KeyedPool pool = pools.computeIfAbsent(PoolKey.of(config), key -> new KeyedPool(maxSize));
+        List<Connection> connections = new ArrayList<>();
+        try {
+            // A zero timeout honours the fair ordering, unlike tryAcquire()
+            while (connections.size() < count && pool.permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                connections.add(checkOut(config, pool));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            connections.forEach(this::closeQuietly);
+            throw new SQLException("Interrupted while reserving ClickHouse connections", e);
+        } catch (SQLException | RuntimeException e) {
+            connections.forEach(this::closeQuietly);
+            throw e;
+        }
+        return connections;
+    }
+
+    /**
+     * Hands out an idle connection of the pool, or opens a new one, for a
+     * permit the caller already holds. The permit is released if that fails.
+     */
+    private Connection checkOut(ClickHouseConfig config, KeyedPool pool) throws SQLException {
+        Connection physical = null;
+        try {
+            IdleConnection idle;
+            while (physical == null && (idle = pool.idle.pollFirst()) != null) {
+                idleConnections.decrementAndGet();
+                if (idle.connection.isClosed()) {
+                    continue;
+                }
+                physical = idle.connection;
+            }
+
+            if (physical == null) {
+                physical = open(config);
+                createdCounter.increment();
+            }
+        } catch (SQLException | RuntimeException e) {
+            pool.permits.release();
+            throw e;
+        }
+
+        activeConnections.incrementAndGet();
+        return wrap(physical, pool);
+    }
+
+    private void acquirePermit(KeyedPool pool) throws SQLException {
+        if (pool.permits.tryAcquire()) {
+            return;
+        }
+
+        saturatedCounter.increment();
+        pendingAcquires.incrementAndGet();
+        try {
+            if (!pool.permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + acquireTimeoutMs
+                        + " ms waiting for a ClickHouse connection (pool max size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a ClickHouse connection", e);
+        } finally {
+            pendingAcquires.decrementAndGet();
+        }
+    }
+
+    private Connection open(ClickHouseConfig config) throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", config.getUser());
+
+        if (config.getJwtToken() != null && !config.getJwtToken().isEmpty()) {
+            props.setProperty("password", config.getJwtToken());
+            props.setProperty("ssl", String.valueOf(config.isSecure()));
+            props.setProperty("use_client_time_zone", "true");
+        }
+
+        log.info("Attempting ClickHouse connection with user: {}", config.getUser());
+        return DriverManager.getConnection(config.getJdbcUrl(), props);
+    }
+
+    private void release(KeyedPool pool, Connection physical) {
+        activeConnections.decrementAndGet();
+        try {
+            if (physical.isClosed()) {
+                return;
+            }
+            pool.idle.offerFirst(new IdleConnection(physical, System.currentTimeMillis()));
+            idleConnections.incrementAndGet();
+        } catch (SQLException e) {
+            log.warn("Discarding ClickHouse connection that failed its state check: {}", e.getMessage());
+            closeQuietly(physical);
+        } finally {
+            pool.permits.release();
+        }
+    }
+
+    private Connection wrap(Connection physical, KeyedPool pool) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            release(pool, physical);
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        if (closed && !"toString".equals(method.getName())) {
+                            throw new SQLException("Connection has already been returned to the pool");
+                        }
+                }
+
+                try {
+                    return method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            }
+        };
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, handler);
+    }
+
+    /**
+     * Closes idle connections that have not been borrowed within the idle
+     * timeout.
+     */
+    void evictIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        for (KeyedPool pool : pools.values()) {
+            Iterator<IdleConnection> iterator = pool.idle.descendingIterator();
+            while (iterator.hasNext()) {
+                IdleConnection idle = iterator.next();
+                if (idle.idleSince < cutoff && pool.idle.removeFirstOccurrence(idle)) {
+                    idleConnections.decrementAndGet();
+                    evictedCounter.increment();
+                    closeQuietly(idle.connection);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        evictor.shutdownNow();
+        for (KeyedPool pool : pools.values()) {
+            IdleConnection idle;
+            while ((idle = pool.idle.pollFirst()) != null) {
+                idleConnections.decrementAndGet();
+                closeQuietly(idle.connection);
+            }
+        }
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Error closing ClickHouse connection: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Connection identity. The credential is part of the key so that a
+     * connection authenticated with one token is never handed to a request
+     * carrying another.
+     */
+    private record PoolKey(String host, int port, String database, String user, boolean secure,
+            String credential, String jdbcUrl) {
+
+        static PoolKey of(ClickHouseConfig config) {
+            // The JDBC URL carries connection options such as compression
+            return new PoolKey(config.getHost(), config.getPort(), config.getDatabase(), config.getUser(),
+                    config.isSecure(), Objects.toString(config.getJwtToken(), ""), config.getJdbcUrl());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%s:%d/%s", user, host, port, database);
+        }
+    }
+
+    private static final class KeyedPool {
+        final Semaphore permits;
+        final Deque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+
+        KeyedPool(int maxSize) {
+            this.permits = new Semaphore(maxSize, true);
+        }
+    }
+
+    private record IdleConnection(Connection connection, long idleSince) {
+    }
+}
@@ -0,0 +1,283 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.piyush.clickhousefileintegration.model.ClickHouseConfig;
+import com.piyush.clickhousefileintegration.model.ColumnMetadata;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache of ClickHouse table lists and table schemas, keyed by connection
+ * identity plus table name.
+ *
+ * Entries are served for up to the TTL after they were loaded and the cache
+ * holds at most a fixed number of them, evicting the least recently used.
+ * Creating a table through {@link #invalidate} drops the table list and the
+ * table's schema so the next request sees it. Optionally, a background task
+ * reloads the metadata of every connection used within the TTL with a single
+ * bulk query ({@link ClickHouseService#getTableSchemas}), which keeps those
+ * entries fresh and fills in the schemas of tables not looked at yet.
+ *
+ * Lookups are counted in {@code clickhouse.metadata.cache.requests}, tagged
+ * by kind ("tables" or "schema") and result ("hit" or "miss").
+ */
+@Component
+@Slf4j
+public class ClickHouseMetadataCache {
+
+    private final ClickHouseService clickHouseService;
+
+    private final long ttlMs;
+    private final int maxEntries;
+
+    /** Access-ordered, guarded by itself */
+    private final LinkedHashMap<EntryKey, Entry> entries;
+
+    /** Last configuration and use of every connection seen, for background refresh */
+    private final Map<ConnectionKey, Source> sources = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService refresher;
+
+    private final Counter tableHits;
+    private final Counter tableMisses;
+    private final Counter schemaHits;
+    private final Counter schemaMisses;
+    private final Counter evictedCounter;
+    private final Timer refreshTimer;
+
+    public ClickHouseMetadataCache(ClickHouseService clickHouseService, MeterRegistry meterRegistry,
+            @Value("${clickhouse.metadata.cache.ttl-ms:60000}") long ttlMs,
+            @Value("${clickhouse.metadata.cache.max-entries:10000}") int maxEntries,
+            @Value("${clickhouse.metadata.cache.refresh-interval-ms:0}") long refreshIntervalMs) {
+        this.clickHouseService = clickHouseService;
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<EntryKey, Entry> eldest) {
+                if (size() > ClickHouseMetadataCache.this.maxEntries) {
+                    evictedCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.tableHits = requestCounter(meterRegistry, "tables", "hit");
+        this.tableMisses = requestCounter(meterRegistry, "tables", "miss");
+        this.schemaHits = requestCounter(meterRegistry, "schema", "hit");
+        this.schemaMisses = requestCounter(meterRegistry, "schema", "miss");
+        this.evictedCounter = Counter.builder("clickhouse.metadata.cache.evicted")
+                .description("Metadata cache entries dropped to stay within the size bound")
+                .register(meterRegistry);
+        this.refreshTimer = Timer.builder("clickhouse.metadata.cache.refresh")
+                .description("Time spent reloading the metadata of one connection in the background")
+                .register(meterRegistry);
+        Gauge.builder("clickhouse.metadata.cache.size", this, ClickHouseMetadataCache::size)
+                .description("Table lists and schemas currently cached")
+                .register(meterRegistry);
+
+        if (refreshIntervalMs > 0 && ttlMs > 0) {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "clickhouse-metadata-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.refresher = null;
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String kind, String result) {
+        return Counter.builder("clickhouse.metadata.cache.requests")
+                .description("Metadata lookups answered from the cache (hit) or by ClickHouse (miss)")
+                .tag("kind", kind)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lists the tables of the configured database.
+     *
+     * @param config ClickHouse configuration
+     * @return List of table names
+     * @throws SQLException if the tables are not cached and the query fails
+     */
+    public List<String> getTables(ClickHouseConfig config) throws SQLException {
+        ConnectionKey connectionKey = use(config);
+        EntryKey key = new EntryKey(connectionKey, null);
+        Entry cached = lookup(key);
+        if (cached != null) {
+            tableHits.increment();
+            return cached.tables;
+        }
+
+        tableMisses.increment();
+        List<String> tables;
+        try (Connection connection = clickHouseService.connect(config)) {
+            tables = List.copyOf(clickHouseService.getTables(connection));
+        }
+        store(key, new Entry(tables, null, System.currentTimeMillis()));
+        return tables;
+    }
+
+    /**
+     * Describes a table of the configured database.
+     *
+     * @param config    ClickHouse configuration
+     * @param tableName Table name
+     * @return List of column metadata, owned by the caller
+     * @throws SQLException if the schema is not cached and the query fails
+     */
+    public List<ColumnMetadata> getTableSchema(ClickHouseConfig config, String tableName) throws SQLException {
+        ConnectionKey connectionKey = use(config);
+        EntryKey key = new EntryKey(connectionKey, tableName);
+        Entry cached = lookup(key);
+        if (cached != null) {
+            schemaHits.increment();
+            return copy(cached.columns);
+        }
+
+        schemaMisses.increment();
+        List<ColumnMetadata> columns;
+        try (Connection connection = clickHouseService.connect(config)) {
+            columns = clickHouseService.getTableSchema(connection, tableName);
+        }
+        store(key, new Entry(null, copy(columns), System.currentTimeMillis()));
+        return columns;
+    }
+
+    /**
+     * Drops the table list of a connection and the schema of one of its
+     * tables, e.g. after the table was created.
+     *
+     * @param config    ClickHouse configuration
+     * @param tableName Table that changed
+     */
+    public void invalidate(ClickHouseConfig config, String tableName) {
+        ConnectionKey connectionKey = ConnectionKey.of(config);
+        synchronized (entries) {
+            entries.remove(new EntryKey(connectionKey, null));
+            entries.remove(new EntryKey(connectionKey, tableName));
+        }
+    }
+
+    /**
+     * @return Number of table lists and schemas currently cached
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private ConnectionKey use(ClickHouseConfig config) {
+        ConnectionKey key = ConnectionKey.of(config);
+        if (refresher != null) {
+            sources.put(key, new Source(config, System.currentTimeMillis()));
+        }
+        return key;
+    }
+
+    private Entry lookup(EntryKey key) {
+        if (ttlMs <= 0) {
+            return null;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.loadedAt < System.currentTimeMillis() - ttlMs) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void store(EntryKey key, Entry entry) {
+        if (ttlMs <= 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Reloads the metadata of every connection used within the TTL and
+     * forgets the others.
+     */
+    void refresh() {
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        sources.entrySet().removeIf(source -> source.getValue().lastUsed < cutoff);
+        for (Map.Entry<ConnectionKey, Source> source : sources.entrySet()) {
+            long start = System.nanoTime();
+            Map<String, List<ColumnMetadata>> schemas;
+            try (Connection connection = clickHouseService.connect(source.getValue().config)) {
+                schemas = clickHouseService.getTableSchemas(connection);
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Could not refresh ClickHouse metadata for {}: {}", source.getKey(), e.getMessage());
+                continue;
+            }
+
+            long loadedAt = System.currentTimeMillis();
+            synchronized (entries) {
+                for (Map.Entry<String, List<ColumnMetadata>> schema : schemas.entrySet()) {
+                    entries.put(new EntryKey(source.getKey(), schema.getKey()),
+                            new Entry(null, schema.getValue(), loadedAt));
+                }
+                // Stored last, so that it is the last to be evicted if the schemas overflow the cache
+                entries.put(new EntryKey(source.getKey(), null),
+                        new Entry(List.copyOf(schemas.keySet()), null, loadedAt));
+            }
+            refreshTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.debug("Refreshed ClickHouse metadata for {}: {} tables", source.getKey(), schemas.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private static List<ColumnMetadata> copy(List<ColumnMetadata> columns) {
+        List<ColumnMetadata> copy = new ArrayList<>(columns.size());
+        for (ColumnMetadata column : columns) {
+            copy.add(new ColumnMetadata(column.getName(), column.getType()));
+        }
+        return copy;
+    }
+
+    /**
+     * A table list when {@code table} is null, otherwise a table schema.
+     */
+    private record EntryKey(ConnectionKey connection, String table) {
+    }
+
+    private record Entry(List<String> tables, List<ColumnMetadata> columns, long loadedAt) {
+    }
+
+    private record Source(ClickHouseConfig config, long lastUsed) {
+    }
+}
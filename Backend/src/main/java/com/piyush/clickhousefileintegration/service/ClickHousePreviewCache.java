@@ -0,0 +1,167 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.piyush.clickhousefileintegration.model.ClickHouseConfig;
+import com.piyush.clickhousefileintegration.model.ColumnMetadata;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Short-lived cache of ClickHouse preview results, keyed by connection
+ * identity, table, join and row limit.
+ *
+ * Each entry remembers the columns it was loaded with. A preview of a subset
+ * of those columns, e.g. after deselecting one in the UI, is answered from
+ * the entry by dropping the other columns from its rows; a preview that adds
+ * a column is loaded again and replaces the entry. Previews read arbitrary
+ * rows (LIMIT without ORDER BY), so rows from the cache are as valid an
+ * answer as those of a new query.
+ *
+ * Entries expire after the TTL, at most a fixed number of them is kept, and
+ * {@link #invalidate} drops those reading a table that was written to.
+ * Lookups are counted in {@code clickhouse.preview.cache.requests}, tagged by
+ * result ("hit" or "miss").
+ */
+@Component
+public class ClickHousePreviewCache {
+
+    /**
+     * Runs the preview query on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<Map<String, Object>> load() throws SQLException;
+    }
+
+    private final long ttlMs;
+    private final int maxEntries;
+
+    /** Access-ordered, guarded by itself */
+    private final LinkedHashMap<PreviewKey, Entry> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ClickHousePreviewCache(MeterRegistry meterRegistry,
+            @Value("${clickhouse.preview.cache.ttl-ms:30000}") long ttlMs,
+            @Value("${clickhouse.preview.cache.max-entries:256}") int maxEntries) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PreviewKey, Entry> eldest) {
+                return size() > ClickHousePreviewCache.this.maxEntries;
+            }
+        };
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("clickhouse.preview.cache.requests")
+                .description("Previews answered from the cache (hit) or by ClickHouse (miss)")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the preview rows for the selected columns, from the cache if an
+     * entry covers them.
+     *
+     * @param config           ClickHouse configuration
+     * @param mainTable        Table to preview
+     * @param additionalTables Tables joined to it, or null
+     * @param joinCondition    JOIN condition, or null
+     * @param columns          Columns of which the selected ones are previewed
+     * @param limit            Maximum number of rows
+     * @param loader           Runs the preview query on a miss
+     * @return Rows owned by the caller
+     * @throws SQLException if the loader fails
+     */
+    public List<Map<String, Object>> get(ClickHouseConfig config, String mainTable, List<String> additionalTables,
+            String joinCondition, List<ColumnMetadata> columns, int limit, Loader loader) throws SQLException {
+        Set<String> selected = new LinkedHashSet<>();
+        for (ColumnMetadata column : columns) {
+            if (column.isSelected()) {
+                selected.add(column.getName());
+            }
+        }
+        if (ttlMs <= 0 || selected.isEmpty()) {
+            return loader.load();
+        }
+
+        PreviewKey key = new PreviewKey(ConnectionKey.of(config), mainTable,
+                additionalTables != null ? List.copyOf(additionalTables) : List.of(),
+                joinCondition != null ? joinCondition : "", limit);
+        Entry cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+            if (cached != null && cached.loadedAt < System.currentTimeMillis() - ttlMs) {
+                entries.remove(key);
+                cached = null;
+            }
+        }
+        if (cached != null && cached.columns.containsAll(selected)) {
+            hits.increment();
+            return project(cached.rows, selected);
+        }
+
+        misses.increment();
+        List<Map<String, Object>> rows = loader.load();
+        synchronized (entries) {
+            entries.put(key, new Entry(selected, rows, System.currentTimeMillis()));
+        }
+        return project(rows, selected);
+    }
+
+    /**
+     * Drops the previews that read a table, e.g. after rows were inserted
+     * into it.
+     *
+     * @param config    ClickHouse configuration
+     * @param tableName Table that changed
+     */
+    public void invalidate(ClickHouseConfig config, String tableName) {
+        ConnectionKey connectionKey = ConnectionKey.of(config);
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.connection.equals(connectionKey)
+                    && (key.mainTable.equals(tableName) || key.additionalTables.contains(tableName)));
+        }
+    }
+
+    /**
+     * Copies the rows, keeping only the given columns.
+     */
+    private static List<Map<String, Object>> project(List<Map<String, Object>> rows, Set<String> columns) {
+        List<Map<String, Object>> projected = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> copy = new HashMap<>();
+            for (Map.Entry<String, Object> field : row.entrySet()) {
+                if (columns.contains(field.getKey())) {
+                    copy.put(field.getKey(), field.getValue());
+                }
+            }
+            projected.add(copy);
+        }
+        return projected;
+    }
+
+    private record PreviewKey(ConnectionKey connection, String mainTable, List<String> additionalTables,
+            String joinCondition, int limit) {
+    }
+
+    private record Entry(Set<String> columns, List<Map<String, Object>> rows, long loadedAt) {
+    }
+}
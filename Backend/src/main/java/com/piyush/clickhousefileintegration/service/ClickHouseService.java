@@ -1,50 +1,123 @@
 package com.piyush.clickhousefileintegration.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.piyush.clickhousefileintegration.model.ClickHouseConfig;
 import com.piyush.clickhousefileintegration.model.ColumnMetadata;
+import com.piyush.clickhousefileintegration.model.ExportSplit;
+import com.piyush.clickhousefileintegration.service.IngestionMetrics.Stage;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class ClickHouseService {
 
+    private static final int HTTP_CHUNK_SIZE = 64 * 1024;
+    private static final int HTTP_READ_TIMEOUT_MS = 10 * 60 * 1000;
+    private static final Pattern SUMMARY_RESULT_ROWS = Pattern.compile("\"result_rows\":\"?(\\d+)");
+
+    private final ClickHouseConnectionPool connectionPool;
+    private final IngestionMetrics metrics;
+
+    @Value("${clickhouse.insert.batch.target-bytes:16777216}")
+    private long batchTargetBytes;
+
+    @Value("${clickhouse.insert.batch.min-rows:1000}")
+    private int batchMinRows;
+
+    @Value("${clickhouse.insert.batch.max-rows:1000000}")
+    private int batchMaxRows;
+
+    @Value("${clickhouse.insert.batch.target-latency-ms:1000}")
+    private long batchTargetLatencyMs;
+
+    @Value("${clickhouse.preview.sample:0}")
+    private double previewSample;
+
+    @Value("${clickhouse.preview.max-threads:0}")
+    private int previewMaxThreads;
+
+    @Value("${clickhouse.preview.cache.ttl-ms:30000}")
+    private long unsampledTtlMs;
+
+    @Value("${clickhouse.preview.cache.max-entries:256}")
+    private int unsampledMaxEntries;
+
+    /**
+     * Tables that rejected SAMPLE, with the time they did, previewed without
+     * it until the preview cache TTL has passed. Access-ordered, guarded by
+     * itself.
+     */
+    private final LinkedHashMap<UnsampledTable, Long> unsampledTables = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UnsampledTable, Long> eldest) {
+            return size() > unsampledMaxEntries;
+        }
+    };
+
     /**
-     * Establishes a connectin to ClickHouse using provided configuration
+     * Borrows a connection to ClickHouse using provided configuration.
+     *
+     * Connections are pooled per host/port/database/user; closing the returned
+     * connection hands it back to the pool for reuse.
      * 
      * @param config ClickHouse Connection Configuration
      * @return Connection object
      * @throws SQLException if connection fails
      */
     public Connection connect(ClickHouseConfig config) throws SQLException {
-        Properties props = new Properties();
-        props.setProperty("user", config.getUser());
+        return connectionPool.acquire(config);
+    }
 
-        if (config.getJwtToken() != null && !config.getJwtToken().isEmpty()) {
-            props.setProperty("password", config.getJwtToken());
-            props.setProperty("ssl", String.valueOf(config.isSecure()));
-            props.setProperty("use_client_time_zone", "true");
-        }
+    /**
+     * Borrows up to {@code count} additional connections that are free right
+     * now, without waiting, e.g. for the workers of a parallel transfer whose
+     * caller already holds a connection.
+     *
+     * @return Between 0 and count connections; each must be closed
+     * @see ClickHouseConnectionPool#tryAcquire(ClickHouseConfig, int)
+     */
+    public List<Connection> tryConnect(ClickHouseConfig config, int count) throws SQLException {
+        return connectionPool.tryAcquire(config, count);
+    }
 
-        log.info("Attempting ClickHouse connection with user: {}", config.getUser());
-        return DriverManager.getConnection(config.getJdbcUrl(), props);
+    /**
+     * @return Maximum number of concurrent connections to a single ClickHouse
+     *         endpoint
+     */
+    public int getMaxConnectionsPerEndpoint() {
+        return connectionPool.getMaxSize();
     }
 
     /**
@@ -93,9 +166,281 @@ public class ClickHouseService {
         return columns;
     }
 
+    /**
+     * Retrieves the tables of the current database together with their
+     * columns, in one query over {@code system.tables} and
+     * {@code system.columns} instead of {@code SHOW TABLES} plus one
+     * {@code DESCRIBE TABLE} per table.
+     *
+     * @param connection ClickHouse connection
+     * @return Column metadata by table name, with tables in name order
+     * @throws SQLException if query fails
+     */
+    public Map<String, List<ColumnMetadata>> getTableSchemas(Connection connection) throws SQLException {
+        Map<String, List<ColumnMetadata>> schemas = new LinkedHashMap<>();
+
+        String query = "SELECT t.name, c.name, c.type FROM system.tables AS t"
+                + " LEFT JOIN system.columns AS c ON c.database = t.database AND c.table = t.name"
+                + " WHERE t.database = currentDatabase() AND NOT t.is_temporary"
+                + " ORDER BY t.name, c.position";
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
+
+            while (rs.next()) {
+                List<ColumnMetadata> columns = schemas.computeIfAbsent(rs.getString(1), table -> new ArrayList<>());
+                String columnName = rs.getString(2);
+                // Without join_use_nulls, tables without columns join to empty strings
+                if (columnName != null && !columnName.isEmpty()) {
+                    columns.add(new ColumnMetadata(columnName, rs.getString(3)));
+                }
+            }
+        }
+
+        return schemas;
+    }
+
+    /**
+     * Counts the rows of a table. For MergeTree tables this is answered from
+     * part metadata without scanning data.
+     *
+     * @param connection ClickHouse connection
+     * @param tableName  Table name
+     * @return Number of rows in the table
+     * @throws SQLException if query fails
+     */
+    public long countRows(Connection connection, String tableName) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT count() FROM " + tableName)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Divides a table into splits for a parallel export: WHERE predicates
+     * that together select every row exactly once, see {@link ExportSplit}.
+     *
+     * Partition splits also pick up partitions created after planning, and
+     * key-range splits send NULL and NaN keys to the first split. Tables that
+     * cannot be split with the requested strategy fall back to the next one,
+     * down to hash splits, which always apply but make every split scan the
+     * selected columns of the whole table.
+     *
+     * @param connection ClickHouse connection
+     * @param tableName  Table name
+     * @param columns    Columns being exported, hashed by hash splits
+     * @param strategy   How to split the table
+     * @param count      Desired number of splits
+     * @return Predicates, one per split; fewer than requested if the table has
+     *         fewer partitions or distinct key quantiles
+     * @throws SQLException if the table metadata cannot be queried
+     */
+    public List<String> planExportSplits(Connection connection, String tableName, List<ColumnMetadata> columns,
+            ExportSplit strategy, int count) throws SQLException {
+        if (count < 2) {
+            return List.of("1");
+        }
+
+        if (strategy == ExportSplit.AUTO || strategy == ExportSplit.PARTITION) {
+            List<String> splits = partitionSplits(connection, tableName, count);
+            if (splits.size() >= (strategy == ExportSplit.AUTO ? count : 2)) {
+                log.info("Exporting {} in {} partition splits", tableName, splits.size());
+                return splits;
+            }
+        }
+        if (strategy != ExportSplit.HASH) {
+            List<String> splits = keyRangeSplits(connection, tableName, count);
+            if (splits.size() >= 2) {
+                log.info("Exporting {} in {} key range splits", tableName, splits.size());
+                return splits;
+            }
+        }
+
+        String hashed = columns.stream()
+                .filter(ColumnMetadata::isSelected)
+                .map(column -> "`" + column.getName() + "`")
+                .collect(Collectors.joining(", "));
+        // cityHash64 is NULL if any argument is, which no split would select; the text of the tuple never is
+        log.info("Exporting {} in {} hash splits", tableName, count);
+        return IntStream.range(0, count)
+                .mapToObj(i -> "cityHash64(toString(tuple(" + hashed + "))) % " + count + " = " + i)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Groups the active partitions of a table into at most {@code count}
+     * splits of similar row counts, largest partitions first.
+     */
+    private List<String> partitionSplits(Connection connection, String tableName, int count) throws SQLException {
+        List<String> partitions = new ArrayList<>();
+        List<Long> rows = new ArrayList<>();
+        try (PreparedStatement stmt = systemTableQuery(connection,
+                "SELECT partition_id, sum(rows) AS part_rows FROM system.parts WHERE active AND %s AND table = ?"
+                        + " GROUP BY partition_id ORDER BY part_rows DESC",
+                tableName);
+                ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                partitions.add(rs.getString(1));
+                rows.add(rs.getLong(2));
+            }
+        }
+        if (partitions.size() < 2) {
+            return List.of();
+        }
+
+        int splitCount = Math.min(count, partitions.size());
+        List<List<String>> groups = new ArrayList<>();
+        long[] groupRows = new long[splitCount];
+        for (int i = 0; i < splitCount; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (int p = 0; p < partitions.size(); p++) {
+            int smallest = 0;
+            for (int g = 1; g < splitCount; g++) {
+                if (groupRows[g] < groupRows[smallest]) {
+                    smallest = g;
+                }
+            }
+            groups.get(smallest).add(quote(partitions.get(p)));
+            groupRows[smallest] += rows.get(p);
+        }
+
+        String known = partitions.stream().map(ClickHouseService::quote).collect(Collectors.joining(", "));
+        List<String> splits = new ArrayList<>();
+        for (List<String> group : groups) {
+            splits.add("_partition_id IN (" + String.join(", ", group) + ")");
+        }
+        splits.set(0, splits.get(0) + " OR _partition_id NOT IN (" + known + ")");
+        return splits;
+    }
+
+    /**
+     * Cuts the first sorting key column of a table at its quantiles. Only
+     * numeric, date and time keys have quantiles; other tables get no splits.
+     */
+    private List<String> keyRangeSplits(Connection connection, String tableName, int count) throws SQLException {
+        String sortingKey = "";
+        try (PreparedStatement stmt = systemTableQuery(connection,
+                "SELECT sorting_key FROM system.tables WHERE %s AND name = ?", tableName);
+                ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                sortingKey = rs.getString(1);
+            }
+        }
+        String key = firstExpression(sortingKey);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        String levels = IntStream.range(1, count)
+                .mapToObj(i -> String.valueOf((double) i / count))
+                .collect(Collectors.joining(", "));
+        Set<String> boundaries = new LinkedHashSet<>();
+        String query = "SELECT arrayJoin(quantiles(" + levels + ")(" + key + ")) FROM " + tableName;
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                String value = rs.getString(1);
+                if (value != null && !isNonFinite(value)) {
+                    boundaries.add(literal(value));
+                }
+            }
+        } catch (SQLException e) {
+            log.info("Cannot split {} by ranges of {}: {}", tableName, key, e.getMessage());
+            return List.of();
+        }
+        if (boundaries.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> bounds = new ArrayList<>(boundaries);
+        List<String> splits = new ArrayList<>();
+        splits.add("NOT ifNull(" + key + " >= " + bounds.get(0) + ", 0)");
+        for (int i = 1; i < bounds.size(); i++) {
+            splits.add("ifNull(" + key + " >= " + bounds.get(i - 1) + " AND " + key + " < " + bounds.get(i) + ", 0)");
+        }
+        splits.add("ifNull(" + key + " >= " + bounds.get(bounds.size() - 1) + ", 0)");
+        return splits;
+    }
+
+    /**
+     * Recognises the text forms of NaN and infinite float quantiles, as
+     * rendered by ClickHouse ({@code nan}, {@code -inf}) or by the driver
+     * ({@code NaN}, {@code -Infinity}), which cannot serve as split
+     * boundaries.
+     */
+    private static boolean isNonFinite(String value) {
+        String magnitude = value.startsWith("-") || value.startsWith("+") ? value.substring(1) : value;
+        return magnitude.equalsIgnoreCase("nan") || magnitude.equalsIgnoreCase("inf")
+                || magnitude.equalsIgnoreCase("infinity");
+    }
+
+    /**
+     * Prepares a query on a system table whose {@code %s} is replaced by the
+     * condition on the database of {@code tableName}, which may be qualified.
+     */
+    private static PreparedStatement systemTableQuery(Connection connection, String query, String tableName)
+            throws SQLException {
+        int dot = tableName.indexOf('.');
+        String database = dot >= 0 ? tableName.substring(0, dot) : null;
+        String table = dot >= 0 ? tableName.substring(dot + 1) : tableName;
+        PreparedStatement stmt = connection.prepareStatement(
+                String.format(query, database != null ? "database = ?" : "database = currentDatabase()"));
+        int index = 1;
+        if (database != null) {
+            stmt.setString(index++, database);
+        }
+        stmt.setString(index, table);
+        return stmt;
+    }
+
+    /**
+     * @return The first top-level expression of a comma-separated key
+     */
+    private static String firstExpression(String key) {
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && (c == '(' || c == '[')) {
+                depth++;
+            } else if (!quoted && (c == ')' || c == ']')) {
+                depth--;
+            } else if (!quoted && c == ',' && depth == 0) {
+                return key.substring(0, i).trim();
+            }
+        }
+        return key.trim();
+    }
+
+    /**
+     * @return The value as a numeric literal if it is a number, else as a
+     *         string literal
+     */
+    private static String literal(String value) {
+        try {
+            Double.parseDouble(value);
+            return value;
+        } catch (NumberFormatException e) {
+            return quote(value);
+        }
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+
     /**
      * Executes a query to fetch data from ClickHouse
      *
+     * With {@code clickhouse.preview.sample} set, rows are read from that
+     * fraction of the table ({@code SAMPLE}) if it has a sampling key, and
+     * {@code clickhouse.preview.max-threads} caps the threads the query may
+     * use, which keeps previews of very large tables and views quick.
+     *
+     * @param config     ClickHouse configuration, identifying the tables
+     *                   known not to support SAMPLE
      * @param connection ClickHouse connection
      * @param tableName  Table name
      * @param columns    List of columns to fetch
@@ -103,7 +448,7 @@ public class ClickHouseService {
      * @return List of maps representing rows of data
      * @throws SQLException if query fails
      */
-    public List<Map<String, Object>> previewData(Connection connection, String tableName,
+    public List<Map<String, Object>> previewData(ClickHouseConfig config, Connection connection, String tableName,
             List<ColumnMetadata> columns, int limit) throws SQLException {
         List<Map<String, Object>> results = new ArrayList<>();
 
@@ -123,8 +468,66 @@ public class ClickHouseService {
             return results;
         }
 
-        String query = String.format("SELECT %s FROM %s LIMIT %d", columnList, tableName, limit);
+        String select = "SELECT " + columnList + " FROM " + tableName;
+        return executePreview(config, connection, tableName, select, "", limit);
+    }
+
+    /**
+     * Runs a preview query, sampling the main table if so configured. If the
+     * table has no sampling key, the query is repeated without SAMPLE, which
+     * is remembered for later previews of the table on the same connection,
+     * for as long as previews are cached.
+     *
+     * @param select SELECT ... FROM mainTable
+     * @param joins  Clauses following the main table
+     */
+    private List<Map<String, Object>> executePreview(ClickHouseConfig config, Connection connection,
+            String mainTable, String select, String joins, int limit) throws SQLException {
+        StringBuilder settings = new StringBuilder(" LIMIT ").append(limit);
+        if (previewMaxThreads > 0) {
+            settings.append(" SETTINGS max_threads = ").append(previewMaxThreads);
+        }
+
+        UnsampledTable unsampled = new UnsampledTable(ConnectionKey.of(config), mainTable);
+        if (previewSample > 0 && previewSample < 1 && !isUnsampled(unsampled)) {
+            String query = select + " SAMPLE " + BigDecimal.valueOf(previewSample).toPlainString() + joins + settings;
+            log.info("Executing preview query: {}", query);
+            try {
+                return queryRows(connection, query);
+            } catch (SQLException e) {
+                if (!isSamplingNotSupported(e)) {
+                    throw e;
+                }
+                log.info("Table {} does not support SAMPLE, previewing without it", mainTable);
+                synchronized (unsampledTables) {
+                    unsampledTables.put(unsampled, System.currentTimeMillis());
+                }
+            }
+        }
+
+        String query = select + joins + settings;
         log.info("Executing preview query: {}", query);
+        return queryRows(connection, query);
+    }
+
+    private boolean isUnsampled(UnsampledTable table) {
+        synchronized (unsampledTables) {
+            Long rejectedAt = unsampledTables.get(table);
+            if (rejectedAt != null && rejectedAt < System.currentTimeMillis() - unsampledTtlMs) {
+                unsampledTables.remove(table);
+                return false;
+            }
+            return rejectedAt != null;
+        }
+    }
+
+    private static boolean isSamplingNotSupported(SQLException e) {
+        String message = String.valueOf(e.getMessage());
+        return message.contains("SAMPLING_NOT_SUPPORTED") || message.contains("doesn't support sampling");
+    }
+
+    private List<Map<String, Object>> queryRows(Connection connection, String query) throws SQLException {
+        List<Map<String, Object>> results = new ArrayList<>();
 
         try (Statement stmt = connection.createStatement();
                 ResultSet rs = stmt.executeQuery(query)) {
@@ -194,7 +597,8 @@ public class ClickHouseService {
     /**
      * Maps a generic or inferred data type to a corresponding ClickHouse data type.
      *
-     * The mapping handles common data types such as:
+     * Valid ClickHouse types are returned unchanged. Other names are mapped as
+     * follows:
      * - Integer → Int64
      * - Float, Double, or Decimal → Float64
      * - Date or Time → DateTime
@@ -211,6 +615,11 @@ public class ClickHouseService {
             return "String";
         }
 
+        // Types inferred from flat files are already ClickHouse types
+        if (RowBinaryEncoder.supports(List.of(genericType.trim()))) {
+            return genericType.trim();
+        }
+
         // Normalize input
         String lowerType = genericType.trim().toLowerCase();
 
@@ -231,6 +640,9 @@ public class ClickHouseService {
     /**
      * Inserts data into a ClickHouse table using batch processing.
      *
+     * Batches are sized by an {@link InsertBatchController}, so wide rows are
+     * sent in smaller batches than narrow ones.
+     *
      * @param connection ClickHouse database connection
      * @param tableName  Name of the target table
      * @param columns    List of column metadata with selection flags
@@ -270,8 +682,9 @@ public class ClickHouseService {
         System.out.println("This is the insert query string: " + insertQuery);
 
         // Use batch insert for better performance
+        long start = System.nanoTime();
+        InsertBatchController batching = newBatchController();
         try (PreparedStatement pstmt = connection.prepareStatement(insertQuery)) {
-            int batchSize = 10000;
             int count = 0;
 
             for (Map<String, Object> row : data) {
@@ -283,18 +696,476 @@ public class ClickHouseService {
                 pstmt.addBatch();
                 count++;
 
-                if (count % batchSize == 0) {
-                    pstmt.executeBatch();
+                InsertBatchController.Trigger trigger = batching.add(
+                        InsertBatchController.estimateRowBytes(row, selectedColumnNames));
+                if (trigger != null) {
+                    executeJdbcBatch(pstmt, batching, trigger);
                     log.info("Inserted {} records", count);
-                    return count;
                 }
             }
 
-            pstmt.executeBatch(); // insert remaining records
+            executeJdbcBatch(pstmt, batching, InsertBatchController.Trigger.END); // insert remaining records
+            metrics.recordBatch(Stage.INSERT, count, System.nanoTime() - start);
             return count;
         }
     }
 
+    /**
+     * Creates a DataHandler that streams rows into a ClickHouse table.
+     *
+     * Rows are added to a JDBC batch that is flushed when the
+     * {@link InsertBatchController} says so, so at most one batch, bounded by
+     * the configured byte budget, is held in memory regardless of how many rows
+     * are streamed through the handler. Any remaining rows are flushed on
+     * {@link DataHandler#complete()}.
+     *
+     * @param connection ClickHouse database connection
+     * @param tableName  Name of the target table
+     * @param columns    List of column metadata with selection flags
+     * @return DataHandler inserting each row into ClickHouse
+     * @throws SQLException if the insert statement cannot be prepared
+     */
+    public DataHandler createInsertDataHandler(Connection connection, String tableName,
+            List<ColumnMetadata> columns) throws SQLException {
+
+        List<String> selectedColumnNames = columns.stream()
+                .filter(ColumnMetadata::isSelected)
+                .map(ColumnMetadata::getName)
+                .collect(Collectors.toList());
+
+        if (selectedColumnNames.isEmpty()) {
+            throw new SQLException("No columns selected for insert into " + tableName);
+        }
+
+        String columnList = selectedColumnNames.stream()
+                .map(name -> "`" + name + "`")
+                .collect(Collectors.joining(", "));
+
+        String placeholders = IntStream.range(0, selectedColumnNames.size())
+                .mapToObj(i -> "?")
+                .collect(Collectors.joining(", "));
+
+        String insertQuery = String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, columnList, placeholders);
+        log.info("Streaming insert query: {}", insertQuery);
+
+        PreparedStatement pstmt = connection.prepareStatement(insertQuery);
+        InsertBatchController batching = newBatchController();
+
+        return new DataHandler() {
+            private final BatchColumns batchColumns = new BatchColumns(selectedColumnNames);
+            private long inserted = 0;
+
+            @Override
+            public void processBatch(ColumnBatch batch) throws SQLException {
+                long start = System.nanoTime();
+                int[] positions = batchColumns.resolve(batch);
+                for (int row = 0; row < batch.size(); row++) {
+                    for (int i = 0; i < positions.length; i++) {
+                        bindValue(pstmt, i + 1, batch, positions[i], row);
+                    }
+                    pstmt.addBatch();
+
+                    InsertBatchController.Trigger trigger = batching.add(
+                            InsertBatchController.estimateRowBytes(batch, positions, row));
+                    if (trigger != null) {
+                        flush(trigger);
+                    }
+                }
+                metrics.recordBatch(Stage.INSERT, batch.size(), System.nanoTime() - start);
+            }
+
+            @Override
+            public void complete() throws SQLException {
+                long start = System.nanoTime();
+                try {
+                    flush(InsertBatchController.Trigger.END);
+                } finally {
+                    pstmt.close();
+                }
+                metrics.recordBatch(Stage.INSERT, 0, System.nanoTime() - start);
+                log.info("Streaming insert into {} completed: {} records", tableName, inserted);
+            }
+
+            @Override
+            public void abort() {
+                try {
+                    pstmt.close();
+                } catch (SQLException e) {
+                    log.warn("Failed to close insert statement: {}", e.getMessage());
+                }
+                log.info("Streaming insert into {} aborted after {} records", tableName, inserted);
+            }
+
+            private void flush(InsertBatchController.Trigger trigger) throws SQLException {
+                int pending = batching.getPendingRows();
+                if (pending == 0) {
+                    return;
+                }
+                executeJdbcBatch(pstmt, batching, trigger);
+                inserted += pending;
+                log.info("Inserted {} records into {}", inserted, tableName);
+            }
+        };
+    }
+
+    private InsertBatchController newBatchController() {
+        return new InsertBatchController(batchTargetBytes, batchMinRows, batchMaxRows, batchTargetLatencyMs);
+    }
+
+    /**
+     * Sends the rows added to a JDBC batch, feeds the round trip time back to
+     * the batch controller and records the decision.
+     */
+    private void executeJdbcBatch(PreparedStatement pstmt, InsertBatchController batching,
+            InsertBatchController.Trigger trigger) throws SQLException {
+        int rows = batching.getPendingRows();
+        if (rows == 0) {
+            return;
+        }
+        long bytes = batching.getPendingBytes();
+        long start = System.nanoTime();
+        pstmt.executeBatch();
+        long elapsed = System.nanoTime() - start;
+        batching.flushed(elapsed);
+        metrics.recordFlush("jdbc", trigger, rows, bytes, elapsed);
+        metrics.recordRowLimit("jdbc", batching.getRowLimit());
+    }
+
+    private static void bindValue(PreparedStatement pstmt, int index, ColumnBatch batch, int column, int row)
+            throws SQLException {
+        if (column < 0 || batch.isNull(column, row)) {
+            pstmt.setObject(index, null);
+            return;
+        }
+        switch (batch.getSchema().getKind(column)) {
+            case LONG:
+                pstmt.setLong(index, batch.getLong(column, row));
+                break;
+            case DOUBLE:
+                pstmt.setDouble(index, batch.getDouble(column, row));
+                break;
+            default:
+                pstmt.setString(index, batch.getString(column, row));
+        }
+    }
+
+    /**
+     * Creates a DataHandler that streams rows into a ClickHouse table using the
+     * RowBinary format over a single HTTP request.
+     *
+     * Column types are taken from {@code DESCRIBE TABLE} on the target table, so
+     * every value is encoded straight to its binary representation without going
+     * through JDBC parameter binding. The request body is sent with chunked
+     * transfer encoding as rows arrive, compressed with the codec configured on
+     * the connection; the INSERT is committed when
+     * {@link DataHandler#complete()} closes the request.
+     *
+     * @param config     ClickHouse configuration, used for the HTTP endpoint
+     * @param connection ClickHouse connection, used to read the target schema
+     * @param tableName  Name of the target table
+     * @param columns    List of column metadata with selection flags
+     * @return DataHandler encoding each row as RowBinary
+     * @throws SQLException                  if the schema cannot be read or the
+     *                                       request cannot be opened
+     * @throws UnsupportedOperationException if a target column type has no
+     *                                       RowBinary encoding
+     */
+    public DataHandler createRowBinaryDataHandler(ClickHouseConfig config, Connection connection, String tableName,
+            List<ColumnMetadata> columns) throws SQLException {
+
+        List<String> selectedColumnNames = columns.stream()
+                .filter(ColumnMetadata::isSelected)
+                .map(ColumnMetadata::getName)
+                .collect(Collectors.toList());
+
+        if (selectedColumnNames.isEmpty()) {
+            throw new SQLException("No columns selected for insert into " + tableName);
+        }
+
+        List<String> columnTypes = RowBinaryEncoder.resolveColumnTypes(selectedColumnNames,
+                getTableSchema(connection, tableName));
+        RowBinaryEncoder encoder = new RowBinaryEncoder(selectedColumnNames, columnTypes,
+                getServerTimeZone(connection));
+
+        String columnList = selectedColumnNames.stream()
+                .map(name -> "`" + name + "`")
+                .collect(Collectors.joining(", "));
+        String insertQuery = String.format("INSERT INTO %s (%s) FORMAT RowBinary", tableName, columnList);
+        log.info("RowBinary insert query: {}", insertQuery);
+
+        HttpURLConnection http = openHttpRequest(config, insertQuery, Map.of());
+        http.setChunkedStreamingMode(HTTP_CHUNK_SIZE);
+        http.setRequestProperty("Content-Type", "application/octet-stream");
+        HttpCompression.addHeaders(config.getCompression(), http, true);
+        OutputStream body;
+        try {
+            body = HttpCompression.compress(config.getCompression(), config.getCompressionLevel(),
+                    http.getOutputStream());
+        } catch (IOException e) {
+            http.disconnect();
+            throw new SQLException("Failed to open RowBinary insert request: " + e.getMessage(), e);
+        }
+        encoder.open(body);
+
+        return new DataHandler() {
+            private final BatchColumns batchColumns = new BatchColumns(selectedColumnNames);
+            private long inserted = 0;
+
+            @Override
+            public void processBatch(ColumnBatch batch) throws SQLException {
+                long start = System.nanoTime();
+                long bytesBefore = encoder.getBytesWritten();
+                try {
+                    encoder.writeBatch(batch, batchColumns.resolve(batch));
+                } catch (SQLException e) {
+                    http.disconnect();
+                    throw e;
+                } catch (IOException | RuntimeException e) {
+                    http.disconnect();
+                    throw new SQLException("Failed to encode rows " + (inserted + 1) + "-" + (inserted + batch.size())
+                            + ": " + e.getMessage(), e);
+                }
+                inserted += batch.size();
+                metrics.addBytes(Stage.INSERT, encoder.getBytesWritten() - bytesBefore);
+                metrics.recordBatch(Stage.INSERT, batch.size(), System.nanoTime() - start);
+            }
+
+            @Override
+            public void complete() throws SQLException {
+                long start = System.nanoTime();
+                long bytesBefore = encoder.getBytesWritten();
+                try {
+                    encoder.flush();
+                    body.close();
+                    checkHttpResponse(http);
+                    long elapsed = System.nanoTime() - start;
+                    metrics.addBytes(Stage.INSERT, encoder.getBytesWritten() - bytesBefore);
+                    metrics.recordBatch(Stage.INSERT, 0, elapsed);
+                    metrics.recordFlush("rowbinary", InsertBatchController.Trigger.END,
+                            (int) Math.min(Integer.MAX_VALUE, inserted), encoder.getBytesWritten(), elapsed);
+                    log.info("RowBinary insert into {} completed: {} records, {} bytes before {} compression",
+                            tableName, inserted, encoder.getBytesWritten(), config.getCompression());
+                } catch (IOException e) {
+                    throw new SQLException("RowBinary insert into " + tableName + " failed: " + e.getMessage(), e);
+                } finally {
+                    http.disconnect();
+                }
+            }
+
+            @Override
+            public void abort() {
+                // Closing the connection mid-body fails the INSERT; blocks ClickHouse already wrote are kept
+                http.disconnect();
+                log.info("RowBinary insert into {} aborted after {} records", tableName, inserted);
+            }
+        };
+    }
+
+    /**
+     * Reads the server's default time zone, used to interpret DateTime values
+     * that carry no explicit zone.
+     */
+    private ZoneId getServerTimeZone(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT timezone()")) {
+            return rs.next() ? ZoneId.of(rs.getString(1)) : ZoneId.of("UTC");
+        }
+    }
+
+    /**
+     * Opens a POST request against the ClickHouse HTTP interface.
+     *
+     * @param config   ClickHouse configuration
+     * @param query    Query passed as a URL parameter, or null when the query is
+     *                 sent as the request body
+     * @param settings ClickHouse settings passed as URL parameters
+     */
+    private HttpURLConnection openHttpRequest(ClickHouseConfig config, String query, Map<String, String> settings)
+            throws SQLException {
+        settings = new LinkedHashMap<>(settings);
+        HttpCompression.addResponseSettings(config.getCompression(), config.getCompressionLevel(), settings);
+        try {
+            StringBuilder url = new StringBuilder(config.getHttpUrl())
+                    .append("/?database=").append(URLEncoder.encode(config.getDatabase(), StandardCharsets.UTF_8));
+            if (query != null) {
+                url.append("&query=").append(URLEncoder.encode(query, StandardCharsets.UTF_8));
+            }
+            for (Map.Entry<String, String> setting : settings.entrySet()) {
+                url.append('&').append(setting.getKey()).append('=')
+                        .append(URLEncoder.encode(setting.getValue(), StandardCharsets.UTF_8));
+            }
+
+            HttpURLConnection http = (HttpURLConnection) URI.create(url.toString()).toURL().openConnection();
+            http.setRequestMethod("POST");
+            http.setDoOutput(true);
+            http.setConnectTimeout(10_000);
+            http.setReadTimeout(HTTP_READ_TIMEOUT_MS);
+            http.setRequestProperty("X-ClickHouse-User", config.getUser());
+            if (config.getJwtToken() != null && !config.getJwtToken().isEmpty()) {
+                http.setRequestProperty("X-ClickHouse-Key", config.getJwtToken());
+            }
+            HttpCompression.addHeaders(config.getCompression(), http, false);
+            return http;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SQLException("Failed to open ClickHouse HTTP request: " + e.getMessage(), e);
+        }
+    }
+
+    private void checkHttpResponse(HttpURLConnection http) throws IOException {
+        checkHttpStatus(http);
+        try (InputStream responseStream = http.getInputStream()) {
+            responseStream.readAllBytes();
+        }
+    }
+
+    private void checkHttpStatus(HttpURLConnection http) throws IOException {
+        int status = http.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            String error = "";
+            InputStream errorStream = http.getErrorStream();
+            if (errorStream != null) {
+                try (InputStream in = HttpCompression.decompress(http, errorStream)) {
+                    error = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+                }
+            }
+            throw new IOException("HTTP " + status + " from ClickHouse: " + error);
+        }
+    }
+
+    /**
+     * Exports a table in a text format rendered by ClickHouse itself and copies
+     * the raw response bytes to the output stream.
+     *
+     * The query uses {@code FORMAT TabSeparatedWithNames} for tab-delimited
+     * output and {@code FORMAT CSVWithNames} with the configured delimiter
+     * otherwise. CSV output is configured to match the CSVPrinter path (CRLF
+     * line endings, NULL as an empty field). No value is decoded on the Java
+     * side, so throughput is limited only by the network and the output. The
+     * response is compressed on the wire with the configured codec and
+     * decompressed while copying.
+     *
+     * The query runs with {@code wait_end_of_query=1}, so ClickHouse buffers
+     * the result (spilling to disk past {@code buffer_size}) and only sends it
+     * once the query has finished: an error raised part way through becomes
+     * an HTTP error instead of trailing text in the output. The row count is
+     * then read from the complete {@code X-ClickHouse-Summary} header rather
+     * than from a separate count() query. Progress headers keep the
+     * connection alive while the query runs.
+     *
+     * @param config    ClickHouse configuration, used for the HTTP endpoint
+     * @param tableName Source table name
+     * @param columns   List of columns to export
+     * @param delimiter Field delimiter of the output file
+     * @param out       Destination stream; not closed
+     * @param progress  Progress tracker receiving the number of bytes copied
+     * @return Number of rows exported, as reported by ClickHouse, or -1 if the
+     *         server does not report result rows
+     * @throws SQLException if the export fails or is cancelled
+     */
+    public long exportFormatted(ClickHouseConfig config, String tableName, List<ColumnMetadata> columns,
+            String delimiter, OutputStream out, IngestionProgress progress) throws SQLException {
+        return exportFormatted(config, tableName, columns, null, true, delimiter, out, progress, null);
+    }
+
+    /**
+     * Exports the rows of a table matching a predicate, e.g. one split of a
+     * parallel export, in a text format rendered by ClickHouse.
+     *
+     * @param where        Predicate selecting the rows, or null for all rows
+     * @param withNames    Whether the output starts with a header record
+     * @param cancellation Receives the running request so that another thread
+     *                     can stop it, or null
+     * @see #exportFormatted(ClickHouseConfig, String, List, String,
+     *      OutputStream, IngestionProgress)
+     */
+    public long exportFormatted(ClickHouseConfig config, String tableName, List<ColumnMetadata> columns,
+            String where, boolean withNames, String delimiter, OutputStream out, IngestionProgress progress,
+            QueryCancellation cancellation) throws SQLException {
+
+        String columnList = columns.stream()
+                .filter(ColumnMetadata::isSelected)
+                .map(column -> "`" + column.getName() + "`")
+                .collect(Collectors.joining(", "));
+        if (columnList.isEmpty()) {
+            throw new SQLException("No columns selected for export from " + tableName);
+        }
+
+        Map<String, String> settings = new HashMap<>();
+        settings.put("wait_end_of_query", "1");
+        settings.put("send_progress_in_http_headers", "1");
+        settings.put("http_headers_progress_interval_ms", String.valueOf(HTTP_READ_TIMEOUT_MS / 10));
+        String format;
+        if (delimiter.charAt(0) == '\t') {
+            format = withNames ? "TabSeparatedWithNames" : "TabSeparated";
+        } else {
+            format = withNames ? "CSVWithNames" : "CSV";
+            settings.put("format_csv_delimiter", delimiter.substring(0, 1));
+            settings.put("format_csv_null_representation", "");
+            settings.put("output_format_csv_crlf_end_of_line", "1");
+        }
+
+        String query = String.format("SELECT %s FROM %s%s FORMAT %s", columnList, tableName,
+                where != null ? " WHERE " + where : "", format);
+        log.info("Executing passthrough export query: {}", query);
+
+        long start = System.nanoTime();
+        HttpURLConnection http = openHttpRequest(config, null, settings);
+        try {
+            if (cancellation != null) {
+                cancellation.register(http::disconnect);
+            }
+            byte[] queryBytes = query.getBytes(StandardCharsets.UTF_8);
+            http.setFixedLengthStreamingMode(queryBytes.length);
+            try (OutputStream body = http.getOutputStream()) {
+                body.write(queryBytes);
+            }
+            checkHttpStatus(http);
+            String exceptionCode = http.getHeaderField("X-ClickHouse-Exception-Code");
+            if (exceptionCode != null) {
+                throw new IOException("ClickHouse reported exception code " + exceptionCode);
+            }
+            long rows = summaryRows(http.getHeaderField("X-ClickHouse-Summary"));
+
+            long copied = 0;
+            byte[] buffer = new byte[HTTP_CHUNK_SIZE];
+            try (InputStream in = HttpCompression.decompress(http, http.getInputStream())) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    progress.checkCancelled();
+                    out.write(buffer, 0, n);
+                    copied += n;
+                    progress.addBytesRead(n);
+                    metrics.addBytes(Stage.EXPORT, n);
+                }
+            }
+            out.flush();
+            metrics.recordBatch(Stage.EXPORT, 0, System.nanoTime() - start);
+            log.info("Passthrough export of {} completed: {} rows, {} bytes", tableName, rows, copied);
+            return rows;
+        } catch (IOException e) {
+            throw new SQLException("Passthrough export of " + tableName + " failed: " + e.getMessage(), e);
+        } finally {
+            if (cancellation != null) {
+                cancellation.unregister();
+            }
+            http.disconnect();
+        }
+    }
+
+    /**
+     * Reads {@code result_rows} from an {@code X-ClickHouse-Summary} header,
+     * e.g. {@code {"read_rows":"10","result_rows":"10",...}}, or -1 if the
+     * server does not report it.
+     */
+    private static long summaryRows(String summary) {
+        Matcher matcher = summary != null ? SUMMARY_RESULT_ROWS.matcher(summary) : null;
+        if (matcher == null || !matcher.find()) {
+            log.warn("ClickHouse response has no result_rows in X-ClickHouse-Summary: {}", summary);
+            return -1;
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
     /**
      * Executes a query with JOIN if multiple tables are selected.
      *
@@ -320,6 +1191,7 @@ public class ClickHouseService {
      * ON sales_data.ProductCategory = transaction_data.ProductCategory
      * LIMIT 100;
      *
+     * @param config           ClickHouse configuration
      * @param connection       ClickHouse connection
      * @param mainTable        Main table name
      * @param additionalTables Additional tables for JOIN
@@ -329,8 +1201,8 @@ public class ClickHouseService {
      * @return List of maps representing rows of data
      * @throws SQLException if query execution fails
      */
-    public List<Map<String, Object>> previewJoinData(Connection connection, String mainTable,
-            List<String> additionalTables, String joinCondition,
+    public List<Map<String, Object>> previewJoinData(ClickHouseConfig config, Connection connection,
+            String mainTable, List<String> additionalTables, String joinCondition,
             List<ColumnMetadata> columns, int limit) throws SQLException {
         List<Map<String, Object>> results = new ArrayList<>();
 
@@ -350,44 +1222,20 @@ public class ClickHouseService {
             return results;
         }
 
-        // Build JOIN query
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT ").append(columnList);
-        queryBuilder.append(" FROM ").append(mainTable);
+        String select = "SELECT " + columnList + " FROM " + mainTable;
 
-        // Add JOIN clauses
+        // Build JOIN clauses
+        StringBuilder joins = new StringBuilder();
         if (additionalTables != null && !additionalTables.isEmpty() && joinCondition != null
                 && !joinCondition.isEmpty()) {
             for (String table : additionalTables) {
-                queryBuilder.append(" INNER JOIN ").append("(SELECT * FROM ").append(table)
+                joins.append(" INNER JOIN ").append("(SELECT * FROM ").append(table)
                         .append(") AS ").append(table);
             }
-            queryBuilder.append(" ON ").append(joinCondition);
-        }
-
-        queryBuilder.append(" LIMIT ").append(limit);
-
-        String query = queryBuilder.toString();
-        log.info("Executing JOIN preview query: {}", query);
-
-        try (Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(query)) {
-
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object value = rs.getObject(i);
-                    row.put(columnName, value);
-                }
-                results.add(row);
-            }
+            joins.append(" ON ").append(joinCondition);
         }
 
-        return results;
+        return executePreview(config, connection, mainTable, select, joins.toString(), limit);
     }
 
     /**
@@ -468,27 +1316,7 @@ public class ClickHouseService {
 
         try (Statement stmt = connection.createStatement();
                 ResultSet rs = stmt.executeQuery(query)) {
-
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-
-            // Process each row
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object value = rs.getObject(i);
-                    row.put(columnName, value);
-                }
-
-                handler.processRow(row);
-                recordCount++;
-
-                // Log progress every 1000 records
-                if (recordCount % 1000 == 0) {
-                    log.info("Processed {} records", recordCount);
-                }
-            }
+            recordCount = streamResultSet(rs, handler);
         }
 
         handler.complete();
@@ -507,6 +1335,21 @@ public class ClickHouseService {
      */
     public int transferDataFromClickHouse(Connection connection, String tableName,
             List<ColumnMetadata> columns, DataHandler handler) throws SQLException {
+        return transferDataFromClickHouse(connection, tableName, columns, null, handler, null);
+    }
+
+    /**
+     * Transfers the rows of a table matching a predicate, e.g. one split of a
+     * parallel export, to a target handler
+     *
+     * @param where        Predicate selecting the rows, or null for all rows
+     * @param cancellation Receives the running statement so that another
+     *                     thread can cancel it, or null
+     * @see #transferDataFromClickHouse(Connection, String, List, DataHandler)
+     */
+    public int transferDataFromClickHouse(Connection connection, String tableName,
+            List<ColumnMetadata> columns, String where, DataHandler handler, QueryCancellation cancellation)
+            throws SQLException {
         int recordCount = 0;
 
         // Build column list for SELECT query
@@ -525,44 +1368,159 @@ public class ClickHouseService {
             return 0;
         }
 
-        String query = String.format("SELECT %s FROM %s", columnList, tableName);
+        String query = String.format("SELECT %s FROM %s%s", columnList, tableName,
+                where != null ? " WHERE " + where : "");
         log.info("Executing transfer query: {}", query);
 
-        try (Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(query)) {
-
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-
-            // Process each row
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object value = rs.getObject(i);
-                    row.put(columnName, value);
+        try (Statement stmt = connection.createStatement()) {
+            if (cancellation != null) {
+                cancellation.register(stmt::cancel);
+            }
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                recordCount = streamResultSet(rs, handler);
+            } finally {
+                if (cancellation != null) {
+                    cancellation.unregister();
                 }
+            }
+        }
+
+        handler.complete();
+        return recordCount;
+    }
 
-                handler.processRow(row);
-                recordCount++;
+    /**
+     * Reads a result set into recycled column batches and hands each full batch
+     * to the handler. Integer and float columns are read as primitives; all
+     * other columns in their text form.
+     *
+     * @return Number of rows read
+     */
+    private int streamResultSet(ResultSet rs, DataHandler handler) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        List<String> names = new ArrayList<>(columnCount);
+        ColumnBatch.Kind[] kinds = new ColumnBatch.Kind[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names.add(metaData.getColumnName(i + 1));
+            kinds[i] = ColumnBatch.Kind.forClickHouseType(metaData.getColumnTypeName(i + 1));
+        }
 
-                // Log progress every 1000 records
-                if (recordCount % 1000 == 0) {
-                    log.info("Processed {} records", recordCount);
+        ColumnBatchPool pool = new ColumnBatchPool(new ColumnBatch.Schema(names, kinds),
+                ColumnBatch.DEFAULT_CAPACITY, 1);
+        ColumnBatch batch = pool.acquire();
+        int recordCount = 0;
+        long batchStart = System.nanoTime();
+
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                switch (kinds[i]) {
+                    case LONG: {
+                        long value = rs.getLong(i + 1);
+                        if (rs.wasNull()) {
+                            batch.setNull(i);
+                        } else {
+                            batch.setLong(i, value);
+                        }
+                        break;
+                    }
+                    case DOUBLE: {
+                        double value = rs.getDouble(i + 1);
+                        if (rs.wasNull()) {
+                            batch.setNull(i);
+                        } else {
+                            batch.setDouble(i, value);
+                        }
+                        break;
+                    }
+                    default: {
+                        String value = rs.getString(i + 1);
+                        if (value == null) {
+                            batch.setNull(i);
+                        } else {
+                            batch.setString(i, value);
+                        }
+                    }
                 }
             }
+            batch.commitRow();
+            recordCount++;
+
+            if (batch.isFull()) {
+                metrics.recordBatch(Stage.FETCH, batch.size(), System.nanoTime() - batchStart);
+                handler.processBatch(batch);
+                batch.clear();
+                batchStart = System.nanoTime();
+            }
+
+            // Log progress every 100000 records
+            if (recordCount % 100000 == 0) {
+                log.info("Processed {} records", recordCount);
+            }
         }
 
-        handler.complete();
+        if (!batch.isEmpty()) {
+            metrics.recordBatch(Stage.FETCH, batch.size(), System.nanoTime() - batchStart);
+            handler.processBatch(batch);
+        }
+        pool.release(batch);
         return recordCount;
     }
 
     /**
-     * Interface for handling data rows during transfer
+     * Resolves a handler's columns against the schema of incoming batches,
+     * once per schema.
+     */
+    static final class BatchColumns {
+        private final List<String> names;
+        private ColumnBatch.Schema schema;
+        private int[] positions;
+
+        BatchColumns(List<String> names) {
+            this.names = names;
+        }
+
+        int[] resolve(ColumnBatch batch) {
+            if (batch.getSchema() != schema) {
+                schema = batch.getSchema();
+                positions = schema.resolve(names);
+                for (int i = 0; i < positions.length; i++) {
+                    if (positions[i] < 0) {
+                        log.warn("Missing column '{}'; inserting NULL.", names.get(i));
+                    }
+                }
+            }
+            return positions;
+        }
+    }
+
+    /**
+     * Interface for handling data during transfer. Rows arrive in columnar
+     * batches that the source recycles, so a handler must not keep a reference
+     * to a batch after {@link #processBatch} returns.
      */
     public interface DataHandler {
-        void processRow(Map<String, Object> row) throws SQLException;
+        void processBatch(ColumnBatch batch) throws SQLException;
 
         void complete() throws SQLException;
+
+        /**
+         * Abandons the transfer after a failure elsewhere, releasing resources
+         * without committing anything still buffered. Rows already flushed are
+         * not rolled back.
+         */
+        default void abort() {
+        }
+    }
+
+    /**
+     * Creates a new DataHandler, e.g. one insert stream per parallel worker
+     */
+    @FunctionalInterface
+    public interface DataHandlerFactory {
+        DataHandler create() throws SQLException;
+    }
+
+    private record UnsampledTable(ConnectionKey connection, String table) {
     }
 }
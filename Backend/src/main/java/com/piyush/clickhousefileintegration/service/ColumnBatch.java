@@ -0,0 +1,412 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A fixed-capacity block of rows stored column by column, exchanged between
+ * sources and {@link ClickHouseService.DataHandler}s instead of one map per
+ * row.
+ *
+ * Numeric columns are held in primitive arrays, string columns as UTF-8 bytes
+ * in a per-column buffer with end offsets, and every column has a null
+ * bitmap. A batch is filled row by row through the {@code set*} methods and
+ * {@link #commitRow()}, read by any number of handlers, then cleared and
+ * reused; buffers keep their grown capacity, so a recycled batch (see
+ * {@link ColumnBatchPool}) allocates nothing in steady state.
+ *
+ * Batches are not thread-safe. A handler must not keep a reference to a batch
+ * after {@code processBatch} returns.
+ */
+public final class ColumnBatch {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int INITIAL_BYTES_PER_VALUE = 16;
+
+    /**
+     * Physical representation of a column.
+     */
+    public enum Kind {
+        LONG, DOUBLE, STRING;
+
+        /**
+         * Chooses the representation for a ClickHouse column type. Integers that
+         * always fit a signed long and floats are stored as primitives;
+         * everything else, including UInt64, is kept in its text form.
+         */
+        public static Kind forClickHouseType(String type) {
+            String inner = type == null ? "" : type.trim();
+            while (inner.startsWith("Nullable(") || inner.startsWith("LowCardinality(")) {
+                inner = inner.substring(inner.indexOf('(') + 1, inner.lastIndexOf(')')).trim();
+            }
+            switch (inner) {
+                case "Int8":
+                case "Int16":
+                case "Int32":
+                case "Int64":
+                case "UInt8":
+                case "UInt16":
+                case "UInt32":
+                    return LONG;
+                case "Float32":
+                case "Float64":
+                    return DOUBLE;
+                default:
+                    return STRING;
+            }
+        }
+    }
+
+    /**
+     * Column names and kinds shared by all batches of one stream. Handlers
+     * resolve their column positions once per schema.
+     */
+    public static final class Schema {
+        private final List<String> names;
+        private final Kind[] kinds;
+
+        public Schema(List<String> names, Kind[] kinds) {
+            if (names.size() != kinds.length) {
+                throw new IllegalArgumentException("Expected one kind per column");
+            }
+            this.names = List.copyOf(names);
+            this.kinds = kinds.clone();
+        }
+
+        /**
+         * Schema in which every column holds text, as read from a flat file.
+         */
+        public static Schema allStrings(List<String> names) {
+            Kind[] kinds = new Kind[names.size()];
+            Arrays.fill(kinds, Kind.STRING);
+            return new Schema(names, kinds);
+        }
+
+        public int size() {
+            return names.size();
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        public String getName(int column) {
+            return names.get(column);
+        }
+
+        public Kind getKind(int column) {
+            return kinds[column];
+        }
+
+        /**
+         * Maps each requested name to its column position, matching exactly
+         * first and then case-insensitively.
+         *
+         * @return Positions aligned with {@code requested}; -1 where a name is
+         *         not in the schema
+         */
+        public int[] resolve(List<String> requested) {
+            int[] positions = new int[requested.size()];
+            for (int i = 0; i < positions.length; i++) {
+                String name = requested.get(i);
+                int position = names.indexOf(name);
+                for (int c = 0; position < 0 && c < names.size(); c++) {
+                    if (names.get(c).equalsIgnoreCase(name)) {
+                        position = c;
+                    }
+                }
+                positions[i] = position;
+            }
+            return positions;
+        }
+    }
+
+    private final Schema schema;
+    private final int capacity;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final int[][] ends;
+    private final byte[][] bytes;
+    private final long[][] nulls;
+    private int size;
+
+    public ColumnBatch(Schema schema, int capacity) {
+        this.schema = schema;
+        this.capacity = capacity;
+        int columns = schema.size();
+        this.longs = new long[columns][];
+        this.doubles = new double[columns][];
+        this.ends = new int[columns][];
+        this.bytes = new byte[columns][];
+        this.nulls = new long[columns][(capacity + 63) / 64];
+        for (int c = 0; c < columns; c++) {
+            switch (schema.getKind(c)) {
+                case LONG:
+                    longs[c] = new long[capacity];
+                    break;
+                case DOUBLE:
+                    doubles[c] = new double[capacity];
+                    break;
+                default:
+                    ends[c] = new int[capacity];
+                    bytes[c] = new byte[Math.max(64, capacity * INITIAL_BYTES_PER_VALUE)];
+            }
+        }
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size >= capacity;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Empties the batch while keeping its buffers.
+     */
+    public void clear() {
+        int words = (size + 63) / 64;
+        for (long[] bitmap : nulls) {
+            Arrays.fill(bitmap, 0, words, 0L);
+        }
+        size = 0;
+    }
+
+    /**
+     * Replaces the contents of this batch with a copy of another batch of the
+     * same schema, column by column. Used to hand rows to another thread while
+     * the source recycles its batch.
+     */
+    public void copyFrom(ColumnBatch source) {
+        if (source.schema != schema) {
+            throw new IllegalArgumentException("Cannot copy a batch of a different schema");
+        }
+        int rows = source.size;
+        if (rows > capacity) {
+            throw new IllegalArgumentException("Batch of " + rows + " rows exceeds capacity " + capacity);
+        }
+        int words = (rows + 63) / 64;
+        int oldWords = (size + 63) / 64;
+        for (int c = 0; c < schema.size(); c++) {
+            switch (schema.getKind(c)) {
+                case LONG:
+                    System.arraycopy(source.longs[c], 0, longs[c], 0, rows);
+                    break;
+                case DOUBLE:
+                    System.arraycopy(source.doubles[c], 0, doubles[c], 0, rows);
+                    break;
+                default:
+                    System.arraycopy(source.ends[c], 0, ends[c], 0, rows);
+                    int length = rows == 0 ? 0 : source.ends[c][rows - 1];
+                    byte[] buffer = ensureBytes(c, 0, length);
+                    System.arraycopy(source.bytes[c], 0, buffer, 0, length);
+            }
+            System.arraycopy(source.nulls[c], 0, nulls[c], 0, words);
+            if (oldWords > words) {
+                Arrays.fill(nulls[c], words, oldWords, 0L);
+            }
+        }
+        size = rows;
+    }
+
+    // ------------------------------------------------------------------
+    // Filling: set every column of the current row, then commit it
+    // ------------------------------------------------------------------
+
+    public void setLong(int column, long value) {
+        longs[column][size] = value;
+    }
+
+    public void setDouble(int column, double value) {
+        doubles[column][size] = value;
+    }
+
+    /**
+     * Stores a value in a string column, encoding it as UTF-8 in place.
+     * Unpaired surrogates are replaced with '?', as {@link String#getBytes}
+     * does.
+     */
+    public void setString(int column, CharSequence value) {
+        int start = stringStart(column, size);
+        int length = value.length();
+        byte[] buffer = ensureBytes(column, start, length);
+        int position = start;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer = ensureBytes(column, position, 2 + length - i);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer = ensureBytes(column, position, 4 + length - i);
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    buffer[position++] = '?';
+                }
+            } else {
+                buffer = ensureBytes(column, position, 3 + length - i);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        ends[column][size] = position;
+    }
+
+    /**
+     * Stores bytes that are already UTF-8 in a string column, copying them
+     * without decoding.
+     */
+    public void setUtf8(int column, byte[] source, int offset, int length) {
+        int start = stringStart(column, size);
+        System.arraycopy(source, offset, ensureBytes(column, start, length), start, length);
+        ends[column][size] = start + length;
+    }
+
+    /**
+     * Stores bytes that are already UTF-8 in a string column, copying them
+     * from a buffer (e.g. a memory-mapped file) without decoding. The buffer's
+     * position is not changed.
+     */
+    public void setUtf8(int column, ByteBuffer source, int offset, int length) {
+        int start = stringStart(column, size);
+        source.get(offset, ensureBytes(column, start, length), start, length);
+        ends[column][size] = start + length;
+    }
+
+    public void setNull(int column) {
+        nulls[column][size >>> 6] |= 1L << size;
+        switch (schema.getKind(column)) {
+            case LONG:
+                longs[column][size] = 0L;
+                break;
+            case DOUBLE:
+                doubles[column][size] = 0d;
+                break;
+            default:
+                ends[column][size] = stringStart(column, size);
+        }
+    }
+
+    /**
+     * Completes the current row. Every column must have been set.
+     */
+    public void commitRow() {
+        if (size >= capacity) {
+            throw new IllegalStateException("Batch is full");
+        }
+        size++;
+    }
+
+    private int stringStart(int column, int row) {
+        return row == 0 ? 0 : ends[column][row - 1];
+    }
+
+    private byte[] ensureBytes(int column, int position, int needed) {
+        byte[] buffer = bytes[column];
+        if (position + needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + needed));
+            bytes[column] = buffer;
+        }
+        return buffer;
+    }
+
+    // ------------------------------------------------------------------
+    // Reading
+    // ------------------------------------------------------------------
+
+    public boolean isNull(int column, int row) {
+        return (nulls[column][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return True for NULL and for empty strings, which flat files use for
+     *         missing values
+     */
+    public boolean isNullOrEmpty(int column, int row) {
+        return isNull(column, row) || (schema.getKind(column) == Kind.STRING && getLength(column, row) == 0);
+    }
+
+    public long getLong(int column, int row) {
+        return longs[column][row];
+    }
+
+    public double getDouble(int column, int row) {
+        return doubles[column][row];
+    }
+
+    /**
+     * @return Backing UTF-8 buffer of a string column; use with
+     *         {@link #getStart} and {@link #getLength}
+     */
+    public byte[] getBytes(int column) {
+        return bytes[column];
+    }
+
+    public int getStart(int column, int row) {
+        return stringStart(column, row);
+    }
+
+    public int getLength(int column, int row) {
+        return ends[column][row] - stringStart(column, row);
+    }
+
+    /**
+     * Decodes a string value. Allocates; prefer {@link #getBytes} on hot paths.
+     */
+    public String getString(int column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+        switch (schema.getKind(column)) {
+            case LONG:
+                return Long.toString(getLong(column, row));
+            case DOUBLE:
+                return Double.toString(getDouble(column, row));
+            default:
+                int start = stringStart(column, row);
+                return new String(bytes[column], start, ends[column][row] - start, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns a value as an object (Long, Double or String), or null. Allocates;
+     * used where an API requires objects.
+     */
+    public Object getObject(int column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+        switch (schema.getKind(column)) {
+            case LONG:
+                return getLong(column, row);
+            case DOUBLE:
+                return getDouble(column, row);
+            default:
+                return getString(column, row);
+        }
+    }
+}
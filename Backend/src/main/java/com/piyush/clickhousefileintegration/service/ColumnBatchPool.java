@@ -0,0 +1,61 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recycles {@link ColumnBatch}es of one schema so that a stream allocates a
+ * handful of batches up front and then reuses them.
+ *
+ * The pool is thread-safe: batches may be acquired on a parser thread and
+ * released by whichever thread consumed them. At most {@code maxPooled} free
+ * batches are retained; extra releases are left to the garbage collector.
+ */
+public class ColumnBatchPool {
+
+    private final ColumnBatch.Schema schema;
+    private final int batchRows;
+    private final BlockingQueue<ColumnBatch> free;
+    private final AtomicInteger created = new AtomicInteger();
+
+    public ColumnBatchPool(ColumnBatch.Schema schema, int batchRows, int maxPooled) {
+        this.schema = schema;
+        this.batchRows = batchRows;
+        this.free = new ArrayBlockingQueue<>(Math.max(1, maxPooled));
+    }
+
+    public ColumnBatch.Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return An empty batch, recycled when one is available
+     */
+    public ColumnBatch acquire() {
+        ColumnBatch batch = free.poll();
+        if (batch == null) {
+            batch = new ColumnBatch(schema, batchRows);
+            created.incrementAndGet();
+        }
+        return batch;
+    }
+
+    /**
+     * Clears a batch and returns it to the pool.
+     */
+    public void release(ColumnBatch batch) {
+        if (batch.getSchema() != schema) {
+            return;
+        }
+        batch.clear();
+        free.offer(batch);
+    }
+
+    /**
+     * @return Number of batches allocated by this pool so far
+     */
+    public int getCreated() {
+        return created.get();
+    }
+}
@@ -0,0 +1,145 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.csv.CSVRecord;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maps the selected columns of a flat file to field positions in its
+ * records, resolved once per file from the header.
+ *
+ * With a header, each selected name is matched exactly first and then
+ * case-insensitively, through maps built from the header, so resolving costs
+ * O(header + selection) however the names are cased. Without one, generated
+ * names of the form Column_N map to field N-1 and other names to their
+ * position in the selection. Columns that cannot be resolved read as empty
+ * strings, as do fields missing from short records.
+ *
+ * After that, reading a row is a loop over plain field indices; no names are
+ * looked up per row.
+ */
+@Slf4j
+public final class ColumnProjection {
+
+    private static final String GENERATED_PREFIX = "Column_";
+
+    private final List<String> names;
+    private final int[] indices;
+
+    private ColumnProjection(List<String> names, int[] indices) {
+        this.names = names;
+        this.indices = indices;
+    }
+
+    /**
+     * @param selectedNames Names of the columns to read, in output order
+     * @param headerNames   Names in the file's header record, if it has one
+     * @param hasHeader     Whether the file has a header record
+     */
+    public static ColumnProjection resolve(List<String> selectedNames, List<String> headerNames, boolean hasHeader) {
+        int[] indices = new int[selectedNames.size()];
+        if (!hasHeader) {
+            for (int i = 0; i < indices.length; i++) {
+                String name = selectedNames.get(i);
+                indices[i] = name.startsWith(GENERATED_PREFIX) ? parseColumnNumber(name) - 1 : i;
+            }
+            return new ColumnProjection(List.copyOf(selectedNames), indices);
+        }
+
+        Map<String, Integer> exact = new HashMap<>();
+        Map<String, Integer> ignoringCase = new HashMap<>();
+        for (int h = 0; h < headerNames.size(); h++) {
+            String header = headerNames.get(h);
+            exact.putIfAbsent(header, h);
+            ignoringCase.putIfAbsent(header.toLowerCase(Locale.ROOT), h);
+        }
+        for (int i = 0; i < indices.length; i++) {
+            String name = selectedNames.get(i);
+            Integer index = exact.get(name);
+            if (index == null) {
+                index = ignoringCase.get(name.toLowerCase(Locale.ROOT));
+            }
+            if (index == null) {
+                log.warn("Column '{}' not found in CSV header", name);
+            }
+            indices[i] = index != null ? index : -1;
+        }
+        return new ColumnProjection(List.copyOf(selectedNames), indices);
+    }
+
+    private static int parseColumnNumber(String generatedName) {
+        try {
+            return Integer.parseInt(generatedName.substring(GENERATED_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return Number of selected columns
+     */
+    public int size() {
+        return indices.length;
+    }
+
+    /**
+     * @return Field position of a selected column, or -1 if unresolved
+     */
+    public int index(int column) {
+        return indices[column];
+    }
+
+    /**
+     * Copies the selected fields of the reader's current record into the next
+     * row of a batch and commits it.
+     */
+    public void copy(ByteCsvReader reader, ColumnBatch batch) {
+        for (int i = 0; i < indices.length; i++) {
+            reader.copyTo(indices[i], batch, i);
+        }
+        batch.commitRow();
+    }
+
+    /**
+     * Copies the selected fields of a record into the next row of a batch and
+     * commits it.
+     */
+    public void copy(CSVRecord record, ColumnBatch batch) {
+        for (int i = 0; i < indices.length; i++) {
+            batch.setString(i, field(record, indices[i]));
+        }
+        batch.commitRow();
+    }
+
+    /**
+     * @return The selected fields of the reader's current record by column
+     *         name
+     */
+    public Map<String, Object> toMap(ByteCsvReader reader) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < indices.length; i++) {
+            row.put(names.get(i), reader.get(indices[i]));
+        }
+        return row;
+    }
+
+    /**
+     * @return The selected fields of a record by column name
+     */
+    public Map<String, Object> toMap(CSVRecord record) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < indices.length; i++) {
+            row.put(names.get(i), field(record, indices[i]));
+        }
+        return row;
+    }
+
+    private static String field(CSVRecord record, int index) {
+        return index >= 0 && index < record.size() ? record.get(index) : "";
+    }
+}
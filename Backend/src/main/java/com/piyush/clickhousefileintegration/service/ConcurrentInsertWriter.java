@@ -0,0 +1,235 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A DataHandler that decouples the source from the inserts: batches are copied
+ * into a bounded queue and consumed by several writer threads, each with its
+ * own handler (typically its own pooled connection and insert stream), so
+ * parsing continues while batches are on the network.
+ *
+ * At most {@code maxInFlight} batches wait in the queue and one more is held
+ * by each writer; when all are taken, {@link #processBatch} blocks, which
+ * bounds memory and slows the source to the pace of the inserts. Rows are
+ * spread across writers in arrival order, so their order in the target is not
+ * preserved.
+ *
+ * Errors are reported in batch order: after a writer fails, every writer stops
+ * processing and aborts its handler, the source sees the failure on its next
+ * call once the writers have stopped, and the exception thrown is the one
+ * raised for the earliest batch, with later ones attached as suppressed. Closing a writer that was never
+ * completed, e.g. because the source failed, aborts all writers.
+ */
+@Slf4j
+public class ConcurrentInsertWriter implements ClickHouseService.DataHandler, AutoCloseable {
+
+    private static final Pending END = new Pending(-1, null);
+
+    private final List<ClickHouseService.DataHandler> handlers;
+    private final BlockingQueue<Pending> queue;
+    private final int maxInFlight;
+    private final ExecutorService executor;
+    private final List<Future<?>> futures = new ArrayList<>();
+
+    private volatile ColumnBatchPool pool;
+    private volatile boolean failed;
+    private long failedSequence = Long.MAX_VALUE;
+    private SQLException failure;
+    private long sequence;
+    private boolean finished;
+
+    /**
+     * Creates the writer handlers and starts one thread per writer.
+     *
+     * @param handlerFactory Creates the handler of each writer, on the calling
+     *                       thread
+     * @param writers        Number of writer threads
+     * @param maxInFlight    Maximum number of batches waiting for a writer
+     * @param threadFactory  Creates the writer threads
+     * @throws SQLException if a handler cannot be created
+     */
+    public ConcurrentInsertWriter(ClickHouseService.DataHandlerFactory handlerFactory, int writers, int maxInFlight,
+            ThreadFactory threadFactory) throws SQLException {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.queue = new ArrayBlockingQueue<>(this.maxInFlight);
+        this.handlers = new ArrayList<>(writers);
+        try {
+            for (int i = 0; i < Math.max(1, writers); i++) {
+                handlers.add(handlerFactory.create());
+            }
+        } catch (SQLException | RuntimeException e) {
+            handlers.forEach(ClickHouseService.DataHandler::abort);
+            throw e;
+        }
+
+        this.executor = Executors.newFixedThreadPool(handlers.size(), threadFactory);
+        for (ClickHouseService.DataHandler handler : handlers) {
+            futures.add(executor.submit(() -> {
+                runWriter(handler);
+                return null;
+            }));
+        }
+    }
+
+    public int getWriterCount() {
+        return handlers.size();
+    }
+
+    @Override
+    public void processBatch(ColumnBatch batch) throws SQLException {
+        if (failed) {
+            // Let batches already being written finish so that the earliest error wins
+            finish();
+            throwIfFailed();
+        }
+        ColumnBatchPool batchPool = pool;
+        if (batchPool == null || batchPool.getSchema() != batch.getSchema()) {
+            batchPool = new ColumnBatchPool(batch.getSchema(), batch.capacity(), maxInFlight + handlers.size());
+            pool = batchPool;
+        }
+        ColumnBatch copy = batchPool.acquire();
+        copy.copyFrom(batch);
+        put(new Pending(sequence++, copy));
+    }
+
+    /**
+     * Waits for the queued batches to be written, then completes every writer's
+     * handler.
+     *
+     * @throws SQLException the error raised for the earliest failed batch
+     */
+    @Override
+    public void complete() throws SQLException {
+        finish();
+        throwIfFailed();
+    }
+
+    @Override
+    public void abort() {
+        fail(Long.MAX_VALUE, new SQLException("Insert aborted"));
+        try {
+            finish();
+        } catch (SQLException e) {
+            log.warn("Failed to stop insert writers: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!finished) {
+            abort();
+        }
+    }
+
+    private void finish() throws SQLException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            for (int i = 0; i < handlers.size(); i++) {
+                put(END);
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    fail(Long.MAX_VALUE, toSqlException(e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(Long.MAX_VALUE, new SQLException("Interrupted while waiting for insert writers", e));
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runWriter(ClickHouseService.DataHandler handler) throws InterruptedException {
+        Pending pending;
+        try {
+            while ((pending = queue.take()) != END) {
+                if (!failed) {
+                    try {
+                        handler.processBatch(pending.batch);
+                    } catch (SQLException | RuntimeException e) {
+                        fail(pending.sequence, toSqlException(e));
+                    }
+                }
+                pool.release(pending.batch);
+            }
+        } catch (InterruptedException e) {
+            handler.abort();
+            throw e;
+        }
+
+        if (!failed) {
+            try {
+                handler.complete();
+                return;
+            } catch (SQLException | RuntimeException e) {
+                fail(Long.MAX_VALUE, toSqlException(e));
+            }
+        }
+        handler.abort();
+    }
+
+    private void put(Pending pending) throws SQLException {
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while queueing rows for insert", e);
+        }
+    }
+
+    /**
+     * Records a failure, keeping the one raised for the earliest batch as the
+     * primary error.
+     */
+    private synchronized void fail(long batchSequence, SQLException e) {
+        failed = true;
+        if (failure == null) {
+            failure = e;
+            failedSequence = batchSequence;
+        } else if (batchSequence < failedSequence) {
+            e.addSuppressed(failure);
+            failure = e;
+            failedSequence = batchSequence;
+        } else if (e != failure) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private synchronized void throwIfFailed() throws SQLException {
+        if (failed) {
+            throw new SQLException("Insert failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    private static SQLException toSqlException(Throwable e) {
+        return e instanceof SQLException ? (SQLException) e : new SQLException(e.getMessage(), e);
+    }
+
+    private static final class Pending {
+        final long sequence;
+        final ColumnBatch batch;
+
+        Pending(long sequence, ColumnBatch batch) {
+            this.sequence = sequence;
+            this.batch = batch;
+        }
+    }
+}
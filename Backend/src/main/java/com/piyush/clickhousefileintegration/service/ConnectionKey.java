@@ -0,0 +1,24 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.util.Objects;
+
+import com.piyush.clickhousefileintegration.model.ClickHouseConfig;
+
+/**
+ * Identity of a ClickHouse connection for caches of what it can see. As in
+ * {@link ClickHouseConnectionPool}, the credential is part of the key, since
+ * what a user may see depends on it; connection options such as compression
+ * are not.
+ */
+record ConnectionKey(String host, int port, String database, String user, boolean secure, String credential) {
+
+    static ConnectionKey of(ClickHouseConfig config) {
+        return new ConnectionKey(config.getHost(), config.getPort(), config.getDatabase(), config.getUser(),
+                config.isSecure(), Objects.toString(config.getJwtToken(), ""));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s@%s:%d/%s", user, host, port, database);
+    }
+}
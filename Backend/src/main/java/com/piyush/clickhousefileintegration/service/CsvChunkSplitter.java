@@ -0,0 +1,288 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a delimited file into byte ranges that start and end on record
+ * boundaries, so that each range can be parsed independently.
+ *
+ * Boundaries are found with a single byte-level scan that tracks whether the
+ * scanner is inside a quoted field; a newline only ends a record when it is
+ * outside quotes, so quoted fields spanning several lines are never cut in
+ * half. The scan works on raw bytes and therefore only supports
+ * ASCII-compatible encodings (see {@link #supports(Charset)}).
+ *
+ * The file may still be arriving, e.g. from a {@link ParallelRangeDownloader}
+ * writing into a preallocated file: every read first waits on an
+ * {@link Availability}, and chunks are handed out as soon as their end is
+ * found, so the first chunks can be parsed while later ones download.
+ */
+public class CsvChunkSplitter {
+
+    private static final int SCAN_BUFFER_SIZE = 1024 * 1024;
+    private static final byte QUOTE = '"';
+    private static final byte NEWLINE = '\n';
+
+    /**
+     * A byte range [start, end) of the file containing whole records.
+     */
+    public record Chunk(int index, long start, long end) {
+        public long length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Tells readers when bytes of a file that is still being written can be
+     * read.
+     */
+    @FunctionalInterface
+    public interface Availability {
+
+        /** A file that is complete on disk. */
+        Availability COMPLETE = (from, to) -> {
+        };
+
+        /**
+         * Blocks until bytes [from, to) of the file are written.
+         *
+         * @throws IOException if they will never be, e.g. the download failed
+         */
+        void await(long from, long to) throws IOException;
+    }
+
+    /**
+     * Receives chunks in file order as they are found.
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(Chunk chunk) throws IOException, InterruptedException;
+    }
+
+    private CsvChunkSplitter() {
+    }
+
+    /**
+     * Returns true if record boundaries can be found by scanning raw bytes for
+     * the given encoding.
+     */
+    public static boolean supports(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1)
+                || charset.name().startsWith("windows-125");
+    }
+
+    /**
+     * Finds the end of the last complete record in a prefix of a file, e.g.
+     * the head of a file that was not read to its end.
+     *
+     * @param bytes  The first bytes of the file
+     * @param length Number of bytes to consider
+     * @return Position after the last newline outside quotes, or 0 if the
+     *         prefix holds no complete record
+     */
+    public static int lastRecordEnd(byte[] bytes, int length) {
+        int end = 0;
+        boolean inQuotes = false;
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (b == QUOTE) {
+                inQuotes = !inQuotes;
+            } else if (b == NEWLINE && !inQuotes) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Splits the file into at most {@code chunkCount} ranges of roughly equal
+     * size. If the file has a header, the header record is excluded from the
+     * first chunk.
+     *
+     * @param file       File to split
+     * @param hasHeader  Whether the first record is a header
+     * @param chunkCount Desired number of chunks
+     * @return Chunks in file order; fewer than requested if the file has fewer
+     *         record boundaries
+     * @throws IOException if the file cannot be read
+     */
+    public static List<Chunk> split(Path file, boolean hasHeader, int chunkCount) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try {
+            split(file, hasHeader, chunkCount, Availability.COMPLETE, chunks::add);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while splitting " + file, e);
+        }
+        return chunks;
+    }
+
+    /**
+     * Splits the file like {@link #split(Path, boolean, int)}, waiting for the
+     * bytes it scans and passing each chunk to the consumer as soon as its end
+     * is known.
+     *
+     * @param availability Waited on before every read of the file
+     * @param consumer     Receives the chunks in file order
+     * @return Number of chunks
+     */
+    public static int split(Path file, boolean hasHeader, int chunkCount, Availability availability,
+            ChunkConsumer consumer) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long dataStart = hasHeader ? findHeaderEnd(channel, size, availability) : 0;
+            long targetSize = Math.max(1, (size - dataStart) / Math.max(1, chunkCount));
+
+            int[] count = new int[1];
+            long[] start = {dataStart};
+            BoundaryConsumer emit = boundary -> {
+                if (boundary > start[0]) {
+                    consumer.accept(new Chunk(count[0]++, start[0], boundary));
+                    start[0] = boundary;
+                }
+            };
+
+            long nextTarget = dataStart + targetSize;
+            if (chunkCount > 1 && nextTarget < size) {
+                scanBoundaries(channel, dataStart, size, targetSize, chunkCount - 1, availability, emit);
+            }
+            emit.accept(size);
+            return count[0];
+        }
+    }
+
+    /**
+     * Opens an input stream over the bytes of a single chunk.
+     */
+    public static InputStream open(Path file, Chunk chunk) throws IOException {
+        return open(file, chunk, Availability.COMPLETE);
+    }
+
+    /**
+     * Opens an input stream over the bytes of a single chunk that waits for
+     * each range it reads to be available.
+     */
+    public static InputStream open(Path file, Chunk chunk, Availability availability) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(chunk.start());
+        return new RangeInputStream(Channels.newInputStream(channel), chunk.start(), chunk.length(), availability);
+    }
+
+    private static long findHeaderEnd(FileChannel channel, long size, Availability availability)
+            throws IOException, InterruptedException {
+        List<Long> first = new ArrayList<>();
+        scanBoundaries(channel, 0, size, 1, 1, availability, first::add);
+        return first.isEmpty() ? size : first.get(0);
+    }
+
+    @FunctionalInterface
+    private interface BoundaryConsumer {
+        void accept(long boundary) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Scans from {@code from} and records the first record boundary at or after
+     * each multiple of {@code targetSize}, stopping once {@code maxBoundaries}
+     * boundaries have been found.
+     */
+    private static void scanBoundaries(FileChannel channel, long from, long size, long targetSize,
+            int maxBoundaries, Availability availability, BoundaryConsumer boundaries)
+            throws IOException, InterruptedException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SCAN_BUFFER_SIZE);
+        long position = from;
+        long nextTarget = from + targetSize;
+        int found = 0;
+        boolean inQuotes = false;
+
+        while (position < size) {
+            buffer.clear();
+            availability.await(position, Math.min(size, position + buffer.capacity()));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == QUOTE) {
+                    // An escaped quote ("") toggles twice and leaves the state unchanged
+                    inQuotes = !inQuotes;
+                } else if (b == NEWLINE && !inQuotes) {
+                    long boundary = position + i + 1;
+                    if (boundary >= nextTarget && boundary < size) {
+                        boundaries.accept(boundary);
+                        if (++found >= maxBoundaries) {
+                            return;
+                        }
+                        nextTarget = boundary + targetSize;
+                    }
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Input stream limited to a fixed number of bytes of the wrapped stream,
+     * starting at {@code position} in the file.
+     */
+    private static final class RangeInputStream extends InputStream {
+        private final InputStream delegate;
+        private final Availability availability;
+        private long position;
+        private long remaining;
+
+        RangeInputStream(InputStream delegate, long position, long length, Availability availability) {
+            this.delegate = delegate;
+            this.availability = availability;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            availability.await(position, position + 1);
+            int b = delegate.read();
+            if (b >= 0) {
+                position++;
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int toRead = (int) Math.min(len, remaining);
+            availability.await(position, position + toRead);
+            int n = delegate.read(b, off, toRead);
+            if (n > 0) {
+                position += n;
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -5,10 +5,14 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.net.MalformedURLException;
@@ -22,16 +26,27 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
@@ -39,20 +54,105 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.piyush.clickhousefileintegration.model.ColumnMetadata;
 import com.piyush.clickhousefileintegration.model.FlatFileConfig;
+import com.piyush.clickhousefileintegration.service.IngestionMetrics.Stage;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class FlatFileService {
 
+    private static final int ORDERED_QUEUE_CAPACITY = 8;
+    private static final ColumnBatch END_OF_CHUNK = new ColumnBatch(ColumnBatch.Schema.allStrings(List.of()), 0);
+    private static final OrderedChunk NO_MORE_CHUNKS = new OrderedChunk(null, null);
+
+    private final IngestionMetrics metrics;
+    private final WorkerThreads workerThreads;
+
+    @Value("${flatfile.inference.head-rows:1000}")
+    private int inferenceHeadRows;
+
+    @Value("${flatfile.inference.reservoir-size:1000}")
+    private int inferenceReservoirSize;
+
+    @Value("${flatfile.inference.max-rows:100000}")
+    private long inferenceMaxRows;
+
+    @Value("${flatfile.inference.narrow-sampled-types:false}")
+    private boolean inferenceNarrowSampledTypes;
+
+    @Value("${flatfile.parser.projecting:true}")
+    private boolean projectingParser;
+
+    @Value("${flatfile.local.memory-mapped:true}")
+    private boolean localMemoryMapped;
+
+    @Value("${flatfile.url.streaming:true}")
+    private boolean urlStreaming;
+
+    @Value("${flatfile.url.max-retries:5}")
+    private int urlMaxRetries;
+
+    @Value("${flatfile.url.stall-timeout-ms:30000}")
+    private long urlStallTimeoutMs;
+
+    @Value("${flatfile.url.read-ahead-chunks:16}")
+    private int urlReadAheadChunks;
+
+    @Value("${flatfile.url.download-connections:4}")
+    private int urlDownloadConnections;
+
+    @Value("${flatfile.url.part-size-bytes:8388608}")
+    private long urlPartSizeBytes;
+
+    @Value("${flatfile.url.head-bytes:4194304}")
+    private int urlHeadBytes;
+
+    @Value("${flatfile.url.head-cache.ttl-ms:60000}")
+    private long urlHeadCacheTtlMs;
+
+    @Value("${flatfile.url.head-cache.max-entries:16}")
+    private int urlHeadCacheEntries;
+
+    /** Heads of URL sources by URL, access-ordered, guarded by itself */
+    private final Map<String, RemoteFileHead> urlHeads = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RemoteFileHead> eldest) {
+            return size() > urlHeadCacheEntries;
+        }
+    };
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private static boolean isUrl(String filePathOrUrl) {
+        if (filePathOrUrl == null) {
+            return false;
+        }
+        String lower = filePathOrUrl.toLowerCase();
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    private static HttpRequest.Builder urlRequest(String url) {
+        // Set user agent to avoid potential blocking
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("User-Agent", "Clickhouse-flatfile-Integration-Tool/1.0");
+    }
+
     /**
-     * Resolves a file path or URL to a local file path
+     * Resolves a file path or URL to a local file path. URLs are downloaded to
+     * a temporary file, which the caller must delete.
      * 
      * @param filePathOrUrl File path or URL string
      * @return Local file path
@@ -77,23 +177,12 @@ public class FlatFileService {
         }
 
         // Check if the input is a URL
-        if (filePathOrUrl.toLowerCase().startsWith("http://") || filePathOrUrl.toLowerCase().startsWith("https://")) {
+        if (isUrl(filePathOrUrl)) {
             log.info("Detected URL: {}", filePathOrUrl);
             try {
-                // Create a HttpClient object to make connection
-                HttpClient client = HttpClient.newBuilder()
-                        .connectTimeout(Duration.ofSeconds(10))
-                        .build();
-
-                // Set user agent to avoid potential blocking
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(filePathOrUrl))
-                        .timeout(Duration.ofSeconds(30))
-                        .header("User-Agent", "Clickhouse-flatfile-Integration-Tool/1.0")
-                        .GET()
-                        .build();
-
-                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                HttpRequest request = urlRequest(filePathOrUrl).GET().build();
+                HttpResponse<InputStream> response = httpClient.send(request,
+                        HttpResponse.BodyHandlers.ofInputStream());
 
                 // Check response code
                 if (response.statusCode() != 200) {
@@ -131,6 +220,10 @@ public class FlatFileService {
     /**
      * Reads the schema (column names and inferred types) from a flat file
      *
+     * For a URL source, names and types come from the head of the file only,
+     * which is shared with {@link #readData} for a while (see
+     * {@link #openSource}).
+     *
      * @param config Flat file configuration
      * @return List of column metadata
      * @throws IOException          if file reading fails
@@ -140,23 +233,183 @@ public class FlatFileService {
             throws IOException, InterruptedException {
         // validateConfig(config);
 
-        try (Reader reader = createReader(config, file)) {
+        RemoteFileHead head = isUploaded(file) ? null : fetchHead(config);
+        try (Reader reader = createReader(config, file, null, head)) {
             CSVFormat csvFormat = buildCsvFormat(config);
-            return parseColumns(reader, csvFormat, config.isHasHeader());
+            return parseColumns(reader, csvFormat, config.isHasHeader(), head != null && !head.isComplete());
         }
     }
 
+    /**
+     * Opens a reader for schema detection and previews, which only read the
+     * head of a URL source.
+     */
     private Reader createReader(FlatFileConfig config, MultipartFile file) throws IOException, InterruptedException {
-        if (file != null && !file.isEmpty()) {
+        return createReader(config, file, null, true);
+    }
+
+    private Reader createReader(FlatFileConfig config, MultipartFile file, IngestionProgress progress)
+            throws IOException, InterruptedException {
+        return createReader(config, file, progress, false);
+    }
+
+    /**
+     * Opens a reader over the uploaded file or the configured path/URL. Bytes
+     * read are counted in the metrics; when a progress tracker is given, the
+     * source size and every byte read are also reported to it.
+     */
+    private Reader createReader(FlatFileConfig config, MultipartFile file, IngestionProgress progress,
+            boolean headOnly) throws IOException, InterruptedException {
+        return createReader(config, file, progress, headOnly && !isUploaded(file) ? fetchHead(config) : null);
+    }
+
+    /**
+     * @param head Head of the URL source to read instead of the source, or
+     *             null
+     */
+    private Reader createReader(FlatFileConfig config, MultipartFile file, IngestionProgress progress,
+            RemoteFileHead head) throws IOException, InterruptedException {
+        InputStream in = new ProgressInputStream(openSource(config, file, progress, head), progress, metrics);
+        return new BufferedReader(new InputStreamReader(in, Charset.forName(config.getEncoding())));
+    }
+
+    private static boolean isUploaded(MultipartFile file) {
+        return file != null && !file.isEmpty();
+    }
+
+    /**
+     * Opens the uploaded file or the configured path/URL as a byte stream and
+     * reports its size, if known, to the progress tracker.
+     *
+     * With {@code headOnly}, a URL source is read only as far as the first
+     * {@code flatfile.url.head-bytes} bytes, cut after the last complete
+     * record and fetched with a Range request; the head is kept for
+     * {@code flatfile.url.head-cache.ttl-ms}, so schema detection and the
+     * previews that follow fetch it once. Sources whose encoding is not
+     * ASCII-compatible are read in full.
+     */
+    private InputStream openSource(FlatFileConfig config, MultipartFile file, IngestionProgress progress,
+            boolean headOnly) throws IOException, InterruptedException {
+        return openSource(config, file, progress, headOnly && !isUploaded(file) ? fetchHead(config) : null);
+    }
+
+    /**
+     * @param head Head of the URL source to read instead of the source, or
+     *             null
+     */
+    private InputStream openSource(FlatFileConfig config, MultipartFile file, IngestionProgress progress,
+            RemoteFileHead head) throws IOException, InterruptedException {
+        InputStream in;
+        if (isUploaded(file)) {
             log.info("Reading file directly from uploaded MultipartFile: {}", file.getOriginalFilename());
-            return new BufferedReader(
-                    new InputStreamReader(file.getInputStream(), Charset.forName(config.getEncoding())));
+            in = file.getInputStream();
+            if (progress != null) {
+                progress.setTotalBytes(file.getSize());
+            }
+        } else if (head != null) {
+            log.info("Reading the first {} bytes of file from URL: {}", head.getLength(), config.getFileName());
+            in = head.open();
+            if (progress != null) {
+                progress.setTotalBytes(head.getLength());
+            }
+        } else if (urlStreaming && isUrl(config.getFileName())) {
+            log.info("Streaming file from URL: {}", config.getFileName());
+            RemoteFileInputStream remote;
+            try {
+                remote = RemoteFileInputStream.open(httpClient, urlRequest(config.getFileName()), urlMaxRetries,
+                        urlStallTimeoutMs, urlReadAheadChunks, workerThreads.factory("url-download-", true));
+            } catch (IOException e) {
+                throw new IOException("Error downloading file from URL: " + e.getMessage(), e);
+            }
+            in = remote;
+            if (progress != null && remote.getContentLength() >= 0) {
+                progress.setTotalBytes(remote.getContentLength());
+            }
         } else {
             String resolvedPath = resolveFilePathOrUrl(config.getFileName());
             log.info("Reading file from resolved path/URL: {}", resolvedPath);
-            return new BufferedReader(
-                    new InputStreamReader(new FileInputStream(resolvedPath), Charset.forName(config.getEncoding())));
+            // A downloaded copy is only needed until the reader is closed
+            in = isUrl(config.getFileName())
+                    ? Files.newInputStream(Paths.get(resolvedPath), StandardOpenOption.DELETE_ON_CLOSE)
+                    : new FileInputStream(resolvedPath);
+            if (progress != null) {
+                progress.setTotalBytes(Files.size(Paths.get(resolvedPath)));
+            }
+        }
+        return in;
+    }
+
+    /**
+     * Returns the head of a URL source, from the cache if it was fetched within
+     * the TTL.
+     *
+     * @return The head, or null if the source is not a URL, head-only reads
+     *         are turned off or not possible for its encoding, or the head
+     *         holds no complete record
+     */
+    private RemoteFileHead fetchHead(FlatFileConfig config) throws IOException, InterruptedException {
+        String url = config.getFileName();
+        if (urlHeadBytes <= 0 || !isUrl(url) || !CsvChunkSplitter.supports(Charset.forName(config.getEncoding()))) {
+            return null;
+        }
+
+        synchronized (urlHeads) {
+            RemoteFileHead cached = urlHeads.get(url);
+            if (cached != null && cached.getFetchedAt() >= System.currentTimeMillis() - urlHeadCacheTtlMs) {
+                log.info("Using cached head of file from URL: {}", url);
+                return cached;
+            }
+            urlHeads.remove(url);
+        }
+
+        Optional<RemoteFileHead> head;
+        try {
+            head = RemoteFileHead.fetch(httpClient, urlRequest(url), urlHeadBytes);
+        } catch (IOException e) {
+            throw new IOException("Error downloading file from URL: " + e.getMessage(), e);
+        }
+        if (head.isEmpty()) {
+            log.info("No complete record in the first {} bytes, reading the whole file from URL: {}", urlHeadBytes,
+                    url);
+            return null;
         }
+        if (urlHeadCacheTtlMs > 0) {
+            synchronized (urlHeads) {
+                urlHeads.put(url, head.get());
+            }
+        }
+        return head.get();
+    }
+
+    /**
+     * Opens a {@link ByteCsvReader} over the uploaded file or the configured
+     * path/URL, memory-mapping local files unless that is turned off.
+     *
+     * @return The reader, or null if records must be parsed with commons-csv
+     *         (projecting parser turned off, or an encoding or delimiter that
+     *         is not ASCII-compatible)
+     */
+    private ByteCsvReader openByteReader(FlatFileConfig config, MultipartFile file, IngestionProgress progress,
+            boolean headOnly) throws IOException, InterruptedException {
+        if (!useByteReader(config)) {
+            return null;
+        }
+        char delimiter = config.getDelimiter().charAt(0);
+        Charset charset = Charset.forName(config.getEncoding());
+        if ((file == null || file.isEmpty()) && !isUrl(config.getFileName()) && localMemoryMapped) {
+            Path path = Paths.get(resolveFilePathOrUrl(config.getFileName()));
+            log.info("Reading memory-mapped file: {}", path);
+            if (progress != null) {
+                progress.setTotalBytes(Files.size(path));
+            }
+            return new MappedCsvReader(path, delimiter, charset);
+        }
+        return new StreamingCsvReader(openSource(config, file, progress, headOnly), delimiter, charset);
+    }
+
+    private boolean useByteReader(FlatFileConfig config) {
+        return projectingParser
+                && ByteCsvReader.supports(Charset.forName(config.getEncoding()), config.getDelimiter().charAt(0));
     }
 
     private CSVFormat buildCsvFormat(FlatFileConfig config) {
@@ -170,31 +423,47 @@ public class FlatFileService {
         return builder.build();
     }
 
-    private List<ColumnMetadata> parseColumns(Reader reader, CSVFormat csvFormat, boolean hasHeader)
-            throws IOException {
+    /**
+     * Reads column names from the header (or numbers them) and infers each
+     * column's ClickHouse type from a sample of the records, see
+     * {@link TypeInference}.
+     *
+     * @param partial Whether the reader holds only part of the file
+     */
+    private List<ColumnMetadata> parseColumns(Reader reader, CSVFormat csvFormat, boolean hasHeader,
+            boolean partial) throws IOException {
         List<ColumnMetadata> columns = new ArrayList<>();
 
         try (CSVParser csvParser = new CSVParser(reader, csvFormat)) {
+            Iterator<CSVRecord> records = csvParser.iterator();
+            List<String> names = new ArrayList<>();
+            CSVRecord first = null;
+
             if (hasHeader) {
-                Map<String, Integer> headerMap = csvParser.getHeaderMap();
-                for (String header : headerMap.keySet()) {
-                    columns.add(new ColumnMetadata(header, ""));
+                names.addAll(csvParser.getHeaderMap().keySet());
+            } else if (records.hasNext()) {
+                first = records.next();
+                for (int i = 0; i < first.size(); i++) {
+                    names.add("Column_" + (i + 1));
                 }
+            }
 
-                if (csvParser.iterator().hasNext()) {
-                    CSVRecord record = csvParser.iterator().next();
-                    for (int j = 0; j < headerMap.size(); j++) {
-                        String value = record.get(j);
-                        columns.get(j).setType(inferType(value));
-                    }
-                }
-            } else {
-                if (csvParser.iterator().hasNext()) {
-                    CSVRecord record = csvParser.iterator().next();
-                    for (int i = 0; i < record.size(); i++) {
-                        columns.add(new ColumnMetadata("Column_" + (i + 1), inferType(record.get(i))));
-                    }
-                }
+            TypeInference inference = new TypeInference(names.size(), inferenceNarrowSampledTypes);
+            if (first != null) {
+                inference.observe(first);
+            }
+            long startNanos = System.nanoTime();
+            inference = TypeInference.sample(records, inference, inferenceHeadRows - (first != null ? 1 : 0),
+                    inferenceReservoirSize, inferenceMaxRows - (first != null ? 1 : 0));
+            if (partial) {
+                inference.markSampled();
+            }
+            log.info("Inferred column types from {} in {} ms", inference.isSampled() ? "a sample" : "every row",
+                    (System.nanoTime() - startNanos) / 1_000_000);
+
+            List<String> types = inference.getTypes();
+            for (int i = 0; i < names.size(); i++) {
+                columns.add(new ColumnMetadata(names.get(i), types.get(i)));
             }
         }
 
@@ -202,123 +471,740 @@ public class FlatFileService {
     }
 
     /**
-     * Infers the data type of a value
+     * Reads data from a flat file
+     *
+     * For a URL source, rows are read from the head of the file only, see
+     * {@link #openSource}.
      *
-     * @param value String value to analyze
-     * @return Inferred type name
+     * @param config  Flat file configuration
+     * @param columns List of columns to read
+     * @param limit   Maximum number of rows to read (for preview)
+     * @return List of maps representing rows of data
+     * @throws IOException          if file reading fails
+     * @throws InterruptedException
      */
-    private String inferType(String value) {
-        if (value == null || value.isEmpty()) {
-            return "String";
+    public List<Map<String, Object>> readData(FlatFileConfig config,
+            MultipartFile file,
+            List<ColumnMetadata> columns,
+            int limit)
+            throws IOException, InterruptedException {
+
+        List<Map<String, Object>> results = new ArrayList<>();
+
+        // Validate config
+        if (config == null) {
+            throw new IOException("FlatFileConfig cannot be null");
         }
 
-        // Try to parse as integer
-        try {
-            Long.parseLong(value);
-            return "Integer";
-        } catch (NumberFormatException e) {
-            // Not an integer
+        // Validate columns
+        if (columns == null || columns.isEmpty()) {
+            log.warn("Column list is null or empty, nothing to preview");
+            return results;
+        }
+
+        // Get selected column names
+        List<String> selectedColumnNames = getSelectedColumnNames(columns);
+        if (selectedColumnNames.isEmpty()) {
+            log.warn("No valid columns available to preview after selection");
+            return results;
         }
 
-        // Try to parse as double
+        long start = System.nanoTime();
         try {
-            Double.parseDouble(value);
-            return "Double";
-        } catch (NumberFormatException e) {
-            // Not a double
+            ByteCsvReader byteReader = openByteReader(config, file, null, true);
+            if (byteReader != null) {
+                readProjected(byteReader, config, selectedColumnNames, limit, results);
+            } else {
+                readRecords(createReader(config, file), config, selectedColumnNames, limit, results);
+            }
+            metrics.recordBatch(Stage.PARSE, results.size(), System.nanoTime() - start);
+            log.info("Read {} records from file", results.size());
+
+        } catch (Exception e) {
+            log.error("Error reading data from file: {}", e.getMessage(), e);
+            throw new IOException("Error reading data from file: " + e.getMessage());
         }
 
-        // Try to parse as date (simplified check)
-        if (value.matches("\\d{4}-\\d{2}-\\d{2}") ||
-                value.matches("\\d{2}/\\d{2}/\\d{4}") ||
-                value.matches("\\d{2}-\\d{2}-\\d{4}")) {
-            return "Date";
+        return results;
+    }
+
+    /**
+     * Reads up to {@code limit} rows for {@link #readData}, decoding only the
+     * selected fields.
+     */
+    private void readProjected(ByteCsvReader reader, FlatFileConfig config, List<String> selectedColumnNames,
+            int limit, List<Map<String, Object>> results) throws IOException {
+        try (reader) {
+            List<String> headerNames = config.isHasHeader() ? readHeader(reader) : List.of();
+            log.info("CSV header: {}", headerNames);
+            ColumnProjection projection = ColumnProjection.resolve(selectedColumnNames, headerNames, config.isHasHeader());
+
+            while ((limit <= 0 || results.size() < limit) && reader.next()) {
+                results.add(projection.toMap(reader));
+            }
         }
+    }
 
-        // Try to parse as boolean
-        String lowerValue = value.toLowerCase();
-        if (lowerValue.equals("true") || lowerValue.equals("false") ||
-                lowerValue.equals("yes") || lowerValue.equals("no") ||
-                lowerValue.equals("1") || lowerValue.equals("0")) {
-            return "Boolean";
+    /**
+     * Reads up to {@code limit} rows for {@link #readData} with commons-csv,
+     * for sources the byte-level readers do not support.
+     */
+    private void readRecords(Reader reader, FlatFileConfig config, List<String> selectedColumnNames, int limit,
+            List<Map<String, Object>> results) throws IOException {
+        CSVFormat.Builder formatBuilder = CSVFormat.DEFAULT.builder()
+                .setAllowMissingColumnNames(true)
+                .setDelimiter(config.getDelimiter().charAt(0));
+        if (config.isHasHeader()) {
+            formatBuilder.setHeader().setSkipHeaderRecord(true);
         }
 
-        // Default to string
-        return "String";
+        try (CSVParser csvParser = new CSVParser(reader, formatBuilder.build())) {
+            List<String> headerNames = config.isHasHeader() ? csvParser.getHeaderNames() : List.of();
+            log.info("CSV header: {}", headerNames);
+            ColumnProjection projection = ColumnProjection.resolve(selectedColumnNames, headerNames, config.isHasHeader());
+
+            for (CSVRecord record : csvParser) {
+                if (limit > 0 && results.size() >= limit) {
+                    break;
+                }
+                results.add(projection.toMap(record));
+            }
+        }
     }
 
     /**
-     * Reads data from a flat file
+     * Streams data from a flat file into a DataHandler in column batches.
+     *
+     * Unlike {@link #readData}, rows are never collected into a list: parsed
+     * records are copied into a single recycled {@link ColumnBatch} that is
+     * handed to the handler whenever it fills up, so memory use is bounded by
+     * one batch plus whatever the handler buffers (e.g. one insert batch).
+     * Records are split by a {@link ByteCsvReader}, which only extracts the
+     * selected fields, so the cost of a wide file follows the number of
+     * selected columns; local files are memory-mapped. commons-csv is used
+     * when {@code flatfile.parser.projecting} is off or the encoding or
+     * delimiter is not ASCII-compatible. If reading, cancellation or the
+     * handler fails, the handler is aborted before the error is rethrown.
      *
      * @param config  Flat file configuration
+     * @param file    Uploaded file, or null to read from the configured path/URL
      * @param columns List of columns to read
-     * @param limit   Maximum number of rows to read (for preview)
-     * @return List of maps representing rows of data
+     * @param handler  DataHandler receiving the batches
+     * @param progress Progress tracker receiving bytes read from the source
+     * @return Number of records streamed to the handler
      * @throws IOException          if file reading fails
+     * @throws SQLException         if the handler fails to process a row
      * @throws InterruptedException
      */
-    public List<Map<String, Object>> readData(FlatFileConfig config,
+    public int streamData(FlatFileConfig config,
             MultipartFile file,
             List<ColumnMetadata> columns,
-            int limit)
-            throws IOException, InterruptedException {
-
-        List<Map<String, Object>> results = new ArrayList<>();
+            ClickHouseService.DataHandler handler,
+            IngestionProgress progress)
+            throws IOException, SQLException, InterruptedException {
 
-        // Validate config
         if (config == null) {
             throw new IOException("FlatFileConfig cannot be null");
         }
 
-        // Validate columns
         if (columns == null || columns.isEmpty()) {
-            log.warn("Column list is null or empty, nothing to preview");
-            return results;
+            log.warn("Column list is null or empty, nothing to stream");
+            return 0;
         }
 
-        // Get selected column names
         List<String> selectedColumnNames = getSelectedColumnNames(columns);
         if (selectedColumnNames.isEmpty()) {
-            log.warn("No valid columns available to preview after selection");
-            return results;
+            log.warn("No valid columns available to stream after selection");
+            return 0;
+        }
+
+        try {
+            ByteCsvReader byteReader = openByteReader(config, file, progress, false);
+            if (byteReader != null) {
+                return streamProjected(byteReader, config, selectedColumnNames, handler, progress);
+            }
+            return streamRecords(config, file, selectedColumnNames, handler, progress);
+        } catch (IOException | SQLException | InterruptedException | RuntimeException e) {
+            handler.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Streams a flat file like {@link #streamData}, parsing it with
+     * commons-csv.
+     */
+    private int streamRecords(FlatFileConfig config, MultipartFile file, List<String> selectedColumnNames,
+            ClickHouseService.DataHandler handler, IngestionProgress progress)
+            throws IOException, SQLException, InterruptedException {
+
+        CSVFormat.Builder formatBuilder = CSVFormat.DEFAULT.builder()
+                .setAllowMissingColumnNames(true)
+                .setDelimiter(config.getDelimiter().charAt(0));
+        if (config.isHasHeader()) {
+            formatBuilder.setHeader().setSkipHeaderRecord(true);
+        }
+        CSVFormat csvFormat = formatBuilder.build();
+
+        int rowCount = 0;
+        try (Reader reader = createReader(config, file, progress);
+                CSVParser csvParser = new CSVParser(reader, csvFormat)) {
+            List<String> headerNames = config.isHasHeader() ? csvParser.getHeaderNames() : List.of();
+            log.info("CSV header: {}", headerNames);
+            ColumnProjection projection = ColumnProjection.resolve(selectedColumnNames, headerNames, config.isHasHeader());
+
+            ColumnBatchPool pool = new ColumnBatchPool(ColumnBatch.Schema.allStrings(selectedColumnNames),
+                    ColumnBatch.DEFAULT_CAPACITY, 1);
+            ColumnBatch batch = pool.acquire();
+            long batchStart = System.nanoTime();
+            for (CSVRecord record : csvParser) {
+                projection.copy(record, batch);
+                rowCount++;
+
+                if (batch.isFull()) {
+                    metrics.recordBatch(Stage.PARSE, batch.size(), System.nanoTime() - batchStart);
+                    handler.processBatch(batch);
+                    batch.clear();
+                    batchStart = System.nanoTime();
+                }
+                if (rowCount % 100000 == 0) {
+                    log.info("Streamed {} records from file", rowCount);
+                }
+            }
+            if (!batch.isEmpty()) {
+                metrics.recordBatch(Stage.PARSE, batch.size(), System.nanoTime() - batchStart);
+                handler.processBatch(batch);
+            }
+            pool.release(batch);
+        } catch (UncheckedIOException e) {
+            // CSVParser's iterator wraps read failures in UncheckedIOException
+            throw new IOException("Error reading data from file: " + e.getMessage(), e);
+        }
+
+        handler.complete();
+        log.info("Streamed {} records from file", rowCount);
+        return rowCount;
+    }
+
+    /**
+     * Streams a flat file like {@link #streamData}, reading it through a
+     * {@link ByteCsvReader} instead of a Reader and commons-csv.
+     */
+    private int streamProjected(ByteCsvReader reader, FlatFileConfig config, List<String> selectedColumnNames,
+            ClickHouseService.DataHandler handler, IngestionProgress progress) throws IOException, SQLException {
+
+        int rowCount;
+        try (reader) {
+            List<String> headerNames = config.isHasHeader() ? readHeader(reader) : List.of();
+            countBytesRead(reader, 0, progress);
+            log.info("CSV header: {}", headerNames);
+            ColumnProjection projection = ColumnProjection.resolve(selectedColumnNames, headerNames, config.isHasHeader());
+
+            ColumnBatchPool pool = new ColumnBatchPool(ColumnBatch.Schema.allStrings(selectedColumnNames),
+                    ColumnBatch.DEFAULT_CAPACITY, 1);
+            rowCount = parseProjected(reader, pool, projection, batch -> {
+                handler.processBatch(batch);
+                pool.release(batch);
+            }, progress);
+        }
+
+        handler.complete();
+        log.info("Streamed {} records from file", rowCount);
+        return rowCount;
+    }
+
+    /**
+     * Reads the first record of a byte-level reader as column names.
+     */
+    private static List<String> readHeader(ByteCsvReader reader) throws IOException {
+        List<String> headerNames = new ArrayList<>();
+        if (reader.next()) {
+            for (int i = 0; i < reader.size(); i++) {
+                headerNames.add(reader.get(i));
+            }
+        }
+        return headerNames;
+    }
+
+    /**
+     * Streams data from a local or downloaded flat file using several parser
+     * threads.
+     *
+     * The file is split into byte ranges on record boundaries (see
+     * {@link CsvChunkSplitter}) and each range is parsed on its own worker into
+     * column batches drawn from a shared {@link ColumnBatchPool}. In unordered
+     * mode every worker writes to its own handler obtained from
+     * {@code handlerFactory}, giving one concurrent insert stream per chunk. In
+     * ordered mode chunks are still parsed concurrently, but their batches are
+     * handed to a single handler strictly in file order through bounded
+     * per-chunk queues, and returned to the pool once consumed.
+     *
+     * A URL whose server accepts byte ranges is downloaded over several
+     * connections by a {@link ParallelRangeDownloader}; each chunk is handed to
+     * its worker as soon as the splitter has found its end, and the worker
+     * waits for the ranges it reads, so parsing starts before the download
+     * finishes. Other URLs are downloaded in full first.
+     *
+     * Per-chunk throughput is logged as each chunk completes. If any chunk fails
+     * the remaining workers are cancelled; rows already inserted by other chunks
+     * are not rolled back.
+     *
+     * @param config         Flat file configuration; must reference a path or
+     *                       URL
+     * @param columns        List of columns to read
+     * @param parallelism    Number of chunks and parser threads
+     * @param preserveOrder  Whether rows must reach the target in file order
+     * @param handlerFactory Creates the handler(s) receiving the rows
+     * @param progress       Progress tracker receiving bytes read from the
+     *                       source
+     * @return Number of records streamed
+     * @throws IOException          if file reading fails
+     * @throws SQLException         if a handler fails
+     * @throws InterruptedException
+     */
+    public int streamDataParallel(FlatFileConfig config,
+            List<ColumnMetadata> columns,
+            int parallelism,
+            boolean preserveOrder,
+            ClickHouseService.DataHandlerFactory handlerFactory,
+            IngestionProgress progress)
+            throws IOException, SQLException, InterruptedException {
+
+        if (config == null) {
+            throw new IOException("FlatFileConfig cannot be null");
+        }
+
+        Charset charset = Charset.forName(config.getEncoding());
+        if (!CsvChunkSplitter.supports(charset)) {
+            throw new IOException("Parallel parsing is not supported for encoding " + charset);
+        }
+
+        List<String> selectedColumnNames = getSelectedColumnNames(columns);
+        if (selectedColumnNames.isEmpty()) {
+            log.warn("No valid columns available to stream after selection");
+            return 0;
+        }
+
+        ParallelRangeDownloader download = startParallelDownload(config.getFileName());
+        Path path = download != null ? download.getTarget() : Paths.get(resolveFilePathOrUrl(config.getFileName()));
+        try {
+            return streamChunks(path, download != null ? download : CsvChunkSplitter.Availability.COMPLETE, config,
+                    charset, selectedColumnNames, Math.max(1, parallelism), preserveOrder, handlerFactory, progress);
+        } finally {
+            if (download != null) {
+                download.close();
+            }
+            // Chunks are read by offset, so a URL is parsed from a temporary copy
+            if (isUrl(config.getFileName())) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Starts downloading a URL in parallel ranges into a temporary file.
+     *
+     * @return The running download, or null if the source is not a URL, only
+     *         one connection is configured, or the server does not serve
+     *         ranges
+     */
+    private ParallelRangeDownloader startParallelDownload(String fileName) throws IOException, InterruptedException {
+        if (!isUrl(fileName) || urlDownloadConnections <= 1) {
+            return null;
+        }
+        Path target = Files.createTempFile("temp_download_", ".csv");
+        try {
+            ParallelRangeDownloader download = ParallelRangeDownloader.start(httpClient, urlRequest(fileName), target,
+                    urlDownloadConnections, urlPartSizeBytes, urlMaxRetries, urlStallTimeoutMs,
+                    workerThreads.factory("url-download-", true));
+            if (download != null) {
+                return download;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw new IOException("Error downloading file from URL: " + e.getMessage(), e);
+        }
+        Files.deleteIfExists(target);
+        return null;
+    }
+
+    /**
+     * Splits the file and parses each chunk as soon as its end is found and,
+     * for a file still downloading, as its bytes arrive.
+     */
+    private int streamChunks(Path path, CsvChunkSplitter.Availability availability, FlatFileConfig config,
+            Charset charset, List<String> selectedColumnNames, int parallelism, boolean preserveOrder,
+            ClickHouseService.DataHandlerFactory handlerFactory, IngestionProgress progress)
+            throws IOException, SQLException, InterruptedException {
+
+        progress.setTotalBytes(Files.size(path));
+        List<String> headerNames = config.isHasHeader()
+                ? readHeaderNames(path, availability, config, charset)
+                : List.of();
+        ColumnProjection projection = ColumnProjection.resolve(selectedColumnNames, headerNames, config.isHasHeader());
+        log.info("Parsing {} in up to {} chunks ({})", path, parallelism, preserveOrder ? "ordered" : "unordered");
+
+        ChunkSource source = new ChunkSource(path, availability, charset,
+                CSVFormat.DEFAULT.builder().setDelimiter(config.getDelimiter().charAt(0)).build(),
+                new ColumnBatchPool(ColumnBatch.Schema.allStrings(selectedColumnNames),
+                        ColumnBatch.DEFAULT_CAPACITY, parallelism * (ORDERED_QUEUE_CAPACITY + 2)),
+                projection, progress, useByteReader(config));
+
+        // One thread per chunk, plus the splitter when rows are kept in order
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism + 1,
+                workerThreads.factory("csv-chunk-", true));
+        try {
+            return preserveOrder
+                    ? streamChunksOrdered(source, config.isHasHeader(), parallelism, handlerFactory.create(),
+                            executor)
+                    : streamChunksUnordered(source, config.isHasHeader(), parallelism, handlerFactory, executor);
+        } finally {
+            // A failed chunk interrupts the others; their handlers must be aborted before the caller
+            // releases the connections they insert over
+            WorkerThreads.shutdownAndAwait(executor);
+            log.info("Allocated {} column batches for up to {} chunks", source.pool().getCreated(), parallelism);
+        }
+    }
+
+    private int streamChunksUnordered(ChunkSource source, boolean hasHeader, int parallelism,
+            ClickHouseService.DataHandlerFactory handlerFactory, ExecutorService executor)
+            throws IOException, SQLException, InterruptedException {
+
+        // Chunks are awaited as they finish, so that the first failure cancels the rest
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+        int chunkCount = CsvChunkSplitter.split(source.path(), hasHeader, parallelism, source.availability(),
+                chunk -> completion.submit(() -> {
+                    ClickHouseService.DataHandler handler = handlerFactory.create();
+                    boolean completed = false;
+                    try {
+                        int rows = parseChunk(source, chunk, batch -> {
+                            handler.processBatch(batch);
+                            source.pool().release(batch);
+                        });
+                        handler.complete();
+                        completed = true;
+                        return rows;
+                    } finally {
+                        if (!completed) {
+                            handler.abort();
+                        }
+                    }
+                }));
+
+        int total = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            total += awaitChunk(completion.take());
+        }
+        log.info("Streamed {} records from {} chunks", total, chunkCount);
+        return total;
+    }
+
+    private int streamChunksOrdered(ChunkSource source, boolean hasHeader, int parallelism,
+            ClickHouseService.DataHandler handler, ExecutorService executor)
+            throws IOException, SQLException, InterruptedException {
+
+        // Chunks are queued in file order while the splitter is still looking for later ones
+        BlockingQueue<OrderedChunk> chunks = new LinkedBlockingQueue<>();
+        Future<Integer> splitting = executor.submit(() -> {
+            try {
+                return CsvChunkSplitter.split(source.path(), hasHeader, parallelism, source.availability(), chunk -> {
+                    BlockingQueue<ColumnBatch> queue = new ArrayBlockingQueue<>(ORDERED_QUEUE_CAPACITY);
+                    Future<Integer> rows = executor.submit(() -> {
+                        try {
+                            return parseChunk(source, chunk, batch -> enqueue(queue, batch));
+                        } finally {
+                            queue.put(END_OF_CHUNK);
+                        }
+                    });
+                    chunks.put(new OrderedChunk(queue, rows));
+                });
+            } finally {
+                chunks.put(NO_MORE_CHUNKS);
+            }
+        });
+
+        int total = 0;
+        int chunkCount;
+        boolean completed = false;
+        try {
+            OrderedChunk chunk;
+            while ((chunk = chunks.take()) != NO_MORE_CHUNKS) {
+                ColumnBatch batch;
+                while ((batch = chunk.batches().take()) != END_OF_CHUNK) {
+                    handler.processBatch(batch);
+                    source.pool().release(batch);
+                }
+                total += awaitChunk(chunk.rows());
+            }
+            chunkCount = awaitChunk(splitting);
+
+            handler.complete();
+            completed = true;
+        } finally {
+            if (!completed) {
+                handler.abort();
+            }
+        }
+        log.info("Streamed {} records from {} chunks in file order", total, chunkCount);
+        return total;
+    }
+
+    /**
+     * Parses one chunk into batches from the pool. Each full batch is passed to
+     * the consumer, which takes ownership and must release it to the pool.
+     */
+    private int parseChunk(ChunkSource source, CsvChunkSplitter.Chunk chunk, BatchConsumer consumer)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        int rows;
+        if (source.projecting()) {
+            try (ByteCsvReader reader = openChunk(source, chunk)) {
+                rows = parseProjected(reader, source.pool(), source.projection(), consumer, source.progress());
+            }
+        } else {
+            rows = parseRecords(source, chunk, consumer);
+        }
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        log.info("Chunk {} [{}-{}): {} rows, {} bytes in {} ms ({} MB/s, {} rows/s)",
+                chunk.index(), chunk.start(), chunk.end(), rows, chunk.length(),
+                Math.round(seconds * 1000),
+                String.format("%.1f", chunk.length() / seconds / (1024 * 1024)),
+                Math.round(rows / seconds));
+        return rows;
+    }
+
+    /**
+     * Opens a chunk for byte-level parsing: memory-mapped once the file is
+     * complete, otherwise as a stream that waits for the bytes it reads.
+     */
+    private ByteCsvReader openChunk(ChunkSource source, CsvChunkSplitter.Chunk chunk) throws IOException {
+        char delimiter = source.format().getDelimiterString().charAt(0);
+        if (localMemoryMapped && source.availability() == CsvChunkSplitter.Availability.COMPLETE) {
+            return new MappedCsvReader(source.path(), chunk.start(), chunk.end(), delimiter, source.charset());
+        }
+        return new StreamingCsvReader(CsvChunkSplitter.open(source.path(), chunk, source.availability()), delimiter,
+                source.charset());
+    }
+
+    private int parseRecords(ChunkSource source, CsvChunkSplitter.Chunk chunk, BatchConsumer consumer)
+            throws IOException, SQLException {
+        int rows = 0;
+        ColumnBatchPool pool = source.pool();
+        ColumnBatch batch = pool.acquire();
+        long batchStart = System.nanoTime();
+        try (Reader reader = new BufferedReader(new InputStreamReader(new ProgressInputStream(
+                CsvChunkSplitter.open(source.path(), chunk, source.availability()), source.progress(), metrics),
+                source.charset()));
+                CSVParser parser = new CSVParser(reader, source.format())) {
+            for (CSVRecord record : parser) {
+                source.projection().copy(record, batch);
+                rows++;
+                if (batch.isFull()) {
+                    ColumnBatch full = batch;
+                    batch = null;
+                    metrics.recordBatch(Stage.PARSE, full.size(), System.nanoTime() - batchStart);
+                    consumer.accept(full);
+                    batch = pool.acquire();
+                    batchStart = System.nanoTime();
+                }
+            }
+            if (!batch.isEmpty()) {
+                metrics.recordBatch(Stage.PARSE, batch.size(), System.nanoTime() - batchStart);
+                ColumnBatch last = batch;
+                batch = null;
+                consumer.accept(last);
+            }
+        } catch (UncheckedIOException e) {
+            throw new IOException("Error reading chunk " + chunk.index() + ": " + e.getMessage(), e);
+        } finally {
+            if (batch != null) {
+                pool.release(batch);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the remaining records of a byte-level reader into batches from the
+     * pool, copying only the selected fields. Each full batch is passed to the
+     * consumer, which takes ownership and must release it to the pool.
+     */
+    private int parseProjected(ByteCsvReader reader, ColumnBatchPool pool, ColumnProjection projection,
+            BatchConsumer consumer, IngestionProgress progress) throws IOException, SQLException {
+        int rows = 0;
+        long position = reader.getPosition();
+        ColumnBatch batch = pool.acquire();
+        long batchStart = System.nanoTime();
+        try {
+            while (reader.next()) {
+                projection.copy(reader, batch);
+                rows++;
+                if (batch.isFull()) {
+                    ColumnBatch full = batch;
+                    batch = null;
+                    metrics.recordBatch(Stage.PARSE, full.size(), System.nanoTime() - batchStart);
+                    position = countBytesRead(reader, position, progress);
+                    consumer.accept(full);
+                    batch = pool.acquire();
+                    batchStart = System.nanoTime();
+                }
+            }
+            if (!batch.isEmpty()) {
+                metrics.recordBatch(Stage.PARSE, batch.size(), System.nanoTime() - batchStart);
+                ColumnBatch last = batch;
+                batch = null;
+                consumer.accept(last);
+            }
+            countBytesRead(reader, position, progress);
+        } finally {
+            if (batch != null) {
+                pool.release(batch);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reports the bytes a byte-level reader consumed since {@code position},
+     * as {@link ProgressInputStream} does for Readers.
+     *
+     * @return The reader's current position
+     */
+    private long countBytesRead(ByteCsvReader reader, long position, IngestionProgress progress) {
+        long current = reader.getPosition();
+        if (progress != null) {
+            progress.addBytesRead(current - position);
         }
+        metrics.addBytes(Stage.PARSE, current - position);
+        return current;
+    }
 
-        // Determine file input source
-        Reader reader = createReader(config, file);
+    private int awaitChunk(Future<Integer> future) throws IOException, SQLException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            }
+            throw new IOException("Chunk parsing failed: " + cause.getMessage(), cause);
+        }
+    }
 
-        CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
+    private static void enqueue(BlockingQueue<ColumnBatch> queue, ColumnBatch batch) throws SQLException {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while queueing parsed rows", e);
+        }
+    }
+
+    private List<String> readHeaderNames(Path path, CsvChunkSplitter.Availability availability, FlatFileConfig config,
+            Charset charset) throws IOException {
+        CSVFormat headerFormat = CSVFormat.DEFAULT.builder()
                 .setHeader()
-                .setSkipHeaderRecord(config.isHasHeader())
-                .setIgnoreHeaderCase(true)
+                .setSkipHeaderRecord(true)
                 .setAllowMissingColumnNames(true)
                 .setDelimiter(config.getDelimiter().charAt(0))
                 .build();
+        CsvChunkSplitter.Chunk wholeFile = new CsvChunkSplitter.Chunk(0, 0, Files.size(path));
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                CsvChunkSplitter.open(path, wholeFile, availability), charset));
+                CSVParser parser = new CSVParser(reader, headerFormat)) {
+            return parser.getHeaderNames();
+        }
+    }
 
-        try (CSVParser csvParser = new CSVParser(reader, csvFormat)) {
-            int rowCount = 0;
-            Map<String, Integer> headerMap = csvParser.getHeaderMap();
-            log.info("CSV header map: {}", headerMap);
+    /**
+     * Reports the number of bytes read from the source to the metrics and, if
+     * present, to a progress tracker.
+     */
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final IngestionProgress progress;
+        private final IngestionMetrics metrics;
+
+        ProgressInputStream(InputStream in, IngestionProgress progress, IngestionMetrics metrics) {
+            super(in);
+            this.progress = progress;
+            this.metrics = metrics;
+        }
 
-            for (CSVRecord record : csvParser) {
-                if (limit > 0 && rowCount >= limit)
-                    break;
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
 
-                Map<String, Object> row = config.isHasHeader()
-                        ? readRowUsingHeader(record, selectedColumnNames, headerMap)
-                        : readRowUsingIndex(record, selectedColumnNames);
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
 
-                results.add(row);
-                rowCount++;
+        private void count(int n) {
+            if (progress != null) {
+                progress.addBytesRead(n);
             }
+            metrics.addBytes(Stage.PARSE, n);
+        }
+    }
 
-            log.info("Read {} records from file", rowCount);
+    /**
+     * Counts the bytes written to the output in the metrics.
+     */
+    private static final class MeteredOutputStream extends FilterOutputStream {
+        private final IngestionMetrics metrics;
 
-        } catch (Exception e) {
-            log.error("Error reading data from file: {}", e.getMessage(), e);
-            throw new IOException("Error reading data from file: " + e.getMessage());
+        MeteredOutputStream(OutputStream out, IngestionMetrics metrics) {
+            super(out);
+            this.metrics = metrics;
         }
 
-        return results;
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            metrics.addBytes(Stage.WRITE, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            metrics.addBytes(Stage.WRITE, len);
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchConsumer {
+        void accept(ColumnBatch batch) throws SQLException;
+    }
+
+    /**
+     * What every chunk parser of one file shares.
+     */
+    private record ChunkSource(Path path, CsvChunkSplitter.Availability availability, Charset charset,
+            CSVFormat format, ColumnBatchPool pool, ColumnProjection projection, IngestionProgress progress,
+            boolean projecting) {
+    }
+
+    /**
+     * A chunk being parsed for an ordered stream: its batches, followed by
+     * {@link #END_OF_CHUNK}, and its row count.
+     */
+    private record OrderedChunk(BlockingQueue<ColumnBatch> batches, Future<Integer> rows) {
     }
 
     private List<String> getSelectedColumnNames(List<ColumnMetadata> columns) {
@@ -339,88 +1225,71 @@ public class FlatFileService {
     }
 
     /**
-     * Constructs a row map from a CSV record using custom or undefined column names
-     * (by index).
-     *
-     * This method assumes the CSV has no headers and maps each value in the record
-     * to the corresponding
-     * column name in the provided list. If the record has fewer fields than column
-     * names, remaining
-     * values are filled with empty strings.
+     * Creates a DataHandler for writing to a flat file.
      *
-     * @param record      The CSV record to extract data from.
-     * @param columnNames List of column names to map values to (ordered by
-     *                    position).
-     * @return A map representing a row with column names as keys and record values
-     *         as values.
+     * @param config  Flat file configuration
+     * @param columns List of columns to write
+     * @return DataHandler for writing to the flat file
      */
+    public ClickHouseService.DataHandler createFlatFileDataHandler(FlatFileConfig config,
+            List<ColumnMetadata> columns, AtomicReference<File> generatedFileRef, String tableName) {
 
-    private Map<String, Object> readRowUsingIndex(CSVRecord record, List<String> columnNames) {
-        Map<String, Object> row = new HashMap<>();
-        for (int i = 0; i < columnNames.size(); i++) {
-            String value = i < record.size() ? record.get(i) : "";
-            row.put(columnNames.get(i), value);
-        }
-        return row;
+        return new CsvDataHandler(config, getSelectedColumnNamesOrEmpty(columns), true, metrics, () -> {
+            // ✅ Create a temp file with tableName.csv
+            File tempFile = File.createTempFile(tableName, ".csv");
+            generatedFileRef.set(tempFile);
+            return new FileOutputStream(tempFile);
+        });
     }
 
     /**
-     * Constructs a row map from a CSV record using defined column names from the
-     * header.
+     * Creates a DataHandler that writes CSV straight to an output stream, such
+     * as an HTTP response body, without an intermediate file.
      *
-     * This method attempts to retrieve values based on the provided column names.
-     * If a column name
-     * does not directly match a header in the CSV, a case-insensitive match is
-     * attempted.
-     * If no match is found, the value is set as an empty string.
+     * The header record is written and flushed immediately, so the client
+     * receives its first bytes before the query has produced any rows. Writes
+     * block when the stream cannot accept more data, which in turn pauses
+     * reading from ClickHouse.
      *
-     * @param record      The CSV record to extract data from.
-     * @param columnNames List of expected column names.
-     * @param headerMap   The header map from the CSV parser for name lookup.
-     * @return A map representing a row with column names as keys and corresponding
-     *         record values.
+     * @param config  Flat file configuration
+     * @param columns List of columns to write
+     * @param out     Destination stream; closed on completion
+     * @return DataHandler for writing to the stream
+     * @throws SQLException if the header cannot be written
      */
-
-    private Map<String, Object> readRowUsingHeader(CSVRecord record, List<String> columnNames,
-            Map<String, Integer> headerMap) {
-        Map<String, Object> row = new HashMap<>();
-
-        for (String columnName : columnNames) {
-            try {
-                String value = record.get(columnName);
-                row.put(columnName, value);
-            } catch (IllegalArgumentException e) {
-                // Try case-insensitive match
-                boolean found = false;
-                for (String header : headerMap.keySet()) {
-                    if (header.equalsIgnoreCase(columnName)) {
-                        row.put(columnName, record.get(header));
-                        found = true;
-                        break;
-                    }
-                }
-
-                if (!found) {
-                    log.warn("Column '{}' not found in CSV header", columnName);
-                    row.put(columnName, "");
-                }
-            }
-        }
-
-        return row;
+    public ClickHouseService.DataHandler createFlatFileStreamHandler(FlatFileConfig config,
+            List<ColumnMetadata> columns, OutputStream out) throws SQLException {
+
+        CsvDataHandler handler = new CsvDataHandler(config, getSelectedColumnNamesOrEmpty(columns), true, metrics,
+                () -> out);
+        handler.open();
+        handler.flush();
+        return handler;
     }
 
     /**
-     * Creates a DataHandler for writing to a flat file.
+     * Creates a DataHandler that writes one split of a parallel export as CSV
+     * to an output stream. Splits after the first are appended to it, so they
+     * are written without a header record.
      *
      * @param config  Flat file configuration
      * @param columns List of columns to write
-     * @return DataHandler for writing to the flat file
+     * @param out     Destination stream; closed on completion
+     * @param header  Whether to start with a header record
+     * @return DataHandler for writing to the stream
+     * @throws SQLException if the stream cannot be opened
      */
-    public ClickHouseService.DataHandler createFlatFileDataHandler(FlatFileConfig config,
-            List<ColumnMetadata> columns, AtomicReference<File> generatedFileRef, String tableName) {
+    public ClickHouseService.DataHandler createFlatFileShardHandler(FlatFileConfig config,
+            List<ColumnMetadata> columns, OutputStream out, boolean header) throws SQLException {
 
-        List<String> selectedColumnNames = Optional.ofNullable(columns)
+        CsvDataHandler handler = new CsvDataHandler(config, getSelectedColumnNamesOrEmpty(columns), header,
+                metrics, () -> out);
+        handler.open();
+        return handler;
+    }
+
+    private List<String> getSelectedColumnNamesOrEmpty(List<ColumnMetadata> columns) {
+        return Optional.ofNullable(columns)
                 .map(list -> list.stream()
                         .filter(Objects::nonNull)
                         .filter(ColumnMetadata::isSelected)
@@ -431,71 +1300,109 @@ public class FlatFileService {
                     log.warn("Received null column list; no columns will be processed.");
                     return Collections.emptyList();
                 });
+    }
 
-        return new ClickHouseService.DataHandler() {
-            private CSVPrinter csvPrinter;
-            private Writer writer;
-            private int recordCount = 0;
+    @FunctionalInterface
+    private interface OutputStreamSupplier {
+        OutputStream open() throws IOException;
+    }
 
-            @Override
-            public void processRow(Map<String, Object> row) throws SQLException {
-                try {
-                    if (csvPrinter == null) {
-                        log.info("Initializing CSV printer with columns: {}", selectedColumnNames);
+    /**
+     * Writes rows as CSV to a lazily opened output stream.
+     */
+    private static final class CsvDataHandler implements ClickHouseService.DataHandler {
+        private final FlatFileConfig config;
+        private final List<String> selectedColumnNames;
+        private final boolean header;
+        private final OutputStreamSupplier outputSupplier;
+        private final IngestionMetrics metrics;
+        private final ClickHouseService.BatchColumns batchColumns;
+
+        private CSVPrinter csvPrinter;
+        private Writer writer;
+        private int recordCount = 0;
+
+        CsvDataHandler(FlatFileConfig config, List<String> selectedColumnNames, boolean header,
+                IngestionMetrics metrics, OutputStreamSupplier outputSupplier) {
+            this.config = config;
+            this.selectedColumnNames = selectedColumnNames;
+            this.header = header;
+            this.metrics = metrics;
+            this.outputSupplier = outputSupplier;
+            this.batchColumns = new ClickHouseService.BatchColumns(selectedColumnNames);
+        }
 
-                        // ✅ Create a temp file with tableName.csv
-                        File tempFile = File.createTempFile(tableName, ".csv");
-                        generatedFileRef.set(tempFile);
+        void open() throws SQLException {
+            if (csvPrinter != null) {
+                return;
+            }
+            try {
+                log.info("Initializing CSV printer with columns: {}", selectedColumnNames);
 
-                        writer = new BufferedWriter(
-                                new OutputStreamWriter(
-                                        new FileOutputStream(tempFile),
-                                        StandardCharsets.UTF_8));
+                writer = new BufferedWriter(
+                        new OutputStreamWriter(
+                                new MeteredOutputStream(outputSupplier.open(), metrics),
+                                StandardCharsets.UTF_8));
 
-                        CSVFormat format = CSVFormat.DEFAULT.builder()
-                                .setDelimiter(config.getDelimiter().charAt(0))
-                                .setHeader(selectedColumnNames.toArray(new String[0]))
-                                .build();
+                CSVFormat format = CSVFormat.DEFAULT.builder()
+                        .setDelimiter(config.getDelimiter().charAt(0))
+                        .setHeader(selectedColumnNames.toArray(new String[0]))
+                        .setSkipHeaderRecord(!header)
+                        .build();
 
-                        csvPrinter = new CSVPrinter(writer, format);
-                    }
+                csvPrinter = new CSVPrinter(writer, format);
+            } catch (IOException e) {
+                throw new SQLException("Failed to open flat file output: " + e.getMessage(), e);
+            }
+        }
 
-                    log.debug("Processing row: {}", row);
+        void flush() throws SQLException {
+            try {
+                csvPrinter.flush();
+            } catch (IOException e) {
+                throw new SQLException("Failed to write to flat file: " + e.getMessage(), e);
+            }
+        }
 
-                    List<Object> recordValues = new ArrayList<>();
-                    for (String columnName : selectedColumnNames) {
-                        if (!row.containsKey(columnName)) {
-                            log.warn("Missing column '{}'; inserting NULL.", columnName);
-                        }
-                        recordValues.add(row.get(columnName));
+        @Override
+        public void processBatch(ColumnBatch batch) throws SQLException {
+            long start = System.nanoTime();
+            open();
+            try {
+                int[] positions = batchColumns.resolve(batch);
+                for (int row = 0; row < batch.size(); row++) {
+                    for (int column : positions) {
+                        csvPrinter.print(column < 0 ? null : batch.getObject(column, row));
                     }
+                    csvPrinter.println();
+                }
+                recordCount += batch.size();
 
-                    csvPrinter.printRecord(recordValues);
-                    recordCount++;
-
-                    if (recordCount % 1000 == 0) {
-                        log.info("Written {} records to flat file", recordCount);
-                    }
-                } catch (IOException e) {
-                    throw new SQLException("Failed to write to flat file: " + e.getMessage(), e);
+                if (recordCount % 100000 < batch.size()) {
+                    log.info("Written {} records to flat file", recordCount);
                 }
+                metrics.recordBatch(Stage.WRITE, batch.size(), System.nanoTime() - start);
+            } catch (IOException e) {
+                throw new SQLException("Failed to write to flat file: " + e.getMessage(), e);
             }
+        }
 
-            @Override
-            public void complete() throws SQLException {
-                try {
-                    if (csvPrinter != null) {
-                        csvPrinter.flush();
-                        csvPrinter.close();
-                    }
-                    if (writer != null) {
-                        writer.close();
-                    }
-                    log.info("Successfully completed writing {} records to flat file.", recordCount);
-                } catch (IOException e) {
-                    throw new SQLException("Failed to close flat file resources: " + e.getMessage(), e);
+        @Override
+        public void complete() throws SQLException {
+            long start = System.nanoTime();
+            try {
+                if (csvPrinter != null) {
+                    csvPrinter.flush();
+                    csvPrinter.close();
                 }
+                if (writer != null) {
+                    writer.close();
+                }
+                metrics.recordBatch(Stage.WRITE, 0, System.nanoTime() - start);
+                log.info("Successfully completed writing {} records to flat file.", recordCount);
+            } catch (IOException e) {
+                throw new SQLException("Failed to close flat file resources: " + e.getMessage(), e);
             }
-        };
+        }
     }
 }
@@ -0,0 +1,112 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.piyush.clickhousefileintegration.model.CompressionCodec;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+
+/**
+ * Applies {@link CompressionCodec}s to requests and responses of the ClickHouse
+ * HTTP interface, which the JDBC driver does not cover (RowBinary inserts and
+ * passthrough exports).
+ *
+ * Request bodies are compressed with the codec's frame format and announced via
+ * Content-Encoding, which ClickHouse decodes without further settings. Response
+ * compression is requested with {@code enable_http_compression} and
+ * Accept-Encoding; the response is decoded according to the Content-Encoding
+ * the server actually used.
+ */
+public class HttpCompression {
+
+    private HttpCompression() {
+    }
+
+    /**
+     * Adds the ClickHouse settings needed for a compressed response.
+     */
+    public static void addResponseSettings(CompressionCodec codec, Integer level, Map<String, String> settings) {
+        if (codec == CompressionCodec.NONE) {
+            return;
+        }
+        settings.put("enable_http_compression", "1");
+        if (codec == CompressionCodec.ZSTD) {
+            // The server only accepts levels 1-9 for response compression
+            settings.put("http_zlib_compression_level",
+                    String.valueOf(Math.max(1, Math.min(9, codec.resolveLevel(level)))));
+        }
+    }
+
+    /**
+     * Sets the request headers announcing a compressed body and accepting a
+     * compressed response.
+     */
+    public static void addHeaders(CompressionCodec codec, HttpURLConnection http, boolean compressedBody) {
+        if (codec == CompressionCodec.NONE) {
+            return;
+        }
+        http.setRequestProperty("Accept-Encoding", codec.getContentEncoding());
+        if (compressedBody) {
+            http.setRequestProperty("Content-Encoding", codec.getContentEncoding());
+        }
+    }
+
+    /**
+     * Wraps a request body so that everything written to it is compressed.
+     * Closing the returned stream finishes the frame and closes the body.
+     */
+    public static OutputStream compress(CompressionCodec codec, Integer level, OutputStream body)
+            throws IOException {
+        switch (codec) {
+            case LZ4: {
+                int lz4Level = codec.resolveLevel(level);
+                LZ4Factory factory = LZ4Factory.fastestInstance();
+                LZ4Compressor compressor = lz4Level == 0 ? factory.fastCompressor()
+                        : factory.highCompressor(lz4Level);
+                return new LZ4FrameOutputStream(body, LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB, -1L, compressor,
+                        XXHashFactory.fastestInstance().hash32(), LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE);
+            }
+            case ZSTD:
+                return new ZstdOutputStream(body, codec.resolveLevel(level));
+            default:
+                return body;
+        }
+    }
+
+    /**
+     * Wraps a response body according to its Content-Encoding.
+     *
+     * @throws IOException if the server used an encoding this client cannot
+     *                     decode
+     */
+    public static InputStream decompress(HttpURLConnection http, InputStream body) throws IOException {
+        String encoding = http.getContentEncoding();
+        if (encoding == null || encoding.isEmpty() || "identity".equalsIgnoreCase(encoding)) {
+            return body;
+        }
+        switch (encoding.toLowerCase()) {
+            case "lz4":
+                return new LZ4FrameInputStream(body);
+            case "zstd":
+                return new ZstdInputStream(body);
+            case "gzip":
+                return new GZIPInputStream(body);
+            case "deflate":
+                return new InflaterInputStream(body);
+            default:
+                throw new IOException("Unsupported Content-Encoding from ClickHouse: " + encoding);
+        }
+    }
+}
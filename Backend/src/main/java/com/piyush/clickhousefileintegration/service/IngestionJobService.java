@@ -0,0 +1,402 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.piyush.clickhousefileintegration.model.IngestionJobStatus;
+import com.piyush.clickhousefileintegration.model.IngestionJobStatus.State;
+import com.piyush.clickhousefileintegration.model.IngestionRequest;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs ingestions as background jobs so that HTTP requests return immediately.
+ *
+ * Jobs are executed on a bounded pool: once every worker is busy and the queue
+ * is full, new submissions are rejected instead of piling up. Progress is
+ * available by polling {@link #getStatus(String)} or by subscribing to a
+ * Server-Sent Events stream, which receives a "progress" event every interval
+ * and a final event named after the terminal state. Finished jobs and their
+ * result files are kept for a retention period and then discarded.
+ */
+@Service
+@Slf4j
+public class IngestionJobService {
+
+    private final IntegrationService integrationService;
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService publisher;
+    private final long retentionMs;
+
+    public IngestionJobService(IntegrationService integrationService, MeterRegistry meterRegistry,
+            WorkerThreads workerThreads,
+            @Value("${ingestion.jobs.max-concurrent:4}") int maxConcurrent,
+            @Value("${ingestion.jobs.queue-capacity:16}") int queueCapacity,
+            @Value("${ingestion.jobs.retention-ms:3600000}") long retentionMs,
+            @Value("${ingestion.jobs.progress-interval-ms:1000}") long progressIntervalMs) {
+        this.integrationService = integrationService;
+        this.retentionMs = retentionMs;
+
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                workerThreads.factory("ingestion-job-", false));
+        Gauge.builder("ingestion.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Ingestion jobs currently running")
+                .register(meterRegistry);
+        Gauge.builder("ingestion.jobs.queued", executor, e -> e.getQueue().size())
+                .description("Ingestion jobs waiting for a worker")
+                .register(meterRegistry);
+
+        this.publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ingestion-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher.scheduleWithFixedDelay(this::publishProgress,
+                progressIntervalMs, progressIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Validates and queues an ingestion request.
+     *
+     * An uploaded file is moved to a temporary location first, because the
+     * multipart upload is discarded once the HTTP request completes.
+     *
+     * @param request Ingestion request with source, target, and column selection
+     * @param file    Uploaded flat file, if any
+     * @return Initial status of the queued job
+     * @throws IllegalArgumentException   if the request is invalid
+     * @throws RejectedExecutionException if too many jobs are already queued
+     * @throws IOException                if the uploaded file cannot be saved
+     */
+    public IngestionJobStatus submit(IngestionRequest request, MultipartFile file) throws IOException {
+        IngestionJob job = createJob(request);
+
+        if (file != null && !file.isEmpty()) {
+            Path upload = Files.createTempFile("temp_upload_", ".csv");
+            file.transferTo(upload);
+            job.uploadedFile = upload;
+            request.getFlatFileConfig().setFileName(upload.toString());
+        }
+
+        return queue(job, request);
+    }
+
+    /**
+     * Validates and queues an ingestion from a chunked upload into ClickHouse.
+     *
+     * The job reads the upload while it is still arriving, so rows are
+     * inserted as chunks come in; it closes the upload when it ends.
+     *
+     * @param request Ingestion request with a flat file source and ClickHouse
+     *                target
+     * @param upload  Upload the flat file is read from
+     * @return Initial status of the queued job
+     * @throws IllegalArgumentException   if the request is invalid
+     * @throws RejectedExecutionException if too many jobs are already queued
+     */
+    public IngestionJobStatus submitUpload(IngestionRequest request, ChunkedUpload upload) {
+        IngestionJob job = createJob(request);
+        if (!"flatfile".equals(job.sourceType)) {
+            throw new IllegalArgumentException("Chunked uploads can only be ingested from a flat file source.");
+        }
+        job.upload = upload;
+        upload.setJobId(job.id);
+        return queue(job, request);
+    }
+
+    private IngestionJob createJob(IngestionRequest request) {
+        integrationService.validateRequest(request);
+
+        String source = request.getSourceType().toLowerCase();
+        String target = request.getTargetType().toLowerCase();
+        boolean supported = ("clickhouse".equals(source) && "flatfile".equals(target))
+                || ("flatfile".equals(source) && "clickhouse".equals(target));
+        if (!supported) {
+            throw new IllegalArgumentException("Ingestion from " + request.getSourceType() + " to "
+                    + request.getTargetType() + " is not supported.");
+        }
+
+        return new IngestionJob(UUID.randomUUID().toString(), source, target);
+    }
+
+    private IngestionJobStatus queue(IngestionJob job, IngestionRequest request) {
+        purgeExpiredJobs();
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job, request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            deleteQuietly(job.uploadedFile);
+            throw e;
+        }
+
+        log.info("Queued ingestion job {} ({} -> {})", job.id, job.sourceType, job.targetType);
+        return job.toStatus();
+    }
+
+    private void run(IngestionJob job, IngestionRequest request) {
+        synchronized (job) {
+            if (job.state != State.QUEUED) {
+                return;
+            }
+            job.state = State.RUNNING;
+            job.startedAt = Instant.now();
+        }
+        job.progress.start();
+        log.info("Started ingestion job {}", job.id);
+
+        AtomicReference<File> generatedFileRef = new AtomicReference<>();
+        try {
+            long recordCount;
+            if ("clickhouse".equals(job.sourceType)) {
+                recordCount = integrationService.ingestFromClickHouseToFlatFile(request, generatedFileRef,
+                        job.progress);
+                job.resultFile = generatedFileRef.get();
+            } else {
+                recordCount = integrationService.ingestFromFlatFileToClickHouse(request, job.upload, job.progress);
+            }
+            job.recordCount = recordCount;
+            finish(job, State.COMPLETED, "Transferred " + recordCount + " records");
+        } catch (Exception e) {
+            // A partial export is never offered for download, so it is not kept until the job expires
+            File partialFile = generatedFileRef.get();
+            if (partialFile != null) {
+                deleteQuietly(partialFile.toPath());
+            }
+            if (job.progress.isCancelled()) {
+                finish(job, State.CANCELLED, "Cancelled by user");
+            } else {
+                log.error("Ingestion job {} failed", job.id, e);
+                finish(job, State.FAILED, "Ingestion failed: " + e.getMessage());
+            }
+        } finally {
+            releaseUpload(job);
+        }
+    }
+
+    private void finish(IngestionJob job, State state, String message) {
+        synchronized (job) {
+            job.state = state;
+            job.message = message;
+            job.finishedAt = Instant.now();
+        }
+        log.info("Ingestion job {} {}: {}", job.id, state, message);
+        publish(job);
+    }
+
+    /**
+     * @param jobId Job identifier
+     * @return Current status, or empty if no such job exists
+     */
+    public Optional<IngestionJobStatus> getStatus(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(IngestionJob::toStatus);
+    }
+
+    /**
+     * Registers an SSE emitter for a job. The current status is sent right away;
+     * the emitter is completed once the job reaches a terminal state.
+     *
+     * @param jobId Job identifier
+     * @return Emitter, or empty if no such job exists
+     */
+    public Optional<SseEmitter> subscribe(String jobId) {
+        IngestionJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(0L); // no timeout; completed with the job
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        emitter.onError(e -> job.emitters.remove(emitter));
+        job.emitters.add(emitter);
+        publish(job);
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Requests cancellation of a job. Queued jobs are cancelled immediately;
+     * running jobs stop at the next batch they process.
+     *
+     * @param jobId Job identifier
+     * @return Status after the request, or empty if no such job exists
+     */
+    public Optional<IngestionJobStatus> cancel(String jobId) {
+        IngestionJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+
+        job.progress.cancel();
+        boolean wasQueued;
+        synchronized (job) {
+            wasQueued = job.state == State.QUEUED;
+        }
+        if (job.future != null) {
+            job.future.cancel(true);
+        }
+        if (wasQueued) {
+            releaseUpload(job);
+            finish(job, State.CANCELLED, "Cancelled before start");
+        }
+        return Optional.of(job.toStatus());
+    }
+
+    /**
+     * @param jobId Job identifier
+     * @return The generated flat file of a completed export job
+     */
+    public Optional<File> getResultFile(String jobId) {
+        IngestionJob job = jobs.get(jobId);
+        if (job == null || job.state != State.COMPLETED || job.resultFile == null || !job.resultFile.exists()) {
+            return Optional.empty();
+        }
+        return Optional.of(job.resultFile);
+    }
+
+    private void publishProgress() {
+        try {
+            for (IngestionJob job : jobs.values()) {
+                if (!job.emitters.isEmpty() && !job.state.isTerminal()) {
+                    publish(job);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish ingestion progress: {}", e.getMessage());
+        }
+    }
+
+    private void publish(IngestionJob job) {
+        IngestionJobStatus status = job.toStatus();
+        String eventName = status.getState().isTerminal() ? status.getState().name().toLowerCase() : "progress";
+
+        for (SseEmitter emitter : job.emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(status));
+                if (status.getState().isTerminal()) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                job.emitters.remove(emitter);
+            }
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        Instant cutoff = Instant.now().minusMillis(retentionMs);
+        jobs.values().removeIf(job -> {
+            if (job.finishedAt == null || job.finishedAt.isAfter(cutoff)) {
+                return false;
+            }
+            if (job.resultFile != null) {
+                deleteQuietly(job.resultFile.toPath());
+            }
+            return true;
+        });
+    }
+
+    private void releaseUpload(IngestionJob job) {
+        deleteQuietly(job.uploadedFile);
+        if (job.upload != null) {
+            job.upload.close();
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary file {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publisher.shutdownNow();
+        jobs.values().forEach(job -> job.progress.cancel());
+        executor.shutdownNow();
+    }
+
+    /**
+     * Mutable state of a single job. State transitions are guarded by the job's
+     * monitor; the remaining fields are written by the worker and read by
+     * reporters.
+     */
+    private static final class IngestionJob {
+        final String id;
+        final String sourceType;
+        final String targetType;
+        final Instant createdAt = Instant.now();
+        final IngestionProgress progress = new IngestionProgress();
+        final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+        volatile State state = State.QUEUED;
+        volatile Instant startedAt;
+        volatile Instant finishedAt;
+        volatile Long recordCount;
+        volatile String message;
+        volatile File resultFile;
+        volatile Path uploadedFile;
+        volatile ChunkedUpload upload;
+        volatile Future<?> future;
+
+        IngestionJob(String id, String sourceType, String targetType) {
+            this.id = id;
+            this.sourceType = sourceType;
+            this.targetType = targetType;
+        }
+
+        IngestionJobStatus toStatus() {
+            IngestionJobStatus status = new IngestionJobStatus();
+            status.setJobId(id);
+            status.setState(state);
+            status.setSourceType(sourceType);
+            status.setTargetType(targetType);
+            status.setRowsWritten(progress.getRowsWritten());
+            status.setBytesRead(progress.getBytesRead());
+            status.setTotalBytes(progress.getTotalBytes());
+            status.setRowsPerSecond(Math.round(progress.getRowsPerSecond() * 10) / 10.0);
+            status.setEtaSeconds(state == State.RUNNING ? progress.getEtaSeconds() : -1);
+            double fraction = state == State.COMPLETED ? 1.0 : progress.getFractionDone();
+            status.setProgressPercent(fraction < 0 ? -1 : (int) Math.floor(fraction * 100));
+            status.setRecordCount(recordCount);
+            status.setMessage(message);
+            status.setDownloadAvailable(state == State.COMPLETED && resultFile != null);
+            status.setCreatedAt(createdAt);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            return status;
+        }
+    }
+}
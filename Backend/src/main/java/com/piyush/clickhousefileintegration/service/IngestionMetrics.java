@@ -0,0 +1,145 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters for the ingestion pipeline, exported on
+ * {@code /actuator/prometheus}.
+ *
+ * Every transfer is split into stages so that time can be attributed to the
+ * side that spent it: a source stage ({@link Stage#PARSE} for flat files,
+ * {@link Stage#FETCH} for ClickHouse result sets) and a sink stage
+ * ({@link Stage#INSERT} into ClickHouse, {@link Stage#WRITE} to a flat file,
+ * {@link Stage#EXPORT} for passthrough exports). Sources time the work of
+ * filling a batch, sinks time the work of consuming it, so the two never
+ * overlap. Per stage there are:
+ * <ul>
+ * <li>{@code ingestion.stage.time} - time per batch (histogram)</li>
+ * <li>{@code ingestion.rows} - rows handled; its rate is rows/s</li>
+ * <li>{@code ingestion.bytes} - bytes read, encoded or written; its rate is
+ * bytes/s</li>
+ * </ul>
+ * Round trips that commit rows to ClickHouse are recorded separately, tagged
+ * by insert format: {@code clickhouse.insert.flush} (latency histogram, also
+ * tagged by what triggered the flush), {@code clickhouse.insert.batch.rows}
+ * and {@code clickhouse.insert.batch.bytes} (size of each flush) and
+ * {@code clickhouse.insert.batch.limit} (row limit chosen by the
+ * {@link InsertBatchController} after each flush). Connection acquire time is
+ * recorded by {@link ClickHouseConnectionPool} and active jobs by
+ * {@link IngestionJobService}.
+ */
+@Component
+public class IngestionMetrics {
+
+    public enum Stage {
+        PARSE, FETCH, INSERT, WRITE, EXPORT;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<Stage, Counter> rowCounters = new EnumMap<>(Stage.class);
+    private final Map<Stage, Counter> byteCounters = new EnumMap<>(Stage.class);
+    private final Map<String, Timer> flushTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> flushRows = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> flushBytes = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rowLimits = new ConcurrentHashMap<>();
+
+    public IngestionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("ingestion.stage.time")
+                    .description("Time spent per batch in each stage of an ingestion")
+                    .tag("stage", stage.tag())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            rowCounters.put(stage, Counter.builder("ingestion.rows")
+                    .description("Rows handled by each stage of an ingestion")
+                    .baseUnit("rows")
+                    .tag("stage", stage.tag())
+                    .register(meterRegistry));
+            byteCounters.put(stage, Counter.builder("ingestion.bytes")
+                    .description("Bytes read, encoded or written by each stage of an ingestion")
+                    .baseUnit("bytes")
+                    .tag("stage", stage.tag())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Records one batch handled by a stage.
+     *
+     * @param stage Stage that handled the batch
+     * @param rows  Number of rows in the batch
+     * @param nanos Time spent on the batch by this stage alone
+     */
+    public void recordBatch(Stage stage, int rows, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        rowCounters.get(stage).increment(rows);
+    }
+
+    public void addBytes(Stage stage, long bytes) {
+        byteCounters.get(stage).increment(bytes);
+    }
+
+    /**
+     * Records a round trip that sends rows to ClickHouse, e.g. a JDBC
+     * {@code executeBatch} or the commit of a RowBinary request.
+     *
+     * @param format  Insert format, used as a tag ("jdbc" or "rowbinary")
+     * @param trigger What caused the flush
+     * @param rows    Number of rows committed by the round trip
+     * @param bytes   Estimated or encoded size of those rows
+     * @param nanos   Round trip latency
+     */
+    public void recordFlush(String format, InsertBatchController.Trigger trigger, int rows, long bytes,
+            long nanos) {
+        flushTimers.computeIfAbsent(format + "/" + trigger, key -> Timer.builder("clickhouse.insert.flush")
+                .description("Latency of insert round trips to ClickHouse")
+                .tag("format", format)
+                .tag("trigger", trigger.tag())
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+        flushRows.computeIfAbsent(format, key -> DistributionSummary.builder("clickhouse.insert.batch.rows")
+                .description("Rows sent per insert round trip")
+                .baseUnit("rows")
+                .tag("format", key)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(rows);
+        flushBytes.computeIfAbsent(format, key -> DistributionSummary.builder("clickhouse.insert.batch.bytes")
+                .description("Bytes sent per insert round trip")
+                .baseUnit("bytes")
+                .tag("format", key)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(bytes);
+    }
+
+    /**
+     * Records the row limit an {@link InsertBatchController} chose for the
+     * next batch.
+     */
+    public void recordRowLimit(String format, int rowLimit) {
+        rowLimits.computeIfAbsent(format, key -> DistributionSummary.builder("clickhouse.insert.batch.limit")
+                .description("Row limit chosen for the next insert batch")
+                .baseUnit("rows")
+                .tag("format", key)
+                .register(meterRegistry))
+                .record(rowLimit);
+    }
+}
@@ -0,0 +1,141 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live progress counters for a single ingestion, shared between the threads
+ * doing the transfer and whoever reports on it.
+ *
+ * Counters are updated from the hot path, so they are plain atomics and all
+ * derived figures (throughput, ETA) are computed only when a snapshot is
+ * requested. Cancellation is cooperative: tracked handlers check the flag on
+ * every batch and abort the transfer with an exception.
+ */
+public class IngestionProgress {
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile long totalBytes = -1;
+    private volatile long totalRows = -1;
+    private volatile long startedAtNanos;
+    private volatile boolean cancelled;
+
+    public void start() {
+        startedAtNanos = System.nanoTime();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * @return Seconds since {@link #start()}, or 0 if not started
+     */
+    public double getElapsedSeconds() {
+        return startedAtNanos == 0 ? 0 : (System.nanoTime() - startedAtNanos) / 1e9;
+    }
+
+    public double getRowsPerSecond() {
+        double elapsed = getElapsedSeconds();
+        return elapsed > 0 ? rowsWritten.get() / elapsed : 0;
+    }
+
+    /**
+     * Fraction of the source consumed, based on bytes when the source size is
+     * known and on rows when the row count is known.
+     *
+     * @return Fraction between 0 and 1, or -1 if unknown
+     */
+    public double getFractionDone() {
+        if (totalBytes > 0) {
+            return Math.min(1.0, (double) bytesRead.get() / totalBytes);
+        }
+        if (totalRows > 0) {
+            return Math.min(1.0, (double) rowsWritten.get() / totalRows);
+        }
+        return -1;
+    }
+
+    /**
+     * @return Estimated seconds remaining, or -1 if it cannot be estimated yet
+     */
+    public long getEtaSeconds() {
+        double fraction = getFractionDone();
+        double elapsed = getElapsedSeconds();
+        if (fraction <= 0 || elapsed <= 0) {
+            return -1;
+        }
+        return Math.round(elapsed * (1 - fraction) / fraction);
+    }
+
+    /**
+     * Throws if the ingestion has been cancelled.
+     *
+     * @throws SQLException if cancelled, so that it propagates through the
+     *                      DataHandler contract
+     */
+    public void checkCancelled() throws SQLException {
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            throw new SQLException("Ingestion job was cancelled");
+        }
+    }
+
+    /**
+     * Wraps a DataHandler so that every row it accepts is counted and the
+     * transfer stops promptly once the job is cancelled.
+     */
+    public ClickHouseService.DataHandler track(ClickHouseService.DataHandler delegate) {
+        return new ClickHouseService.DataHandler() {
+            @Override
+            public void processBatch(ColumnBatch batch) throws SQLException {
+                checkCancelled();
+                delegate.processBatch(batch);
+                rowsWritten.addAndGet(batch.size());
+            }
+
+            @Override
+            public void complete() throws SQLException {
+                checkCancelled();
+                delegate.complete();
+            }
+
+            @Override
+            public void abort() {
+                delegate.abort();
+            }
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.util.Map;
+
+/**
+ * Decides when a batched INSERT is sent, sizing batches by a byte budget and
+ * by observed flush latency instead of a fixed number of rows.
+ *
+ * Rows are reported through {@link #add(long)} with an estimate of their
+ * size. A batch is flushed as soon as one of these holds:
+ * <ul>
+ * <li>{@link Trigger#BYTES} - the pending rows reach the byte budget, which
+ * bounds client memory and request size however wide the rows are</li>
+ * <li>{@link Trigger#LATENCY} - the pending rows reach the row limit derived
+ * from latency: the throughput of earlier flushes (smoothed) times the
+ * target latency, clamped to {@code [minRows, maxRows]}</li>
+ * <li>{@link Trigger#MAX_ROWS} - the pending rows reach {@code maxRows}</li>
+ * </ul>
+ * Until the first flush has been measured only the byte budget and
+ * {@code maxRows} apply, so narrow rows produce large batches (and large
+ * MergeTree parts) from the start. A non-positive bound disables it.
+ *
+ * Instances are not thread-safe; use one per insert stream.
+ */
+public class InsertBatchController {
+
+    /**
+     * Reason a batch was flushed, recorded as a metric tag.
+     */
+    public enum Trigger {
+        BYTES, LATENCY, MAX_ROWS, END;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final double SMOOTHING = 0.3;
+    private static final int NULL_BYTES = 1;
+    private static final int NUMBER_BYTES = 8;
+
+    private final long targetBytes;
+    private final int minRows;
+    private final int maxRows;
+    private final double targetLatencySeconds;
+
+    private double rowsPerSecond = -1;
+    private int rowLimit;
+    private int pendingRows;
+    private long pendingBytes;
+
+    /**
+     * @param targetBytes     Estimated bytes per batch, or 0 for no limit
+     * @param minRows         Lower bound of the latency-derived row limit
+     * @param maxRows         Maximum rows per batch, or 0 for no limit
+     * @param targetLatencyMs Desired duration of one flush, or 0 to ignore
+     *                        latency
+     */
+    public InsertBatchController(long targetBytes, int minRows, int maxRows, long targetLatencyMs) {
+        this.targetBytes = targetBytes;
+        this.minRows = Math.max(1, minRows);
+        this.maxRows = maxRows > 0 ? Math.max(this.minRows, maxRows) : Integer.MAX_VALUE;
+        this.targetLatencySeconds = targetLatencyMs / 1000.0;
+        this.rowLimit = this.maxRows;
+    }
+
+    /**
+     * Adds one row to the pending batch.
+     *
+     * @param rowBytes Estimated size of the row
+     * @return The reason to flush now, or null to keep adding rows
+     */
+    public Trigger add(long rowBytes) {
+        pendingRows++;
+        pendingBytes += rowBytes;
+        if (targetBytes > 0 && pendingBytes >= targetBytes) {
+            return Trigger.BYTES;
+        }
+        if (pendingRows >= maxRows) {
+            return Trigger.MAX_ROWS;
+        }
+        if (pendingRows >= rowLimit) {
+            return Trigger.LATENCY;
+        }
+        return null;
+    }
+
+    public int getPendingRows() {
+        return pendingRows;
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * @return Current row limit: {@code maxRows} until a flush has been
+     *         measured, then derived from throughput and target latency
+     */
+    public int getRowLimit() {
+        return rowLimit;
+    }
+
+    /**
+     * Records a completed flush of the pending rows and resets the batch.
+     *
+     * @param nanos Duration of the flush
+     */
+    public void flushed(long nanos) {
+        if (pendingRows > 0 && nanos > 0 && targetLatencySeconds > 0) {
+            double observed = pendingRows / (nanos / 1e9);
+            rowsPerSecond = rowsPerSecond < 0 ? observed
+                    : SMOOTHING * observed + (1 - SMOOTHING) * rowsPerSecond;
+            long limit = Math.round(rowsPerSecond * targetLatencySeconds);
+            rowLimit = (int) Math.max(minRows, Math.min(maxRows, limit));
+        }
+        pendingRows = 0;
+        pendingBytes = 0;
+    }
+
+    /**
+     * Estimates the wire size of a row held in a column batch: UTF-8 length
+     * for text, eight bytes for numbers and one byte for NULL.
+     */
+    public static long estimateRowBytes(ColumnBatch batch, int[] positions, int row) {
+        long bytes = 0;
+        for (int column : positions) {
+            if (column < 0 || batch.isNull(column, row)) {
+                bytes += NULL_BYTES;
+            } else if (batch.getSchema().getKind(column) == ColumnBatch.Kind.STRING) {
+                bytes += batch.getLength(column, row);
+            } else {
+                bytes += NUMBER_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the wire size of a row held as a map, using the same rules as
+     * {@link #estimateRowBytes(ColumnBatch, int[], int)} with the string form
+     * of non-numeric values.
+     */
+    public static long estimateRowBytes(Map<String, Object> row, Iterable<String> columnNames) {
+        long bytes = 0;
+        for (String name : columnNames) {
+            Object value = row.get(name);
+            if (value == null) {
+                bytes += NULL_BYTES;
+            } else if (value instanceof Number) {
+                bytes += NUMBER_BYTES;
+            } else {
+                bytes += value.toString().length();
+            }
+        }
+        return bytes;
+    }
+}
@@ -1,13 +1,34 @@
 package com.piyush.clickhousefileintegration.service;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -28,21 +49,38 @@ public class IntegrationService {
 
     private final FlatFileService flatFileService;
 
+    private final ClickHouseMetadataCache metadataCache;
+
+    private final ClickHousePreviewCache previewCache;
+
+    private final WorkerThreads workerThreads;
+
+    @Value("${clickhouse.insert.format:rowbinary}")
+    private String insertFormat;
+
+    @Value("${clickhouse.export.passthrough:false}")
+    private boolean exportPassthrough;
+
+    @Value("${clickhouse.insert.writers:2}")
+    private int insertWriters;
+
+    @Value("${clickhouse.insert.max-in-flight-batches:8}")
+    private int maxInFlightBatches;
+
     /**
-     * Fetches the list of tables from ClickHouse
+     * Fetches the list of tables from ClickHouse, or from the metadata cache
      *
      * @param config ClickHouse configuration
      * @return List of table names
      * @throws SQLException if database operation fails
      */
     public List<String> getClickHouseTables(ClickHouseConfig config) throws SQLException {
-        try (Connection connection = clickHouseService.connect(config)) {
-            return clickHouseService.getTables(connection);
-        }
+        return metadataCache.getTables(config);
     }
 
     /**
-     * Fetches the schema of a ClickHouse table
+     * Fetches the schema of a ClickHouse table, or takes it from the metadata
+     * cache
      *
      * @param config    ClickHouse configuration
      * @param tableName Table name
@@ -51,13 +89,11 @@ public class IntegrationService {
      */
     public List<ColumnMetadata> getClickHouseTableSchema(ClickHouseConfig config, String tableName)
             throws SQLException {
-        try (Connection connection = clickHouseService.connect(config)) {
-            return clickHouseService.getTableSchema(connection, tableName);
-        }
+        return metadataCache.getTableSchema(config, tableName);
     }
 
     /**
-     * Previews data from ClickHouse
+     * Previews data from ClickHouse, or from the preview cache
      *
      * @param config    ClickHouse configuration
      * @param tableName Table name
@@ -68,9 +104,11 @@ public class IntegrationService {
      */
     public List<Map<String, Object>> previewClickHouseData(ClickHouseConfig config, String tableName,
             List<ColumnMetadata> columns, int limit) throws SQLException {
-        try (Connection connection = clickHouseService.connect(config)) {
-            return clickHouseService.previewData(connection, tableName, columns, limit);
-        }
+        return previewCache.get(config, tableName, null, null, columns, limit, () -> {
+            try (Connection connection = clickHouseService.connect(config)) {
+                return clickHouseService.previewData(config, connection, tableName, columns, limit);
+            }
+        });
     }
 
     /**
@@ -103,7 +141,7 @@ public class IntegrationService {
     }
 
     /**
-     * Previews data from ClickHouse with JOIN
+     * Previews data from ClickHouse with JOIN, or from the preview cache
      *
      * @param config           ClickHouse configuration
      * @param mainTable        Main table name
@@ -117,10 +155,12 @@ public class IntegrationService {
     public List<Map<String, Object>> previewClickHouseJoinData(ClickHouseConfig config, String mainTable,
             List<String> additionalTables, String joinCondition,
             List<ColumnMetadata> columns, int limit) throws SQLException {
-        try (Connection connection = clickHouseService.connect(config)) {
-            return clickHouseService.previewJoinData(connection, mainTable, additionalTables, joinCondition, columns,
-                    limit);
-        }
+        return previewCache.get(config, mainTable, additionalTables, joinCondition, columns, limit, () -> {
+            try (Connection connection = clickHouseService.connect(config)) {
+                return clickHouseService.previewJoinData(config, connection, mainTable, additionalTables,
+                        joinCondition, columns, limit);
+            }
+        });
     }
 
     /**
@@ -129,42 +169,168 @@ public class IntegrationService {
      * The method performs the following steps:
      * - Establishes a connection to ClickHouse using the provided configuration
      * - Creates the target table if it doesn't already exist
-     * - Reads data from the flat file based on selected columns
-     * - Inserts the data into the ClickHouse table using batch insert
+     * - Streams records from the flat file based on selected columns
+     * - Inserts the records into the ClickHouse table in batches as they are read
+     *
+     * The file is never materialized in memory: at most one insert batch per
+     * insert stream is buffered, so the first rows reach ClickHouse as soon as
+     * the first batch fills up. Unless insert writers are disabled, parsing runs
+     * on the calling thread while inserts run on concurrent writers.
      *
-     * @param request The ingestion request containing source and target
-     *                configurations
+     * @param request  The ingestion request containing source and target
+     *                 configurations
+     * @param progress Progress tracker updated while the transfer runs
      * @return The number of records successfully inserted into ClickHouse
      * @throws SQLException If a database error occurs during the process
      * @throws IOException  If a file I/O error occurs while reading the flat file
      */
-    public int ingestFromFlatFileToClickHouse(IngestionRequest request, MultipartFile file)
-            throws SQLException, IOException, InterruptedException {
+    public int ingestFromFlatFileToClickHouse(IngestionRequest request, MultipartFile file,
+            IngestionProgress progress) throws SQLException, IOException, InterruptedException {
         log.info("Ingesting data from Flat File to ClickHouse");
 
         try (Connection connection = clickHouseService.connect(request.getClickHouseConfig())) {
             // Create target table in ClickHouse if it doesn't exist
             clickHouseService.createTable(connection, request.getTargetTableName(), request.getSelectedColumns());
+            metadataCache.invalidate(request.getClickHouseConfig(), request.getTargetTableName());
+
+            int recordCount;
+            if (request.getParallelism() > 1 && (file == null || file.isEmpty())) {
+                recordCount = ingestInParallel(request, connection, progress);
+            } else if (insertWriters > 0) {
+                recordCount = ingestThroughWriters(request, file, connection, progress);
+            } else {
+                ClickHouseService.DataHandler insertHandler = progress.track(createInsertHandler(request, connection));
 
-            // Read data from flat file
-            List<Map<String, Object>> data = flatFileService.readData(
+                // Stream records from the flat file straight into batched inserts
+                recordCount = flatFileService.streamData(
+                        request.getFlatFileConfig(),
+                        file,
+                        request.getSelectedColumns(),
+                        insertHandler,
+                        progress);
+            }
+
+            log.info("Ingestion completed: {} records transferred from Flat File to ClickHouse", recordCount);
+            return recordCount;
+        } finally {
+            previewCache.invalidate(request.getClickHouseConfig(), request.getTargetTableName());
+        }
+    }
+
+    /**
+     * Parses a local or downloaded flat file on several threads. Unless the
+     * request asks to preserve row order, each chunk gets its own connection
+     * and insert stream: the caller's plus the ones free in the pool when the
+     * ingestion starts, so parallelism is capped by the connections available.
+     */
+    private int ingestInParallel(IngestionRequest request, Connection connection, IngestionProgress progress)
+            throws SQLException, IOException, InterruptedException {
+
+        if (request.isPreserveOrder()) {
+            log.info("Parallel ordered ingestion with {} parser threads", request.getParallelism());
+            return flatFileService.streamDataParallel(
                     request.getFlatFileConfig(),
-                    file,
                     request.getSelectedColumns(),
-                    0); // No limit for full ingestion
+                    request.getParallelism(),
+                    true,
+                    () -> progress.track(createInsertHandler(request, connection)),
+                    progress);
+        }
 
-            // Insert data into ClickHouse
-            int recordCount = clickHouseService.insertData(
-                    connection,
-                    request.getTargetTableName(),
+        // Connections are reserved without waiting while the caller's is held, so that concurrent jobs
+        // cannot each hold one and wait for the others'
+        List<Connection> workerConnections = clickHouseService.tryConnect(request.getClickHouseConfig(),
+                request.getParallelism() - 1);
+        try {
+            Deque<Connection> unused = new ConcurrentLinkedDeque<>(workerConnections);
+            unused.addFirst(connection);
+            int workers = unused.size();
+            log.info("Parallel ingestion with {} workers", workers);
+            return flatFileService.streamDataParallel(
+                    request.getFlatFileConfig(),
                     request.getSelectedColumns(),
-                    data);
+                    workers,
+                    false,
+                    () -> {
+                        Connection workerConnection = unused.poll();
+                        if (workerConnection == null) {
+                            throw new SQLException("No connection left for another chunk");
+                        }
+                        return progress.track(createInsertHandler(request, workerConnection));
+                    },
+                    progress);
+        } finally {
+            closeConnections(workerConnections);
+        }
+    }
 
-            log.info("Ingestion completed: {} records transferred from Flat File to ClickHouse", recordCount);
-            return recordCount;
+    /**
+     * Parses the flat file on the calling thread and hands its batches to a
+     * {@link ConcurrentInsertWriter}, so that parsing overlaps with inserts
+     * running on several connections. The first writer reuses the caller's
+     * connection; the others use connections free in the pool when the
+     * ingestion starts, so there may be fewer writers than configured.
+     */
+    private int ingestThroughWriters(IngestionRequest request, MultipartFile file, Connection connection,
+            IngestionProgress progress) throws SQLException, IOException, InterruptedException {
+
+        List<Connection> writerConnections = clickHouseService.tryConnect(request.getClickHouseConfig(),
+                insertWriters - 1);
+        Deque<Connection> unused = new ArrayDeque<>(writerConnections);
+        unused.addFirst(connection);
+        try (ConcurrentInsertWriter writer = new ConcurrentInsertWriter(
+                () -> progress.track(createInsertHandler(request, unused.remove())),
+                unused.size(), maxInFlightBatches, workerThreads.factory("insert-writer-", true))) {
+            log.info("Inserting through {} concurrent writers", writer.getWriterCount());
+            return flatFileService.streamData(
+                    request.getFlatFileConfig(),
+                    file,
+                    request.getSelectedColumns(),
+                    writer,
+                    progress);
+        } finally {
+            closeConnections(writerConnections);
         }
     }
 
+    private void closeConnections(List<Connection> connections) {
+        synchronized (connections) {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.warn("Failed to release worker connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the DataHandler that writes rows into the target table.
+     *
+     * The RowBinary engine is used when configured and every target column type
+     * can be encoded; otherwise rows go through JDBC batch inserts.
+     */
+    private ClickHouseService.DataHandler createInsertHandler(IngestionRequest request, Connection connection)
+            throws SQLException {
+        if ("rowbinary".equalsIgnoreCase(insertFormat)) {
+            try {
+                return clickHouseService.createRowBinaryDataHandler(
+                        request.getClickHouseConfig(),
+                        connection,
+                        request.getTargetTableName(),
+                        request.getSelectedColumns());
+            } catch (UnsupportedOperationException e) {
+                log.warn("Falling back to JDBC batch insert: {}", e.getMessage());
+            }
+        }
+
+        return clickHouseService.createInsertDataHandler(
+                connection,
+                request.getTargetTableName(),
+                request.getSelectedColumns());
+    }
+
     /**
      * Executes the ingestion process between source and target based on the given
      * request.
@@ -242,47 +408,410 @@ public class IntegrationService {
     /**
      * Performs data ingestion from ClickHouse to a flat file.
      *
-     * @param request the ingestion request containing source and destination
-     *                configurations
+     * @param request  the ingestion request containing source and destination
+     *                 configurations
+     * @param progress progress tracker updated while the transfer runs
      * @return the total number of records successfully processed
      * @throws SQLException if an error occurs during ClickHouse database operations
      * @throws IOException  if an error occurs during file writing operations
      */
-    public int ingestFromClickHouseToFlatFile(IngestionRequest request, AtomicReference<File> generatedFileRef)
-            throws SQLException, IOException {
+    public long ingestFromClickHouseToFlatFile(IngestionRequest request, AtomicReference<File> generatedFileRef,
+            IngestionProgress progress) throws SQLException, IOException {
         log.info("Initiating data ingestion from ClickHouse to Flat File...");
 
+        List<Connection> splitConnections = new ArrayList<>();
         try (Connection connection = clickHouseService.connect(request.getClickHouseConfig())) {
-            ClickHouseService.DataHandler flatFileHandler = flatFileService
+            List<String> splits = planSplits(request, connection, splitConnections);
+            if (splits.size() > 1 && request.isShardedOutput()) {
+                return exportShards(request, connection, splits, splitConnections, generatedFileRef, progress);
+            }
+            if (splits.size() > 1) {
+                File tempFile = File.createTempFile(request.getTableName(), ".csv");
+                generatedFileRef.set(tempFile);
+                try (OutputStream out = new FileOutputStream(tempFile)) {
+                    return exportInSplits(request, connection, splits, splitConnections, out, progress);
+                }
+            }
+            if (isPassthroughExport(request)) {
+                File tempFile = File.createTempFile(request.getTableName(), ".csv");
+                generatedFileRef.set(tempFile);
+                try (OutputStream out = new FileOutputStream(tempFile)) {
+                    return passthroughFromClickHouse(request, connection, out, progress);
+                }
+            }
+
+            ClickHouseService.DataHandler flatFileHandler = progress.track(flatFileService
                     .createFlatFileDataHandler(request.getFlatFileConfig(), request.getSelectedColumns(),
                             generatedFileRef,
-                            request.getTableName());
+                            request.getTableName()));
 
-            int recordCount;
-            boolean isJoinRequired = request.getAdditionalTables() != null && !request.getAdditionalTables().isEmpty()
-                    && request.getJoinCondition() != null && !request.getJoinCondition().isEmpty();
+            int recordCount = transferFromClickHouse(request, connection, flatFileHandler, progress);
 
-            if (isJoinRequired) {
-                log.info("Executing JOIN-based ingestion with additional tables: {}", request.getAdditionalTables());
-                recordCount = clickHouseService.transferJoinDataFromClickHouse(
-                        connection,
-                        request.getTableName(),
-                        request.getAdditionalTables(),
-                        request.getJoinCondition(),
-                        request.getSelectedColumns(),
-                        flatFileHandler);
-            } else {
-                log.info("Executing simple ingestion for table: {}", request.getTableName());
-                recordCount = clickHouseService.transferDataFromClickHouse(
-                        connection,
-                        request.getTableName(),
-                        request.getSelectedColumns(),
-                        flatFileHandler);
+            log.info("Ingestion completed successfully. Total records transferred: {}", recordCount);
+            return recordCount;
+        } finally {
+            closeConnections(splitConnections);
+        }
+    }
+
+    /**
+     * Exports data from ClickHouse as CSV directly into an output stream, such
+     * as an HTTP response body. No intermediate file is written; rows are
+     * encoded and sent as they are read from ClickHouse.
+     *
+     * @param request  the ingestion request containing source and destination
+     *                 configurations
+     * @param out      destination stream; closed when the export completes
+     * @param progress progress tracker updated while the transfer runs
+     * @return the total number of records written
+     * @throws SQLException if an error occurs during ClickHouse database operations
+     *                      or while writing to the stream
+     */
+    public long exportFromClickHouseToStream(IngestionRequest request, OutputStream out,
+            IngestionProgress progress) throws SQLException {
+        log.info("Initiating streaming export from ClickHouse...");
+        if (request.isShardedOutput()) {
+            throw new IllegalArgumentException("Sharded output is only available for export jobs");
+        }
+
+        List<Connection> splitConnections = new ArrayList<>();
+        try (Connection connection = clickHouseService.connect(request.getClickHouseConfig())) {
+            List<String> splits = planSplits(request, connection, splitConnections);
+            if (splits.size() > 1) {
+                try (out) {
+                    return exportInSplits(request, connection, splits, splitConnections, out, progress);
+                } catch (IOException e) {
+                    throw new SQLException("Failed to close export stream: " + e.getMessage(), e);
+                }
+            }
+            if (isPassthroughExport(request)) {
+                try (out) {
+                    return passthroughFromClickHouse(request, connection, out, progress);
+                } catch (IOException e) {
+                    throw new SQLException("Failed to close export stream: " + e.getMessage(), e);
+                }
             }
 
-            log.info("Ingestion completed successfully. Total records transferred: {}", recordCount);
+            ClickHouseService.DataHandler streamHandler = progress.track(flatFileService
+                    .createFlatFileStreamHandler(request.getFlatFileConfig(), request.getSelectedColumns(), out));
+
+            int recordCount = transferFromClickHouse(request, connection, streamHandler, progress);
+
+            log.info("Streaming export completed. Total records transferred: {}", recordCount);
             return recordCount;
+        } finally {
+            closeConnections(splitConnections);
         }
     }
 
+    /**
+     * Plain single-table exports can be rendered by ClickHouse itself, which
+     * avoids decoding every value over JDBC and re-encoding it as CSV.
+     */
+    private boolean isPassthroughExport(IngestionRequest request) {
+        return exportPassthrough && !isJoinRequired(request);
+    }
+
+    private boolean isJoinRequired(IngestionRequest request) {
+        return request.getAdditionalTables() != null && !request.getAdditionalTables().isEmpty()
+                && request.getJoinCondition() != null && !request.getJoinCondition().isEmpty();
+    }
+
+    /**
+     * Copies the server-formatted export into the output stream. The record
+     * count is the one ClickHouse reports for the export query, since the
+     * bytes are never parsed into rows.
+     */
+    private long passthroughFromClickHouse(IngestionRequest request, Connection connection, OutputStream out,
+            IngestionProgress progress) throws SQLException {
+        log.info("Executing passthrough export for table: {}", request.getTableName());
+        long rows = clickHouseService.exportFormatted(request.getClickHouseConfig(), request.getTableName(),
+                request.getSelectedColumns(), request.getFlatFileConfig().getDelimiter(), out, progress);
+        return exportedRows(request, connection, rows);
+    }
+
+    /**
+     * Returns the row count of a passthrough export, or counts the table if
+     * the server did not report it.
+     */
+    private long exportedRows(IngestionRequest request, Connection connection, long rows) throws SQLException {
+        return rows >= 0 ? rows : clickHouseService.countRows(connection, request.getTableName());
+    }
+
+    /**
+     * Plans the splits of a parallel single-table export. Passthrough splits
+     * read over HTTP, so their number is capped at the connection pool size.
+     * JDBC splits read split 0 over the caller's connection and every other
+     * split over a connection reserved here from those free in the pool,
+     * without waiting, so their number is capped by the connections
+     * available.
+     *
+     * @param splitConnections Receives the connections reserved for splits 1
+     *                         and up; the caller must close them
+     * @return Split predicates; a single one if the export runs sequentially
+     */
+    private List<String> planSplits(IngestionRequest request, Connection connection,
+            List<Connection> splitConnections) throws SQLException {
+        if (request.getParallelism() < 2 || isJoinRequired(request)) {
+            return List.of("1");
+        }
+        int count = Math.min(request.getParallelism(), clickHouseService.getMaxConnectionsPerEndpoint());
+        if (!exportPassthrough) {
+            splitConnections.addAll(clickHouseService.tryConnect(request.getClickHouseConfig(), count - 1));
+            count = splitConnections.size() + 1;
+            if (count < 2) {
+                return List.of("1");
+            }
+        }
+        List<String> splits = clickHouseService.planExportSplits(connection, request.getTableName(),
+                request.getSelectedColumns(), request.getExportSplit(), count);
+        while (splitConnections.size() > splits.size() - 1) {
+            splitConnections.remove(splitConnections.size() - 1).close();
+        }
+        return splits;
+    }
+
+    /**
+     * @return Connection a split reads over; null for passthrough splits after
+     *         the first, which do not use one
+     */
+    private static Connection splitConnection(Connection connection, List<Connection> splitConnections, int split) {
+        if (split == 0) {
+            return connection;
+        }
+        return split <= splitConnections.size() ? splitConnections.get(split - 1) : null;
+    }
+
+    /**
+     * Exports the splits concurrently into one CSV output. Split 0 writes the
+     * header and streams straight into the output; the others are spooled to
+     * temporary files and appended after it, in split order if the request
+     * asks to preserve order, otherwise as soon as each one finishes.
+     */
+    private long exportInSplits(IngestionRequest request, Connection connection, List<String> splits,
+            List<Connection> splitConnections, OutputStream out, IngestionProgress progress) throws SQLException {
+        setSplitTotalRows(request, connection, progress);
+        List<Path> spools = new ArrayList<>();
+        try {
+            for (int i = 1; i < splits.size(); i++) {
+                spools.add(Files.createTempFile("export-split-", ".csv"));
+            }
+            OutputStream head = new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+
+            long rows = runSplits(request, splits.size(), (split, cancellation) -> split == 0
+                    ? exportSplit(request, connection, splits.get(0), true, head, progress, cancellation)
+                    : exportSplit(request, splitConnection(connection, splitConnections, split), splits.get(split),
+                            false, Files.newOutputStream(spools.get(split - 1)), progress, cancellation),
+                    split -> {
+                        if (split > 0) {
+                            Files.copy(spools.get(split - 1), out);
+                            Files.delete(spools.get(split - 1));
+                        }
+                    });
+            out.flush();
+            log.info("Exported {} in {} splits", request.getTableName(), splits.size());
+            return exportedRows(request, connection, rows);
+        } catch (IOException e) {
+            throw new SQLException("Failed to write export: " + e.getMessage(), e);
+        } finally {
+            spools.forEach(IntegrationService::deleteQuietly);
+        }
+    }
+
+    /**
+     * Exports every split into its own CSV file, each with a header, and packs
+     * the files into a zip archive, which becomes the generated file. The
+     * entries are stored uncompressed, so packing is a plain copy.
+     */
+    private long exportShards(IngestionRequest request, Connection connection, List<String> splits,
+            List<Connection> splitConnections, AtomicReference<File> generatedFileRef, IngestionProgress progress)
+            throws SQLException, IOException {
+        setSplitTotalRows(request, connection, progress);
+        List<Path> shards = new ArrayList<>();
+        CRC32[] checksums = new CRC32[splits.size()];
+        try {
+            for (int i = 0; i < splits.size(); i++) {
+                shards.add(Files.createTempFile("export-shard-", ".csv"));
+                checksums[i] = new CRC32();
+            }
+
+            File archive = File.createTempFile(request.getTableName() + "-shards", ".zip");
+            generatedFileRef.set(archive);
+            long rows;
+            try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+                zip.setMethod(ZipOutputStream.STORED);
+                rows = runSplits(request, splits.size(), (split, cancellation) -> exportSplit(request,
+                        splitConnection(connection, splitConnections, split), splits.get(split), true,
+                        new CheckedOutputStream(Files.newOutputStream(shards.get(split)), checksums[split]),
+                        progress, cancellation),
+                        split -> {
+                            ZipEntry entry = new ZipEntry(String.format("%s-%05d.csv", request.getTableName(), split));
+                            entry.setSize(Files.size(shards.get(split)));
+                            entry.setCrc(checksums[split].getValue());
+                            zip.putNextEntry(entry);
+                            Files.copy(shards.get(split), zip);
+                            zip.closeEntry();
+                            Files.delete(shards.get(split));
+                        });
+            } catch (SQLException | IOException | RuntimeException e) {
+                generatedFileRef.set(null);
+                deleteQuietly(archive.toPath());
+                throw e;
+            }
+            log.info("Exported {} in {} shards", request.getTableName(), splits.size());
+            return exportedRows(request, connection, rows);
+        } finally {
+            shards.forEach(IntegrationService::deleteQuietly);
+        }
+    }
+
+    /**
+     * Sets the expected row total of a JDBC split export; passthrough splits
+     * report progress in bytes and their row count once they finish.
+     */
+    private void setSplitTotalRows(IngestionRequest request, Connection connection, IngestionProgress progress)
+            throws SQLException {
+        if (!exportPassthrough) {
+            progress.setTotalRows(clickHouseService.countRows(connection, request.getTableName()));
+        }
+    }
+
+    @FunctionalInterface
+    private interface SplitExport {
+        long run(int split, QueryCancellation cancellation) throws SQLException, IOException;
+    }
+
+    @FunctionalInterface
+    private interface SplitConsumer {
+        void accept(int split) throws IOException;
+    }
+
+    /**
+     * Runs split 0 on the calling thread and the others on worker threads,
+     * handing each split to {@code finished} once it is done: split 0 first,
+     * then the others in split order or in the order they finish. A failed
+     * split cancels the queries of the rest, and the method returns only once
+     * every worker has stopped, so no split still uses a connection or file
+     * its caller releases.
+     *
+     * @return Total number of rows the splits read, or -1 if a split could not
+     *         tell
+     */
+    private long runSplits(IngestionRequest request, int count, SplitExport export, SplitConsumer finished)
+            throws SQLException, IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(count - 1,
+                workerThreads.factory("export-split-", true));
+        List<QueryCancellation> cancellations = new ArrayList<>();
+        List<Future<Long>> futures = new ArrayList<>();
+        boolean succeeded = false;
+        try {
+            CompletionService<Long> completion = new ExecutorCompletionService<>(executor);
+            Map<Future<Long>, Integer> splitOf = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                cancellations.add(new QueryCancellation());
+            }
+            for (int i = 1; i < count; i++) {
+                int split = i;
+                Future<Long> future = completion.submit(() -> export.run(split, cancellations.get(split)));
+                futures.add(future);
+                splitOf.put(future, split);
+            }
+
+            long rows = export.run(0, cancellations.get(0));
+            finished.accept(0);
+            for (int i = 1; i < count; i++) {
+                Future<Long> future = request.isPreserveOrder() ? futures.get(i - 1) : completion.take();
+                long splitRows = future.get();
+                rows = rows < 0 || splitRows < 0 ? -1 : rows + splitRows;
+                finished.accept(splitOf.get(future));
+            }
+            succeeded = true;
+            return rows;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new SQLException("Export split failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for export splits", e);
+        } finally {
+            if (!succeeded) {
+                cancellations.forEach(QueryCancellation::cancel);
+                futures.forEach(future -> future.cancel(true));
+            }
+            WorkerThreads.shutdownAndAwait(executor);
+        }
+    }
+
+    /**
+     * Exports the rows of one split into a stream, which is closed afterwards.
+     *
+     * @param connection   Connection for JDBC reads; not used by passthrough
+     *                     exports
+     * @param cancellation Receives the running query, see {@link #runSplits}
+     * @return Number of rows read, or for passthrough exports the number
+     *         ClickHouse reports (-1 if it does not)
+     */
+    private long exportSplit(IngestionRequest request, Connection connection, String where, boolean header,
+            OutputStream out, IngestionProgress progress, QueryCancellation cancellation)
+            throws SQLException, IOException {
+        try (out) {
+            if (exportPassthrough) {
+                return clickHouseService.exportFormatted(request.getClickHouseConfig(), request.getTableName(),
+                        request.getSelectedColumns(), where, header, request.getFlatFileConfig().getDelimiter(),
+                        out, progress, cancellation);
+            }
+
+            ClickHouseService.DataHandler handler = progress.track(flatFileService.createFlatFileShardHandler(
+                    request.getFlatFileConfig(), request.getSelectedColumns(), out, header));
+            return clickHouseService.transferDataFromClickHouse(connection, request.getTableName(),
+                    request.getSelectedColumns(), where, handler, cancellation);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary export file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private int transferFromClickHouse(IngestionRequest request, Connection connection,
+            ClickHouseService.DataHandler handler, IngestionProgress progress) throws SQLException {
+        if (isJoinRequired(request)) {
+            log.info("Executing JOIN-based ingestion with additional tables: {}", request.getAdditionalTables());
+            return clickHouseService.transferJoinDataFromClickHouse(
+                    connection,
+                    request.getTableName(),
+                    request.getAdditionalTables(),
+                    request.getJoinCondition(),
+                    request.getSelectedColumns(),
+                    handler);
+        }
+
+        log.info("Executing simple ingestion for table: {}", request.getTableName());
+        progress.setTotalRows(clickHouseService.countRows(connection, request.getTableName()));
+        return clickHouseService.transferDataFromClickHouse(
+                connection,
+                request.getTableName(),
+                request.getSelectedColumns(),
+                handler);
+    }
+
 }
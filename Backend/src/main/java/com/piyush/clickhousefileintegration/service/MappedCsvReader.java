@@ -0,0 +1,71 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads delimited records from a local file by memory-mapping it, so the
+ * {@link ByteCsvReader} scan runs over the page cache without copying the file
+ * through an InputStream first.
+ *
+ * The file is mapped in windows of at most {@value #MAX_WINDOW} bytes, so
+ * files of any size can be read, but a single record must fit in one window.
+ */
+public class MappedCsvReader extends ByteCsvReader {
+
+    private static final int MAX_WINDOW = 256 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long end;
+    private final int maxWindow;
+
+    /**
+     * Opens a whole file.
+     */
+    public MappedCsvReader(Path file, char delimiter, Charset charset) throws IOException {
+        this(file, 0, -1, delimiter, charset, MAX_WINDOW);
+    }
+
+    /**
+     * Opens the records in bytes [start, end) of a file, e.g. a chunk from
+     * {@link CsvChunkSplitter}; {@code start} must be at a record boundary.
+     */
+    public MappedCsvReader(Path file, long start, long end, char delimiter, Charset charset) throws IOException {
+        this(file, start, end, delimiter, charset, MAX_WINDOW);
+    }
+
+    MappedCsvReader(Path file, long start, long end, char delimiter, Charset charset, int maxWindow)
+            throws IOException {
+        super(delimiter, charset);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+        this.maxWindow = maxWindow;
+        map(start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    protected boolean isLastWindow() {
+        return getWindowStart() + getWindow().limit() >= end;
+    }
+
+    @Override
+    protected void moveWindow(long from, boolean larger) throws IOException {
+        if (larger) {
+            throw new IOException("Record at byte " + from + " is larger than " + maxWindow + " bytes");
+        }
+        map(from);
+    }
+
+    private void map(long from) throws IOException {
+        long length = Math.min(maxWindow, end - from);
+        setWindow(channel.map(FileChannel.MapMode.READ_ONLY, from, Math.max(0, length)), from);
+    }
+}
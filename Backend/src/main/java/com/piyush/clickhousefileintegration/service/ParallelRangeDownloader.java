@@ -0,0 +1,257 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Downloads a file over several HTTP connections at once, one byte range
+ * ("part") per request, into a preallocated local file.
+ *
+ * A single connection to a high-latency object store is limited by its
+ * round-trip time rather than by the link; N connections each fetching
+ * {@code partSize} bytes get close to N times the throughput until the link is
+ * full. Parts are taken in file order by {@code connections} workers and
+ * written with positional {@link FileChannel} writes, each through a
+ * {@link RemoteFileInputStream} range so dropped or stalled parts resume where
+ * they stopped. Every part request carries the validator of the probe in
+ * {@code If-Range}, so a file that changes mid-download fails instead of
+ * mixing versions.
+ *
+ * The download runs in the background; as an {@link CsvChunkSplitter.Availability}
+ * it lets the splitter and the chunk parsers read parts as soon as they are
+ * written, so parsing overlaps the rest of the download.
+ */
+@Slf4j
+public class ParallelRangeDownloader implements CsvChunkSplitter.Availability, AutoCloseable {
+
+    private static final int READ_AHEAD_CHUNKS = 4;
+
+    private final HttpClient client;
+    private final HttpRequest.Builder request;
+    private final Path target;
+    private final long size;
+    private final long partSize;
+    private final int partCount;
+    private final String validator;
+    private final int maxRetries;
+    private final long stallTimeoutMs;
+    private final ThreadFactory threadFactory;
+    private final FileChannel channel;
+    private final ExecutorService executor;
+    private final AtomicInteger nextPart = new AtomicInteger();
+    private final long startedAt = System.nanoTime();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition partDone = lock.newCondition();
+    private final BitSet done;
+    private int doneCount;
+    private IOException failure;
+    private boolean closed;
+
+    private ParallelRangeDownloader(HttpClient client, HttpRequest.Builder request, Path target, long size,
+            String validator, int connections, long partSize, int maxRetries, long stallTimeoutMs,
+            ThreadFactory threadFactory) throws IOException {
+        this.client = client;
+        this.request = request;
+        this.target = target;
+        this.size = size;
+        this.partSize = partSize;
+        this.partCount = (int) ((size + partSize - 1) / partSize);
+        this.validator = validator;
+        this.maxRetries = maxRetries;
+        this.stallTimeoutMs = stallTimeoutMs;
+        this.threadFactory = threadFactory;
+        this.done = new BitSet(partCount);
+
+        try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+            file.setLength(size);
+        }
+        this.channel = FileChannel.open(target, StandardOpenOption.WRITE);
+
+        int workers = Math.max(1, Math.min(connections, partCount));
+        this.executor = Executors.newFixedThreadPool(workers, threadFactory);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::downloadParts);
+        }
+        log.info("Downloading {} bytes in {} parts of up to {} bytes over {} connections",
+                size, partCount, partSize, workers);
+    }
+
+    /**
+     * Probes the file with a HEAD request and, if the server reports its size
+     * and accepts byte ranges, starts downloading it into {@code target}.
+     *
+     * @param client         HTTP client
+     * @param request        Request for the file; copied for every part
+     * @param target         File to write; resized to the remote size
+     * @param connections    Number of parts downloaded at once
+     * @param partSize       Bytes per range request
+     * @param maxRetries     Resume attempts per part allowed without progress
+     * @param stallTimeoutMs Time without data after which a part is resumed,
+     *                       or 0 to wait indefinitely
+     * @param threadFactory  Creates the download threads
+     * @return The running download, or null if the file cannot be fetched in
+     *         ranges (unknown size, no range support, or HEAD not allowed)
+     * @throws IOException if the probe fails
+     */
+    public static ParallelRangeDownloader start(HttpClient client, HttpRequest.Builder request, Path target,
+            int connections, long partSize, int maxRetries, long stallTimeoutMs, ThreadFactory threadFactory)
+            throws IOException, InterruptedException {
+        HttpResponse<Void> probe = client.send(
+                request.copy().method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding());
+        long size = probe.headers().firstValueAsLong("Content-Length").orElse(-1);
+        boolean ranges = probe.headers().firstValue("Accept-Ranges").orElse("").equalsIgnoreCase("bytes");
+        boolean encoded = probe.headers().firstValue("Content-Encoding").isPresent();
+        if (probe.statusCode() != 200 || size <= 0 || !ranges || encoded) {
+            log.info("Not downloading in parallel: HTTP {}, Content-Length {}, Accept-Ranges {}",
+                    probe.statusCode(), size, ranges ? "bytes" : "none");
+            return null;
+        }
+        return new ParallelRangeDownloader(client, request, target, size, RemoteFileInputStream.validator(probe),
+                connections, Math.max(1, partSize), maxRetries, stallTimeoutMs, threadFactory);
+    }
+
+    public Path getTarget() {
+        return target;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Blocks until every part overlapping [from, to) is written.
+     *
+     * @throws IOException if the download failed or was closed
+     */
+    @Override
+    public void await(long from, long to) throws IOException {
+        if (to <= from) {
+            return;
+        }
+        int first = (int) (from / partSize);
+        int last = (int) ((Math.min(to, size) - 1) / partSize);
+        lock.lock();
+        try {
+            while (done.nextClearBit(first) <= last) {
+                if (failure != null) {
+                    throw new IOException("Download failed: " + failure.getMessage(), failure);
+                }
+                if (closed) {
+                    throw new IOException("Download closed");
+                }
+                partDone.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for download");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the download if it is still running and closes the file; the file
+     * itself is left for the caller to delete.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            partDone.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdownNow();
+        channel.close();
+    }
+
+    private void downloadParts() {
+        int part;
+        while ((part = nextPart.getAndIncrement()) < partCount) {
+            try {
+                downloadPart(part);
+            } catch (IOException | InterruptedException e) {
+                fail(part, e);
+                return;
+            }
+            if (!markDone(part)) {
+                return;
+            }
+        }
+    }
+
+    private void downloadPart(int part) throws IOException, InterruptedException {
+        long from = part * partSize;
+        long to = Math.min(size, from + partSize);
+        try (RemoteFileInputStream in = RemoteFileInputStream.openRange(client, request, from, to, validator,
+                maxRetries, stallTimeoutMs, READ_AHEAD_CHUNKS, threadFactory)) {
+            byte[] buffer = new byte[RemoteFileInputStream.CHUNK_SIZE];
+            long position = from;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, n);
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+            }
+            if (position != to) {
+                throw new IOException("Part " + part + " ended at byte " + position + " instead of " + to);
+            }
+        }
+    }
+
+    /**
+     * @return false if the download was closed or failed meanwhile
+     */
+    private boolean markDone(int part) {
+        lock.lock();
+        try {
+            done.set(part);
+            if (++doneCount == partCount) {
+                double seconds = Math.max(1e-9, (System.nanoTime() - startedAt) / 1e9);
+                log.info("Downloaded {} bytes in {} ms ({} MB/s)", size, Math.round(seconds * 1000),
+                        String.format("%.1f", size / seconds / (1024 * 1024)));
+            }
+            partDone.signalAll();
+            return failure == null && !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void fail(int part, Exception e) {
+        lock.lock();
+        try {
+            if (closed || failure != null) {
+                return;
+            }
+            failure = e instanceof IOException ? (IOException) e
+                    : new IOException("Interrupted while downloading part " + part, e);
+            partDone.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        log.warn("Download of part {} failed: {}", part, e.getMessage());
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,60 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.sql.SQLException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lets one thread stop a ClickHouse query running on another, e.g. the
+ * remaining splits of a parallel export after one of them failed.
+ *
+ * The query registers what it reads from while it runs: a JDBC statement,
+ * cancelled with {@link java.sql.Statement#cancel()}, or an HTTP request,
+ * disconnected. Either makes the blocked read fail, which an interrupt alone
+ * does not. A query registered after {@link #cancel()} is stopped at once.
+ */
+@Slf4j
+public final class QueryCancellation {
+
+    /**
+     * Stops a running query; called from the cancelling thread.
+     */
+    @FunctionalInterface
+    public interface Canceller {
+        void cancel() throws Exception;
+    }
+
+    private Canceller running;
+    private boolean cancelled;
+
+    /**
+     * Registers the running query of the calling thread.
+     *
+     * @throws SQLException if the cancellation was already requested
+     */
+    public synchronized void register(Canceller canceller) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query was cancelled");
+        }
+        running = canceller;
+    }
+
+    /**
+     * Forgets the query registered last, once it has finished.
+     */
+    public synchronized void unregister() {
+        running = null;
+    }
+
+    public synchronized void cancel() {
+        cancelled = true;
+        if (running != null) {
+            try {
+                running.cancel();
+            } catch (Exception e) {
+                log.warn("Failed to cancel ClickHouse query: {}", e.getMessage());
+            }
+            running = null;
+        }
+    }
+}
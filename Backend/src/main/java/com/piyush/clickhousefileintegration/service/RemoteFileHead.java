@@ -0,0 +1,115 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The first bytes of a file served over HTTP(S), for schema detection and
+ * previews that only look at the first records.
+ *
+ * The head is requested with {@code Range: bytes=0-<n-1>}. Servers that
+ * ignore the range answer with the whole file, of which only the first bytes
+ * are read before the connection is closed. Unless the file ends within the
+ * head, the head is cut after its last complete record (see
+ * {@link CsvChunkSplitter#lastRecordEnd}), so parsers never see a truncated
+ * row; this requires an ASCII-compatible encoding.
+ */
+@Slf4j
+public final class RemoteFileHead {
+
+    private final byte[] bytes;
+    private final int length;
+    private final boolean complete;
+    private final long fetchedAt;
+
+    private RemoteFileHead(byte[] bytes, int length, boolean complete) {
+        this.bytes = bytes;
+        this.length = length;
+        this.complete = complete;
+        this.fetchedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Fetches at most {@code maxBytes} bytes from the start of a file.
+     *
+     * @param client   HTTP client
+     * @param request  Request for the file
+     * @param maxBytes Maximum number of bytes to fetch
+     * @return The head, or empty if it does not hold a complete record
+     * @throws IOException if the request fails or the status is neither 200
+     *                     nor 206
+     */
+    public static Optional<RemoteFileHead> fetch(HttpClient client, HttpRequest.Builder request, int maxBytes)
+            throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(
+                request.copy().header("Range", "bytes=0-" + (maxBytes - 1)).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        if (status != 200 && status != 206) {
+            response.body().close();
+            throw new IOException("HTTP error code: " + status);
+        }
+
+        byte[] bytes;
+        boolean complete;
+        // Closing the body early drops the connection, which stops a server that ignored the range
+        try (InputStream body = response.body()) {
+            bytes = body.readNBytes(maxBytes);
+            complete = status == 206 ? bytes.length >= fileSize(response) : body.read() < 0;
+        }
+
+        int length = complete ? bytes.length : CsvChunkSplitter.lastRecordEnd(bytes, bytes.length);
+        log.info("Fetched {} bytes from the head of the file ({}, HTTP {})", bytes.length,
+                complete ? "whole file" : "cut to " + length + " bytes of complete records", status);
+        return length > 0 ? Optional.of(new RemoteFileHead(bytes, length, complete)) : Optional.empty();
+    }
+
+    /**
+     * @return Total file size from {@code Content-Range: bytes <first>-<last>/<size>},
+     *         or {@link Long#MAX_VALUE} if the server did not say
+     */
+    private static long fileSize(HttpResponse<?> response) {
+        String range = response.headers().firstValue("Content-Range").orElse("");
+        int slash = range.lastIndexOf('/');
+        try {
+            return slash >= 0 ? Long.parseLong(range.substring(slash + 1).trim()) : Long.MAX_VALUE;
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return A new stream over the complete records of the head
+     */
+    public InputStream open() {
+        return new ByteArrayInputStream(bytes, 0, length);
+    }
+
+    /**
+     * @return Number of bytes of complete records in the head
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return True if the head is the whole file
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return Time the head was fetched, in epoch milliseconds
+     */
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+}
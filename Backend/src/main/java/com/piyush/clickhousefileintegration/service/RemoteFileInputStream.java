@@ -0,0 +1,422 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads a file served over HTTP(S) while it downloads, without staging it on
+ * disk.
+ *
+ * A download thread reads the response body into a bounded queue of chunks
+ * that the caller consumes, so the download runs ahead of parsing by at most
+ * {@code readAheadChunks} chunks of {@value #CHUNK_SIZE} bytes and then waits
+ * for the parser (and through it the inserts) to catch up.
+ *
+ * When the connection drops, the body ends before its Content-Length, or no
+ * data arrives for {@code stallTimeoutMs} while the reader waits, the
+ * download resumes from the first missing byte with a {@code Range} request.
+ * The request carries the ETag or Last-Modified of the first response in
+ * {@code If-Range}, so a file that changed in between is not stitched
+ * together: the server answers with the whole new file and the read fails.
+ * Resuming is not attempted if the server declares
+ * {@code Accept-Ranges: none}, and gives up after {@code maxRetries}
+ * consecutive attempts that make no progress.
+ *
+ * {@link #openRange} reads a single byte range the same way, e.g. one part of
+ * a {@link ParallelRangeDownloader}.
+ *
+ * Instances are read by a single thread; {@link #close()} stops the download.
+ */
+@Slf4j
+public class RemoteFileInputStream extends InputStream {
+
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final byte[] END = new byte[0];
+    private static final long INITIAL_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private final HttpClient client;
+    private final HttpRequest.Builder request;
+    private final int maxRetries;
+    private final long stallTimeoutMs;
+    private final long start;
+    private final long end;
+    private final boolean ranged;
+    private final String validator;
+    private final boolean resumable;
+    private final BlockingQueue<byte[]> chunks;
+    private final Thread downloader;
+
+    private volatile InputStream body;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private volatile boolean receiving;
+    private volatile boolean stalled;
+    private volatile int resumes;
+    private long offset;
+
+    private byte[] current = new byte[0];
+    private int position;
+    private boolean eof;
+
+    private RemoteFileInputStream(HttpClient client, HttpRequest.Builder request, HttpResponse<InputStream> response,
+            long start, long end, boolean ranged, String validator, int maxRetries, long stallTimeoutMs,
+            int readAheadChunks, ThreadFactory threadFactory) {
+        this.client = client;
+        this.request = request;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.stallTimeoutMs = stallTimeoutMs;
+        this.body = response.body();
+        this.start = start;
+        this.end = end;
+        this.ranged = ranged;
+        this.offset = start;
+        this.validator = validator;
+        this.resumable = !response.headers().firstValue("Accept-Ranges").orElse("").equalsIgnoreCase("none");
+        this.chunks = new ArrayBlockingQueue<>(Math.max(1, readAheadChunks));
+        this.downloader = threadFactory.newThread(this::download);
+        this.downloader.start();
+    }
+
+    /**
+     * Sends the request and starts downloading the response body.
+     *
+     * @param client          HTTP client
+     * @param request         Request for the file; copied for every attempt
+     * @param maxRetries      Resume attempts allowed without progress
+     * @param stallTimeoutMs  Time without data after which the connection is
+     *                        dropped and the download resumed, or 0 to wait
+     *                        indefinitely
+     * @param readAheadChunks Maximum number of chunks downloaded ahead of the
+     *                        reader
+     * @param threadFactory   Creates the download thread
+     * @throws IOException if the request fails or the status is not 200
+     */
+    public static RemoteFileInputStream open(HttpClient client, HttpRequest.Builder request, int maxRetries,
+            long stallTimeoutMs, int readAheadChunks, ThreadFactory threadFactory)
+            throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(request.copy().GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("HTTP error code: " + response.statusCode());
+        }
+        long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        return new RemoteFileInputStream(client, request, response, 0, length, false, validator(response),
+                maxRetries, stallTimeoutMs, readAheadChunks, threadFactory);
+    }
+
+    /**
+     * Sends a request for the byte range [from, to) and starts downloading it.
+     *
+     * @param validator ETag or Last-Modified the file must still match, sent
+     *                  in {@code If-Range}; null to accept any version
+     * @throws IOException if the request fails or the server does not answer
+     *                     with the requested range
+     * @see #open
+     */
+    public static RemoteFileInputStream openRange(HttpClient client, HttpRequest.Builder request, long from, long to,
+            String validator, int maxRetries, long stallTimeoutMs, int readAheadChunks, ThreadFactory threadFactory)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder range = request.copy().header("Range", rangeHeader(from, to));
+        if (validator != null) {
+            range.header("If-Range", validator);
+        }
+        HttpResponse<InputStream> response = client.send(range.GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 206 || rangeStart(response) != from) {
+            response.body().close();
+            throw new IOException("Cannot read bytes " + from + "-" + (to - 1) + ": the server answered HTTP "
+                    + response.statusCode() + (response.statusCode() == 200
+                            ? ", the file changed or ranges are not supported" : ""));
+        }
+        return new RemoteFileInputStream(client, request, response, from, to, true,
+                validator != null ? validator : validator(response), maxRetries, stallTimeoutMs, readAheadChunks,
+                threadFactory);
+    }
+
+    /**
+     * @return Number of bytes this stream delivers, from Content-Length or the
+     *         requested range, or -1 if unknown
+     */
+    public long getContentLength() {
+        return end < 0 ? -1 : end - start;
+    }
+
+    /**
+     * @return Number of times the download was resumed after a dropped
+     *         connection
+     */
+    public int getResumeCount() {
+        return resumes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        downloader.interrupt();
+        chunks.clear();
+        body.close();
+    }
+
+    /**
+     * Makes the current chunk non-empty, waiting for the download if needed.
+     *
+     * @return false at the end of the file
+     * @throws IOException if the download failed
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == current.length) {
+            if (eof) {
+                throwIfFailed();
+                return false;
+            }
+            byte[] next;
+            try {
+                next = stallTimeoutMs > 0 ? chunks.poll(stallTimeoutMs, TimeUnit.MILLISECONDS) : chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for download");
+            }
+            if (next == null) {
+                dropIfStalled();
+            } else if (next == END) {
+                eof = true;
+            } else {
+                current = next;
+                position = 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes the response body if the download is waiting for data, which
+     * makes the download thread's read fail and resume.
+     */
+    private void dropIfStalled() {
+        if (!receiving) {
+            return;
+        }
+        stalled = true;
+        try {
+            body.close();
+        } catch (IOException e) {
+            log.debug("Failed to close stalled response: {}", e.getMessage());
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private void download() {
+        int attempts = 0;
+        long failedAt = -1;
+        try {
+            while (true) {
+                IOException interruption;
+                try {
+                    copyBody();
+                    if (end < 0 || offset >= end) {
+                        break;
+                    }
+                    interruption = new EOFException(
+                            "Connection closed after " + (offset - start) + " of " + (end - start) + " bytes");
+                } catch (IOException e) {
+                    if (closed) {
+                        return;
+                    }
+                    interruption = stalled
+                            ? new IOException("No data received for " + stallTimeoutMs + " ms", e)
+                            : e;
+                }
+                stalled = false;
+
+                // Attempts only count against the limit while no bytes arrive
+                if (offset > failedAt) {
+                    attempts = 0;
+                }
+                failedAt = offset;
+                attempts = resume(interruption, attempts);
+            }
+            chunks.put(END);
+        } catch (IOException e) {
+            if (!closed) {
+                failure = e;
+                chunks.offer(END);
+            }
+        } catch (InterruptedException e) {
+            // Closed by the reader
+        }
+    }
+
+    private void copyBody() throws IOException, InterruptedException {
+        InputStream in = body;
+        byte[] buffer = new byte[CHUNK_SIZE];
+        int n;
+        while (true) {
+            receiving = true;
+            try {
+                n = in.read(buffer);
+            } finally {
+                receiving = false;
+            }
+            if (n == -1) {
+                return;
+            }
+            if (n == 0) {
+                continue;
+            }
+            chunks.put(n == buffer.length ? buffer : Arrays.copyOf(buffer, n));
+            offset += n;
+            if (n == buffer.length) {
+                buffer = new byte[CHUNK_SIZE];
+            }
+        }
+    }
+
+    /**
+     * Re-requests the file from {@link #offset} until a response continues it,
+     * and makes that response the new body.
+     *
+     * @param attempts Attempts already made since the last progress
+     * @return Attempts made since the last progress, including this one
+     */
+    private int resume(IOException interruption, int attempts) throws IOException, InterruptedException {
+        if (!resumable) {
+            throw new IOException("Download interrupted at byte " + offset
+                    + " and the server does not accept range requests: " + interruption.getMessage(), interruption);
+        }
+        try {
+            body.close();
+        } catch (IOException e) {
+            log.debug("Failed to close interrupted response: {}", e.getMessage());
+        }
+        while (true) {
+            if (++attempts > maxRetries) {
+                throw new IOException("Download interrupted at byte " + offset + " after " + maxRetries
+                        + " resume attempts: " + interruption.getMessage(), interruption);
+            }
+            long backoff = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(attempts - 1, 16));
+            log.warn("Download interrupted at byte {} ({}); resuming in {} ms, attempt {} of {}",
+                    offset, interruption.getMessage(), backoff, attempts, maxRetries);
+            Thread.sleep(backoff);
+
+            HttpRequest.Builder range = request.copy().header("Range", rangeHeader(offset, ranged ? end : -1));
+            if (validator != null) {
+                range.header("If-Range", validator);
+            }
+            HttpResponse<InputStream> response;
+            try {
+                response = client.send(range.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+            } catch (IOException e) {
+                // The server may still be unreachable; the next attempt retries
+                interruption = e;
+                continue;
+            }
+
+            int status = response.statusCode();
+            if (status == 206 && rangeStart(response) == offset) {
+                body = response.body();
+                resumes++;
+                log.info("Resumed download at byte {}", offset);
+                return attempts;
+            }
+            response.body().close();
+            if (status == 200 || status == 206 || status == 416) {
+                throw new IOException("Cannot resume download at byte " + offset + ": the server answered HTTP "
+                        + status + (status == 200 ? ", the file changed or ranges are not supported" : ""),
+                        interruption);
+            }
+            interruption = new IOException("Resume request failed with HTTP " + status);
+        }
+    }
+
+    /**
+     * @return Range header value for [from, to), or from the first byte to the
+     *         end of the file if {@code to} is negative
+     */
+    private static String rangeHeader(long from, long to) {
+        return "bytes=" + from + "-" + (to < 0 ? "" : String.valueOf(to - 1));
+    }
+
+    /**
+     * @return First byte position of a 206 response, from
+     *         {@code Content-Range: bytes <first>-<last>/<size>}, or -1
+     */
+    private static long rangeStart(HttpResponse<?> response) {
+        Optional<String> range = response.headers().firstValue("Content-Range");
+        if (range.isEmpty() || !range.get().startsWith("bytes ")) {
+            return -1;
+        }
+        String spec = range.get().substring("bytes ".length());
+        int dash = spec.indexOf('-');
+        try {
+            return dash > 0 ? Long.parseLong(spec.substring(0, dash).trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return A strong ETag, or else Last-Modified, usable in If-Range; null
+     *         if the response has neither
+     */
+    static String validator(HttpResponse<?> response) {
+        Optional<String> etag = response.headers().firstValue("ETag");
+        if (etag.isPresent() && !etag.get().startsWith("W/")) {
+            return etag.get();
+        }
+        return response.headers().firstValue("Last-Modified").orElse(null);
+    }
+}
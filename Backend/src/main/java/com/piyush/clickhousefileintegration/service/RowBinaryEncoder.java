@@ -0,0 +1,766 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.piyush.clickhousefileintegration.model.ColumnMetadata;
+
+/**
+ * Encodes rows into ClickHouse's RowBinary format.
+ *
+ * One {@link ColumnWriter} is compiled per target column from its ClickHouse
+ * type (as reported by {@code DESCRIBE TABLE}), so no type guessing happens per
+ * value. Textual values, as produced by the CSV reader, are parsed directly
+ * into primitives and written little-endian into a reusable buffer.
+ *
+ * Empty strings are written as NULL for Nullable columns and as the type's
+ * default value otherwise, mirroring ClickHouse's own CSV input defaults.
+ * Values that do not fit their column type, e.g. 300 in a UInt8 column, are
+ * rejected with a {@link SQLDataException} naming the row and column rather
+ * than wrapped around.
+ *
+ * Rows can be given as objects ({@link #writeRow}) or read straight from a
+ * {@link ColumnBatch} ({@link #writeBatch}); for batches, strings and integers
+ * are copied or parsed from the batch buffers without creating objects.
+ */
+public class RowBinaryEncoder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final List<String> columnNames;
+    private final List<String> columnTypes;
+    private final List<ColumnWriter> writers;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private long bytesWritten;
+    private long rowsWritten;
+    private OutputStream out;
+
+    /**
+     * @param columnTypes ClickHouse type of each encoded column, in insert order
+     * @param serverZone  Time zone used for DateTime columns without an explicit
+     *                    zone
+     * @throws UnsupportedOperationException if a column type cannot be encoded
+     */
+    public RowBinaryEncoder(List<String> columnTypes, ZoneId serverZone) {
+        this(null, columnTypes, serverZone);
+    }
+
+    /**
+     * @param columnNames Name of each encoded column, used in error messages,
+     *                    or null to number the columns
+     * @param columnTypes ClickHouse type of each encoded column, in insert order
+     * @param serverZone  Time zone used for DateTime columns without an explicit
+     *                    zone
+     * @throws UnsupportedOperationException if a column type cannot be encoded
+     */
+    public RowBinaryEncoder(List<String> columnNames, List<String> columnTypes, ZoneId serverZone) {
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.writers = new ArrayList<>(columnTypes.size());
+        for (String type : columnTypes) {
+            writers.add(compile(type.trim(), serverZone));
+        }
+    }
+
+    /**
+     * Looks up the ClickHouse type of every selected column in the table schema.
+     *
+     * @param selectedColumns Columns to insert, in insert order
+     * @param tableSchema     Result of DESCRIBE TABLE on the target table
+     * @return ClickHouse type names aligned with the selected columns
+     * @throws IllegalArgumentException if a selected column is not in the table
+     */
+    public static List<String> resolveColumnTypes(List<String> selectedColumns, List<ColumnMetadata> tableSchema) {
+        List<String> types = new ArrayList<>(selectedColumns.size());
+        for (String name : selectedColumns) {
+            String type = tableSchema.stream()
+                    .filter(column -> column.getName().equals(name))
+                    .map(ColumnMetadata::getType)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Column '" + name + "' not found in target table"));
+            types.add(type);
+        }
+        return types;
+    }
+
+    /**
+     * Returns true when every type in the list can be encoded.
+     */
+    public static boolean supports(List<String> columnTypes) {
+        try {
+            new RowBinaryEncoder(columnTypes, ZoneId.of("UTC"));
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts encoding into the given stream. The encoder buffers internally;
+     * call {@link #flush()} to push buffered bytes to the stream.
+     */
+    public void open(OutputStream out) {
+        this.out = out;
+        this.position = 0;
+    }
+
+    /**
+     * Encodes one value per column, in the order the encoder was built with.
+     *
+     * @throws SQLDataException if a value does not fit its column type
+     */
+    public void writeRow(Object[] values) throws IOException, SQLException {
+        for (int i = 0; i < writers.size(); i++) {
+            try {
+                writers.get(i).write(values[i], this);
+            } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {
+                throw invalidValue(i, e);
+            }
+        }
+        rowsWritten++;
+    }
+
+    /**
+     * Encodes every row of a batch.
+     *
+     * @param batch   Source batch
+     * @param columns Batch column of each encoded column, in the order the
+     *                encoder was built with; -1 writes the column's default
+     * @throws SQLDataException if a value does not fit its column type
+     */
+    public void writeBatch(ColumnBatch batch, int[] columns) throws IOException, SQLException {
+        int rows = batch.size();
+        int count = writers.size();
+        for (int row = 0; row < rows; row++) {
+            for (int i = 0; i < count; i++) {
+                int column = columns[i];
+                try {
+                    if (column < 0) {
+                        writers.get(i).write(null, this);
+                    } else {
+                        writers.get(i).writeFrom(batch, column, row, this);
+                    }
+                } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {
+                    throw invalidValue(i, e);
+                }
+            }
+            rowsWritten++;
+        }
+    }
+
+    /**
+     * Describes a value that cannot be encoded. Rows are numbered from 1 over
+     * everything the encoder has written.
+     */
+    private SQLDataException invalidValue(int index, RuntimeException cause) {
+        String column = columnNames != null ? "'" + columnNames.get(index) + "'" : String.valueOf(index + 1);
+        return new SQLDataException("Invalid value in row " + (rowsWritten + 1) + ", column " + column + " ("
+                + columnTypes.get(index) + "): " + cause.getMessage(), "22000", cause);
+    }
+
+    /**
+     * Writes any buffered bytes to the underlying stream.
+     */
+    public void flush() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            bytesWritten += position;
+            position = 0;
+        }
+    }
+
+    /**
+     * @return Total number of rows encoded
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * @return Total number of bytes flushed to the underlying stream
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    // ------------------------------------------------------------------
+    // Type compilation
+    // ------------------------------------------------------------------
+
+    @FunctionalInterface
+    interface ColumnWriter {
+        void write(Object value, RowBinaryEncoder out) throws IOException;
+
+        default void writeFrom(ColumnBatch batch, int column, int row, RowBinaryEncoder out) throws IOException {
+            write(batch.getObject(column, row), out);
+        }
+    }
+
+    @FunctionalInterface
+    interface BatchWriter {
+        void writeFrom(ColumnBatch batch, int column, int row, RowBinaryEncoder out) throws IOException;
+    }
+
+    /**
+     * Combines the object path of a writer with a faster path for batches.
+     */
+    private static ColumnWriter withBatchPath(ColumnWriter objectPath, BatchWriter batchPath) {
+        return new ColumnWriter() {
+            @Override
+            public void write(Object value, RowBinaryEncoder out) throws IOException {
+                objectPath.write(value, out);
+            }
+
+            @Override
+            public void writeFrom(ColumnBatch batch, int column, int row, RowBinaryEncoder out) throws IOException {
+                batchPath.writeFrom(batch, column, row, out);
+            }
+        };
+    }
+
+    private static ColumnWriter compile(String type, ZoneId serverZone) {
+        if (type.startsWith("LowCardinality(")) {
+            // LowCardinality is transparent in RowBinary
+            return compile(unwrap(type, "LowCardinality("), serverZone);
+        }
+        if (type.startsWith("Nullable(")) {
+            ColumnWriter inner = compile(unwrap(type, "Nullable("), serverZone);
+            return withBatchPath((value, out) -> {
+                if (isNull(value)) {
+                    out.writeByte(1);
+                } else {
+                    out.writeByte(0);
+                    inner.write(value, out);
+                }
+            }, (batch, column, row, out) -> {
+                if (batch.isNullOrEmpty(column, row)) {
+                    out.writeByte(1);
+                } else {
+                    out.writeByte(0);
+                    inner.writeFrom(batch, column, row, out);
+                }
+            });
+        }
+        if (type.startsWith("FixedString(")) {
+            int length = Integer.parseInt(unwrap(type, "FixedString(").trim());
+            return (value, out) -> out.writeFixedString(value, length);
+        }
+        if (type.startsWith("DateTime64(")) {
+            String[] args = unwrap(type, "DateTime64(").split(",", 2);
+            int precision = Integer.parseInt(args[0].trim());
+            ZoneId zone = args.length > 1 ? parseZone(args[1]) : serverZone;
+            return (value, out) -> out.writeLong(toDateTime64(value, precision, zone));
+        }
+        if (type.startsWith("DateTime(")) {
+            ZoneId zone = parseZone(unwrap(type, "DateTime("));
+            return (value, out) -> out.writeInt((int) toEpochSecond(value, zone));
+        }
+        if (type.startsWith("Decimal")) {
+            return compileDecimal(type);
+        }
+
+        switch (type) {
+            case "Int8":
+                return compileInteger(type, Byte.MIN_VALUE, Byte.MAX_VALUE, 1);
+            case "UInt8":
+                return compileInteger(type, 0, 0xFFL, 1);
+            case "Bool":
+                return (value, out) -> out.writeByte(toBoolean(value) ? 1 : 0);
+            case "Int16":
+                return compileInteger(type, Short.MIN_VALUE, Short.MAX_VALUE, 2);
+            case "UInt16":
+                return compileInteger(type, 0, 0xFFFFL, 2);
+            case "Int32":
+                return compileInteger(type, Integer.MIN_VALUE, Integer.MAX_VALUE, 4);
+            case "UInt32":
+                return compileInteger(type, 0, 0xFFFFFFFFL, 4);
+            case "Int64":
+                return withBatchPath((value, out) -> out.writeLong(toLong(value)),
+                        (batch, column, row, out) -> out.writeLong(batchLong(batch, column, row, false)));
+            case "UInt64":
+                // Values above Long.MAX_VALUE keep their bit pattern
+                return withBatchPath((value, out) -> out.writeLong(toUnsignedLong(value)),
+                        (batch, column, row, out) -> out.writeLong(batchLong(batch, column, row, true)));
+            case "Int128":
+            case "UInt128":
+                return (value, out) -> out.writeBigInteger(toBigInteger(value), 16);
+            case "Int256":
+            case "UInt256":
+                return (value, out) -> out.writeBigInteger(toBigInteger(value), 32);
+            case "Float32":
+                return withBatchPath((value, out) -> out.writeInt(Float.floatToIntBits((float) toDouble(value))),
+                        (batch, column, row, out) -> out.writeInt(
+                                Float.floatToIntBits((float) batchDouble(batch, column, row))));
+            case "Float64":
+                return withBatchPath((value, out) -> out.writeLong(Double.doubleToLongBits(toDouble(value))),
+                        (batch, column, row, out) -> out.writeLong(
+                                Double.doubleToLongBits(batchDouble(batch, column, row))));
+            case "String":
+                return withBatchPath((value, out) -> out.writeString(value), (batch, column, row, out) -> {
+                    if (batch.getSchema().getKind(column) != ColumnBatch.Kind.STRING) {
+                        out.writeString(batch.getObject(column, row));
+                    } else if (batch.isNull(column, row)) {
+                        out.writeVarInt(0);
+                    } else {
+                        int length = batch.getLength(column, row);
+                        out.writeVarInt(length);
+                        out.writeBytes(batch.getBytes(column), batch.getStart(column, row), length);
+                    }
+                });
+            case "Date":
+                return (value, out) -> out.writeShort((int) toEpochDay(value));
+            case "Date32":
+                return (value, out) -> out.writeInt((int) toEpochDay(value));
+            case "DateTime":
+                return (value, out) -> out.writeInt((int) toEpochSecond(value, serverZone));
+            case "UUID":
+                return (value, out) -> {
+                    UUID uuid = isNull(value) ? new UUID(0, 0) : UUID.fromString(value.toString().trim());
+                    out.writeLong(uuid.getMostSignificantBits());
+                    out.writeLong(uuid.getLeastSignificantBits());
+                };
+            default:
+                throw new UnsupportedOperationException("RowBinary encoding not supported for type " + type);
+        }
+    }
+
+    /**
+     * Compiles a writer for an integer type of up to 32 bits, which checks
+     * every value against the type's range.
+     */
+    private static ColumnWriter compileInteger(String type, long min, long max, int width) {
+        BatchWriter batchPath = (batch, column, row, out) -> out.writeInteger(
+                checkRange(batchLong(batch, column, row, false), min, max, type), width);
+        return withBatchPath((value, out) -> out.writeInteger(checkRange(toLong(value), min, max, type), width),
+                batchPath);
+    }
+
+    private static long checkRange(long value, long min, long max, String type) {
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("Value " + value + " out of range for " + type);
+        }
+        return value;
+    }
+
+    private static ColumnWriter compileDecimal(String type) {
+        int precision;
+        int scale;
+        if (type.startsWith("Decimal(")) {
+            String[] args = unwrap(type, "Decimal(").split(",");
+            precision = Integer.parseInt(args[0].trim());
+            scale = Integer.parseInt(args[1].trim());
+        } else if (type.startsWith("Decimal32(")) {
+            precision = 9;
+            scale = Integer.parseInt(unwrap(type, "Decimal32(").trim());
+        } else if (type.startsWith("Decimal64(")) {
+            precision = 18;
+            scale = Integer.parseInt(unwrap(type, "Decimal64(").trim());
+        } else if (type.startsWith("Decimal128(")) {
+            precision = 38;
+            scale = Integer.parseInt(unwrap(type, "Decimal128(").trim());
+        } else if (type.startsWith("Decimal256(")) {
+            precision = 76;
+            scale = Integer.parseInt(unwrap(type, "Decimal256(").trim());
+        } else {
+            throw new UnsupportedOperationException("RowBinary encoding not supported for type " + type);
+        }
+
+        int width = precision <= 9 ? 4 : precision <= 18 ? 8 : precision <= 38 ? 16 : 32;
+        return (value, out) -> {
+            BigInteger unscaled = isNull(value) ? BigInteger.ZERO
+                    : new BigDecimal(value.toString().trim()).setScale(scale, RoundingMode.HALF_UP).unscaledValue();
+            out.writeBigInteger(unscaled, width);
+        };
+    }
+
+    private static String unwrap(String type, String prefix) {
+        return type.substring(prefix.length(), type.lastIndexOf(')'));
+    }
+
+    private static ZoneId parseZone(String quoted) {
+        return ZoneId.of(quoted.trim().replace("'", ""));
+    }
+
+    // ------------------------------------------------------------------
+    // Value conversion
+    // ------------------------------------------------------------------
+
+    private static boolean isNull(Object value) {
+        return value == null || (value instanceof String && ((String) value).isEmpty());
+    }
+
+    private static long toLong(Object value) {
+        if (isNull(value)) {
+            return 0L;
+        }
+        if (value instanceof BigInteger) {
+            return ((BigInteger) value).longValueExact();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return doubleToLong(((Number) value).doubleValue());
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Boolean) {
+            return ((Boolean) value) ? 1L : 0L;
+        }
+        return Long.parseLong(value.toString().trim());
+    }
+
+    /**
+     * Converts a UInt64 value; values above Long.MAX_VALUE keep their bit
+     * pattern, negative values are rejected.
+     */
+    private static long toUnsignedLong(Object value) {
+        if (isNull(value)) {
+            return 0L;
+        }
+        if (value instanceof BigInteger) {
+            BigInteger big = (BigInteger) value;
+            if (big.signum() < 0 || big.bitLength() > 64) {
+                throw new IllegalArgumentException("Value " + big + " out of range for UInt64");
+            }
+            return big.longValue();
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return checkRange(toLong(value), 0, Long.MAX_VALUE, "UInt64");
+        }
+        String text = value.toString().trim();
+        if (text.startsWith("-")) {
+            // parseUnsignedLong rejects the sign, so check the value for a clearer message
+            return checkRange(Long.parseLong(text), 0, Long.MAX_VALUE, "UInt64");
+        }
+        return Long.parseUnsignedLong(text);
+    }
+
+    private static long doubleToLong(double value) {
+        // A cast would saturate at the long range instead
+        if (!(value >= -0x1p63 && value < 0x1p63)) {
+            throw new IllegalArgumentException("Value " + value + " out of range for a 64-bit integer");
+        }
+        return (long) value;
+    }
+
+    /**
+     * Reads an integer from a batch. Decimal text of up to 18 digits is parsed
+     * from the UTF-8 bytes directly; anything else goes through
+     * {@link #toLong(Object)}, or {@link #toUnsignedLong(Object)} for UInt64.
+     */
+    private static long batchLong(ColumnBatch batch, int column, int row, boolean unsigned) {
+        if (batch.isNull(column, row)) {
+            return 0L;
+        }
+        switch (batch.getSchema().getKind(column)) {
+            case LONG:
+                long value = batch.getLong(column, row);
+                return unsigned ? checkRange(value, 0, Long.MAX_VALUE, "UInt64") : value;
+            case DOUBLE:
+                long truncated = doubleToLong(batch.getDouble(column, row));
+                return unsigned ? checkRange(truncated, 0, Long.MAX_VALUE, "UInt64") : truncated;
+            default:
+                break;
+        }
+        byte[] bytes = batch.getBytes(column);
+        int start = batch.getStart(column, row);
+        int end = start + batch.getLength(column, row);
+        if (start == end) {
+            return 0L;
+        }
+        boolean negative = bytes[start] == '-';
+        int i = negative || bytes[start] == '+' ? start + 1 : start;
+        if (i < end && end - i <= 18) {
+            long result = 0;
+            for (; i < end; i++) {
+                int digit = bytes[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                result = result * 10 + digit;
+            }
+            if (i == end) {
+                return negative ? (unsigned ? checkRange(-result, 0, 0, "UInt64") : -result) : result;
+            }
+        }
+        String text = batch.getString(column, row);
+        return unsigned ? toUnsignedLong(text) : toLong(text);
+    }
+
+    private static double batchDouble(ColumnBatch batch, int column, int row) {
+        if (batch.isNull(column, row)) {
+            return 0d;
+        }
+        switch (batch.getSchema().getKind(column)) {
+            case LONG:
+                return batch.getLong(column, row);
+            case DOUBLE:
+                return batch.getDouble(column, row);
+            default:
+                return batch.getLength(column, row) == 0 ? 0d : toDouble(batch.getString(column, row));
+        }
+    }
+
+    private static double toDouble(Object value) {
+        if (isNull(value)) {
+            return 0d;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return Double.parseDouble(value.toString().trim());
+    }
+
+    private static BigInteger toBigInteger(Object value) {
+        if (isNull(value)) {
+            return BigInteger.ZERO;
+        }
+        return new BigInteger(value.toString().trim());
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (isNull(value)) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        String text = value.toString().trim();
+        return text.equalsIgnoreCase("true") || text.equals("1") || text.equalsIgnoreCase("yes");
+    }
+
+    private static long toEpochDay(Object value) {
+        if (isNull(value)) {
+            return 0L;
+        }
+        if (value instanceof LocalDate) {
+            return ((LocalDate) value).toEpochDay();
+        }
+        String text = value.toString().trim();
+        if (text.length() >= 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            return LocalDate.of(digits(text, 0, 4), digits(text, 5, 7), digits(text, 8, 10)).toEpochDay();
+        }
+        return LocalDate.parse(text).toEpochDay();
+    }
+
+    private static long toEpochSecond(Object value, ZoneId zone) {
+        if (isNull(value)) {
+            return 0L;
+        }
+        return toInstant(value, zone).getEpochSecond();
+    }
+
+    private static long toDateTime64(Object value, int precision, ZoneId zone) {
+        if (isNull(value)) {
+            return 0L;
+        }
+        Instant instant = toInstant(value, zone);
+        long scale = 1;
+        for (int i = 0; i < precision; i++) {
+            scale *= 10;
+        }
+        long subSecond = instant.getNano();
+        for (int i = precision; i < 9; i++) {
+            subSecond /= 10;
+        }
+        return instant.getEpochSecond() * scale + subSecond;
+    }
+
+    private static Instant toInstant(Object value, ZoneId zone) {
+        if (value instanceof Instant) {
+            return (Instant) value;
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(zone).toInstant();
+        }
+        if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant();
+        }
+        String text = value.toString().trim();
+
+        // Fast path for "yyyy-MM-dd HH:mm:ss[.fffffffff]" and the ISO 'T' variant
+        if (text.length() >= 19 && text.charAt(4) == '-' && text.charAt(7) == '-'
+                && (text.charAt(10) == ' ' || text.charAt(10) == 'T')
+                && text.charAt(13) == ':' && text.charAt(16) == ':'
+                && (text.length() == 19 || text.charAt(19) == '.')) {
+            int nanos = 0;
+            if (text.length() > 20) {
+                int end = Math.min(text.length(), 29);
+                nanos = digits(text, 20, end);
+                for (int i = end - 20; i < 9; i++) {
+                    nanos *= 10;
+                }
+            }
+            LocalDateTime dateTime = LocalDateTime.of(digits(text, 0, 4), digits(text, 5, 7), digits(text, 8, 10),
+                    digits(text, 11, 13), digits(text, 14, 16), digits(text, 17, 19), nanos);
+            return dateTime.atZone(zone).toInstant();
+        }
+        if (text.length() == 10 && text.charAt(4) == '-') {
+            return LocalDate.parse(text).atStartOfDay(zone).toInstant();
+        }
+        if (!text.isEmpty() && Character.isDigit(text.charAt(0)) && text.chars().allMatch(Character::isDigit)) {
+            return Instant.ofEpochSecond(Long.parseLong(text));
+        }
+        return ZonedDateTime.parse(text).toInstant();
+    }
+
+    private static int digits(String text, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid date/time value: " + text);
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------------------
+    // Little-endian primitives
+    // ------------------------------------------------------------------
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flush();
+        }
+    }
+
+    void writeByte(int value) throws IOException {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    void writeShort(int value) throws IOException {
+        ensureCapacity(2);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+    }
+
+    void writeInt(int value) throws IOException {
+        ensureCapacity(4);
+        buffer[position++] = (byte) value;
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 24);
+    }
+
+    private void writeInteger(long value, int width) throws IOException {
+        switch (width) {
+            case 1:
+                writeByte((int) value);
+                break;
+            case 2:
+                writeShort((int) value);
+                break;
+            default:
+                writeInt((int) value);
+                break;
+        }
+    }
+
+    void writeLong(long value) throws IOException {
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            buffer[position++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    void writeVarInt(long value) throws IOException {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.length - position) {
+            flush();
+            if (length > buffer.length) {
+                out.write(bytes, offset, length);
+                bytesWritten += length;
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    void writeString(Object value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        String text = value.toString();
+        if (isAscii(text)) {
+            // ASCII strings are encoded in place without an intermediate byte[]
+            int length = text.length();
+            writeVarInt(length);
+            if (length <= buffer.length) {
+                ensureCapacity(length);
+                for (int i = 0; i < length; i++) {
+                    buffer[position++] = (byte) text.charAt(i);
+                }
+                return;
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+            writeBytes(bytes, 0, bytes.length);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    void writeFixedString(Object value, int length) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > length) {
+            throw new IOException("Value too long for FixedString(" + length + "): " + value);
+        }
+        writeBytes(bytes, 0, bytes.length);
+        for (int i = bytes.length; i < length; i++) {
+            writeByte(0);
+        }
+    }
+
+    void writeBigInteger(BigInteger value, int width) throws IOException {
+        byte[] bigEndian = value.toByteArray();
+        // A positive value using the full width gets an extra leading sign byte
+        int significant = bigEndian.length > width && bigEndian[0] == 0 ? bigEndian.length - 1 : bigEndian.length;
+        if (significant > width) {
+            throw new IOException("Value out of range for " + (width * 8) + "-bit column: " + value);
+        }
+        byte padding = (byte) (value.signum() < 0 ? 0xFF : 0x00);
+        ensureCapacity(width);
+        for (int i = 0; i < width; i++) {
+            int index = bigEndian.length - 1 - i;
+            buffer[position++] = index >= 0 ? bigEndian[index] : padding;
+        }
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Reads delimited records from an InputStream, such as an upload, a URL
+ * download or a chunk of a file, with the {@link ByteCsvReader} scan.
+ *
+ * The stream is read into a buffer of {@value #INITIAL_BUFFER} bytes that is
+ * refilled as records are consumed. A record that does not fit doubles the
+ * buffer, up to {@value #MAX_BUFFER} bytes.
+ */
+public class StreamingCsvReader extends ByteCsvReader {
+
+    private static final int INITIAL_BUFFER = 256 * 1024;
+    private static final int MAX_BUFFER = 256 * 1024 * 1024;
+
+    private final InputStream in;
+    private byte[] bytes;
+    private boolean eof;
+
+    public StreamingCsvReader(InputStream in, char delimiter, Charset charset) {
+        this(in, delimiter, charset, INITIAL_BUFFER);
+    }
+
+    StreamingCsvReader(InputStream in, char delimiter, Charset charset, int bufferSize) {
+        super(delimiter, charset);
+        this.in = in;
+        this.bytes = new byte[bufferSize];
+        setWindow(ByteBuffer.wrap(bytes, 0, 0), 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    @Override
+    protected boolean isLastWindow() {
+        return eof;
+    }
+
+    @Override
+    protected void moveWindow(long from, boolean larger) throws IOException {
+        int keep = (int) (from - getWindowStart());
+        int remaining = getWindow().limit() - keep;
+        if (larger) {
+            if (bytes.length >= MAX_BUFFER) {
+                throw new IOException("Record at byte " + from + " is larger than " + MAX_BUFFER + " bytes");
+            }
+            byte[] grown = new byte[Math.min(MAX_BUFFER, bytes.length * 2)];
+            System.arraycopy(bytes, keep, grown, 0, remaining);
+            bytes = grown;
+        } else {
+            System.arraycopy(bytes, keep, bytes, 0, remaining);
+        }
+
+        int filled = remaining;
+        while (filled < bytes.length) {
+            int n = in.read(bytes, filled, bytes.length - filled);
+            if (n < 0) {
+                eof = true;
+                break;
+            }
+            filled += n;
+        }
+        setWindow(ByteBuffer.wrap(bytes, 0, filled), from);
+    }
+}
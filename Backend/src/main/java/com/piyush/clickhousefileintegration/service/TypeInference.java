@@ -0,0 +1,479 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Infers the narrowest ClickHouse type of every column of a delimited file
+ * from a sample of its rows.
+ *
+ * The sample consists of the first rows of the file plus a uniform reservoir
+ * sample of the rows after them, so a single unusual row at the top of a file
+ * no longer decides a column's type. Each value is classified by a hand-written
+ * character scanner that recognises integers, decimals, dates, date-times and
+ * booleans in one pass, without exceptions, regular expressions or
+ * intermediate objects; columns only keep running statistics (ranges,
+ * precision, emptiness, distinct count).
+ *
+ * Values are trimmed before classification, the same way
+ * {@link RowBinaryEncoder} trims them before encoding.
+ *
+ * Integer width, Float32 and the Date/DateTime ranges are chosen from the
+ * values seen, so a row outside the sample may not fit them. Unless the
+ * inference is told to keep narrow types, columns of a file that was only
+ * sampled (see {@link #markSampled}) therefore get Int64 (UInt64/Int128
+ * beyond it), Float64, Date32 and DateTime64 instead.
+ */
+public class TypeInference {
+
+    /** Above this many distinct values a string column is never LowCardinality. */
+    private static final int MAX_LOW_CARDINALITY_DISTINCT = 1000;
+
+    /** A string column is LowCardinality when values repeat at least this often on average. */
+    private static final int LOW_CARDINALITY_REPEAT_FACTOR = 10;
+
+    /** Minimum number of sampled values before LowCardinality is considered. */
+    private static final int LOW_CARDINALITY_MIN_VALUES = 50;
+
+    private final ColumnProfile[] profiles;
+    private final boolean narrowSampledTypes;
+    private boolean sampled;
+
+    public TypeInference(int columnCount) {
+        this(columnCount, false);
+    }
+
+    /**
+     * @param columnCount        Number of columns
+     * @param narrowSampledTypes Whether to pick the narrowest types that fit
+     *                           the observed values even if not every row was
+     *                           observed
+     */
+    public TypeInference(int columnCount, boolean narrowSampledTypes) {
+        this.narrowSampledTypes = narrowSampledTypes;
+        this.profiles = new ColumnProfile[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            profiles[i] = new ColumnProfile();
+        }
+    }
+
+    /**
+     * Samples up to {@code headRows} leading records plus a reservoir of
+     * {@code reservoirSize} records drawn uniformly from the following ones,
+     * reading at most {@code maxRows} records in total.
+     *
+     * @param records       Records after the header, if any
+     * @param inference     Inference to add the sampled records to
+     * @param headRows      Number of leading records always included
+     * @param reservoirSize Number of records sampled from the rest of the file
+     * @param maxRows       Maximum number of records read; 0 reads the whole file
+     * @return The given inference, marked as sampled unless every record was
+     *         observed
+     */
+    public static TypeInference sample(Iterator<CSVRecord> records, TypeInference inference, int headRows,
+            int reservoirSize, long maxRows) {
+        int columnCount = inference.profiles.length;
+        long read = 0;
+
+        while (read < headRows && (maxRows <= 0 || read < maxRows) && records.hasNext()) {
+            inference.observe(records.next());
+            read++;
+        }
+
+        List<String[]> reservoir = new ArrayList<>(Math.max(0, reservoirSize));
+        Random random = new Random(0x5eed);
+        long seen = 0;
+        while (reservoirSize > 0 && (maxRows <= 0 || read < maxRows) && records.hasNext()) {
+            CSVRecord record = records.next();
+            read++;
+            seen++;
+            if (reservoir.size() < reservoirSize) {
+                reservoir.add(copyValues(record, columnCount));
+            } else {
+                long slot = (long) (random.nextDouble() * seen);
+                if (slot < reservoirSize) {
+                    reservoir.set((int) slot, copyValues(record, columnCount));
+                }
+            }
+        }
+        for (String[] values : reservoir) {
+            inference.observe(values);
+        }
+        if (seen > reservoir.size() || records.hasNext()) {
+            inference.markSampled();
+        }
+        return inference;
+    }
+
+    /**
+     * Records that some rows of the file were not observed, e.g. because only
+     * the head of a URL source was read.
+     */
+    public void markSampled() {
+        sampled = true;
+    }
+
+    /**
+     * @return True if some rows of the file were not observed
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    private static String[] copyValues(CSVRecord record, int columnCount) {
+        String[] values = new String[Math.min(columnCount, record.size())];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = record.get(i);
+        }
+        return values;
+    }
+
+    public void observe(CSVRecord record) {
+        int count = Math.min(profiles.length, record.size());
+        for (int i = 0; i < count; i++) {
+            profiles[i].observe(record.get(i));
+        }
+    }
+
+    public void observe(String[] values) {
+        int count = Math.min(profiles.length, values.length);
+        for (int i = 0; i < count; i++) {
+            profiles[i].observe(values[i]);
+        }
+    }
+
+    /**
+     * @return Inferred ClickHouse type of every column, in column order
+     */
+    public List<String> getTypes() {
+        List<String> types = new ArrayList<>(profiles.length);
+        boolean widen = sampled && !narrowSampledTypes;
+        for (ColumnProfile profile : profiles) {
+            types.add(profile.resolveType(widen));
+        }
+        return types;
+    }
+
+    /**
+     * Running classification state of one column. Every candidate type starts
+     * out possible and is ruled out by the first value that does not fit it.
+     */
+    static final class ColumnProfile {
+        long values;
+        long empty;
+
+        boolean maybeBool = true;
+        boolean maybeInt = true;
+        boolean maybeFloat = true;
+        boolean maybeDate = true;
+        boolean maybeDateTime = true;
+
+        long minInt = Long.MAX_VALUE;
+        long maxInt = Long.MIN_VALUE;
+        boolean exceedsInt64; // non-negative value above Long.MAX_VALUE, fits UInt64
+        boolean float32Safe = true;
+
+        int minYear = Integer.MAX_VALUE;
+        int maxYear = Integer.MIN_VALUE;
+        int dateTimePrecision;
+
+        final Set<String> distinct = new HashSet<>();
+        boolean distinctOverflow;
+
+        void observe(String raw) {
+            values++;
+            if (raw == null) {
+                empty++;
+                return;
+            }
+            int start = 0;
+            int end = raw.length();
+            while (start < end && raw.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && raw.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start == end) {
+                empty++;
+                return;
+            }
+
+            if (!distinctOverflow) {
+                distinct.add(start == 0 && end == raw.length() ? raw : raw.substring(start, end));
+                distinctOverflow = distinct.size() > MAX_LOW_CARDINALITY_DISTINCT;
+                if (distinctOverflow) {
+                    distinct.clear();
+                }
+            }
+
+            if (maybeBool) {
+                int length = end - start;
+                maybeBool = (length == 4 && raw.regionMatches(true, start, "true", 0, 4))
+                        || (length == 5 && raw.regionMatches(true, start, "false", 0, 5));
+            }
+            if (maybeInt || maybeFloat) {
+                scanNumber(raw, start, end);
+            }
+            if (maybeDate || maybeDateTime) {
+                scanTemporal(raw, start, end);
+            }
+        }
+
+        /**
+         * Recognises {@code [+-]digits[.digits][(e|E)[+-]digits]}. Integers are
+         * accumulated as unsigned 64-bit magnitudes with explicit overflow checks.
+         * Numbers with redundant leading zeros (zip codes, identifiers) are
+         * rejected so that they stay strings.
+         */
+        private void scanNumber(String s, int start, int end) {
+            int i = start;
+            boolean negative = false;
+            char c = s.charAt(i);
+            if (c == '+' || c == '-') {
+                negative = c == '-';
+                i++;
+            }
+
+            int intStart = i;
+            long magnitude = 0;
+            boolean overflow = false;
+            while (i < end && (c = s.charAt(i)) >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (!overflow && Long.compareUnsigned(magnitude, Long.divideUnsigned(-1L - digit, 10)) > 0) {
+                    overflow = true;
+                }
+                magnitude = magnitude * 10 + digit;
+                i++;
+            }
+            int intDigits = i - intStart;
+            boolean leadingZero = intDigits > 1 && s.charAt(intStart) == '0';
+
+            int fractionDigits = 0;
+            boolean hasPoint = false;
+            if (i < end && s.charAt(i) == '.') {
+                hasPoint = true;
+                i++;
+                while (i < end && (c = s.charAt(i)) >= '0' && c <= '9') {
+                    fractionDigits++;
+                    i++;
+                }
+            }
+
+            boolean hasExponent = false;
+            int exponent = 0;
+            boolean exponentValid = true;
+            if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+                hasExponent = true;
+                i++;
+                boolean negativeExponent = false;
+                if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+                    negativeExponent = s.charAt(i) == '-';
+                    i++;
+                }
+                int exponentStart = i;
+                while (i < end && (c = s.charAt(i)) >= '0' && c <= '9') {
+                    if (exponent < 10_000) {
+                        exponent = exponent * 10 + (c - '0');
+                    }
+                    i++;
+                }
+                exponentValid = i > exponentStart;
+                if (negativeExponent) {
+                    exponent = -exponent;
+                }
+            }
+
+            boolean consumed = i == end && !leadingZero;
+
+            if (maybeInt) {
+                boolean isInt = consumed && intDigits > 0 && !hasPoint && !hasExponent && !overflow;
+                if (isInt && negative && Long.compareUnsigned(magnitude, Long.MIN_VALUE) > 0) {
+                    isInt = false; // below Long.MIN_VALUE
+                }
+                if (!isInt) {
+                    maybeInt = false;
+                } else if (!negative && magnitude < 0) {
+                    exceedsInt64 = true;
+                } else {
+                    long value = negative ? -magnitude : magnitude;
+                    minInt = Math.min(minInt, value);
+                    maxInt = Math.max(maxInt, value);
+                }
+            }
+
+            if (maybeFloat) {
+                boolean isFloat = consumed && intDigits + fractionDigits > 0 && exponentValid;
+                if (!isFloat) {
+                    maybeFloat = false;
+                } else if (float32Safe) {
+                    // Float32 keeps 6 significant decimal digits exactly
+                    int significant = significantDigits(s, intStart, intStart + intDigits, fractionDigits);
+                    int magnitudeExponent = intDigits + exponent;
+                    float32Safe = significant <= 6 && magnitudeExponent > -37 && magnitudeExponent < 38;
+                }
+            }
+        }
+
+        /**
+         * Counts the digits between the first and the last non-zero digit of
+         * the mantissa; zeros at the end of the integer part count.
+         */
+        private static int significantDigits(String s, int intStart, int intEnd, int fractionDigits) {
+            int end = fractionDigits > 0 ? intEnd + 1 + fractionDigits : intEnd;
+            int first = -1;
+            int lastSignificant = -1;
+            int count = 0;
+            for (int i = intStart; i < end; i++) {
+                char c = s.charAt(i);
+                if (c == '.') {
+                    continue;
+                }
+                if (first < 0 && c == '0') {
+                    continue;
+                }
+                if (first < 0) {
+                    first = i;
+                }
+                count++;
+                if (c != '0' || i < intEnd) {
+                    lastSignificant = count;
+                }
+            }
+            return Math.max(lastSignificant, 0);
+        }
+
+        /**
+         * Recognises {@code yyyy-MM-dd} and
+         * {@code yyyy-MM-dd[ T]HH:mm:ss[.f{1,9}]}, the layouts the encoder parses
+         * on its fast path. Date-only values remain valid for a DateTime column.
+         */
+        private void scanTemporal(String s, int start, int end) {
+            int length = end - start;
+            if (length < 10 || s.charAt(start + 4) != '-' || s.charAt(start + 7) != '-') {
+                maybeDate = maybeDateTime = false;
+                return;
+            }
+            int year = digits(s, start, start + 4);
+            int month = digits(s, start + 5, start + 7);
+            int day = digits(s, start + 8, start + 10);
+            if (year < 0 || month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) {
+                maybeDate = maybeDateTime = false;
+                return;
+            }
+
+            if (length > 10) {
+                maybeDate = false;
+                if (!maybeDateTime || !isTime(s, start, end)) {
+                    maybeDateTime = false;
+                    return;
+                }
+            }
+            minYear = Math.min(minYear, year);
+            maxYear = Math.max(maxYear, year);
+        }
+
+        private boolean isTime(String s, int start, int end) {
+            int length = end - start;
+            char separator = s.charAt(start + 10);
+            if (length < 19 || (separator != ' ' && separator != 'T')
+                    || s.charAt(start + 13) != ':' || s.charAt(start + 16) != ':') {
+                return false;
+            }
+            int hour = digits(s, start + 11, start + 13);
+            int minute = digits(s, start + 14, start + 16);
+            int second = digits(s, start + 17, start + 19);
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+                return false;
+            }
+            if (length == 19) {
+                return true;
+            }
+            int fraction = length - 20;
+            if (s.charAt(start + 19) != '.' || fraction < 1 || fraction > 9
+                    || digits(s, start + 20, end) < 0) {
+                return false;
+            }
+            dateTimePrecision = Math.max(dateTimePrecision, fraction);
+            return true;
+        }
+
+        /**
+         * @return Value of the digit run, or -1 if it contains a non-digit
+         */
+        private static int digits(String s, int from, int to) {
+            int result = 0;
+            for (int i = from; i < to; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                result = result * 10 + (c - '0');
+            }
+            return result;
+        }
+
+        /**
+         * @param widen Whether to leave headroom for values outside the
+         *              observed ranges
+         */
+        String resolveType(boolean widen) {
+            long nonEmpty = values - empty;
+            if (nonEmpty == 0) {
+                return "String";
+            }
+
+            String type;
+            if (maybeBool) {
+                type = "Bool";
+            } else if (maybeInt) {
+                type = widen && !exceedsInt64 ? "Int64" : integerType();
+            } else if (maybeFloat) {
+                type = float32Safe && !widen ? "Float32" : "Float64";
+            } else if (maybeDate) {
+                type = minYear >= 1970 && maxYear <= 2148 && !widen ? "Date" : "Date32";
+            } else if (maybeDateTime) {
+                type = dateTimePrecision == 0 && minYear >= 1970 && maxYear <= 2105 && !widen
+                        ? "DateTime"
+                        : "DateTime64(" + dateTimePrecision + ")";
+            } else if (!distinctOverflow && nonEmpty >= LOW_CARDINALITY_MIN_VALUES
+                    && (long) distinct.size() * LOW_CARDINALITY_REPEAT_FACTOR <= nonEmpty) {
+                return "LowCardinality(String)";
+            } else {
+                return "String";
+            }
+
+            // Empty fields are NULL for every non-string type
+            return empty > 0 ? "Nullable(" + type + ")" : type;
+        }
+
+        private String integerType() {
+            if (exceedsInt64) {
+                return minInt >= 0 ? "UInt64" : "Int128";
+            }
+            if (minInt >= 0) {
+                if (maxInt <= 0xFF) {
+                    return "UInt8";
+                }
+                if (maxInt <= 0xFFFF) {
+                    return "UInt16";
+                }
+                return maxInt <= 0xFFFFFFFFL ? "UInt32" : "UInt64";
+            }
+            if (minInt >= Byte.MIN_VALUE && maxInt <= Byte.MAX_VALUE) {
+                return "Int8";
+            }
+            if (minInt >= Short.MIN_VALUE && maxInt <= Short.MAX_VALUE) {
+                return "Int16";
+            }
+            return minInt >= Integer.MIN_VALUE && maxInt <= Integer.MAX_VALUE ? "Int32" : "Int64";
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.piyush.clickhousefileintegration.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the threads that run ingestion jobs, chunk parsers and insert
+ * writers.
+ *
+ * With {@code spring.threads.virtual.enabled=true} on Java 21 or later, these
+ * are virtual threads, the same switch that makes Spring Boot serve HTTP
+ * requests on virtual threads; blocking JDBC calls, HTTP requests and
+ * downloads then park a virtual thread instead of holding a platform thread.
+ * The project is compiled for Java 17, so virtual threads are created through
+ * reflection; on older runtimes the setting is ignored with a warning and
+ * platform threads are used.
+ */
+@Component
+@Slf4j
+public class WorkerThreads {
+
+    private static final long SHUTDOWN_WARNING_SECONDS = 10;
+
+    private final Method ofVirtual;
+    private final Method builderName;
+    private final Method builderFactory;
+
+    public WorkerThreads(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled) {
+        Method ofVirtualMethod = null;
+        Method nameMethod = null;
+        Method factoryMethod = null;
+        if (virtualThreadsEnabled) {
+            try {
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+                nameMethod = builderType.getMethod("name", String.class, long.class);
+                factoryMethod = builderType.getMethod("factory");
+                log.info("Running ingestion workers on virtual threads");
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads requested but not supported by Java {}; using platform threads",
+                        System.getProperty("java.version"));
+                ofVirtualMethod = null;
+            }
+        }
+        this.ofVirtual = ofVirtualMethod;
+        this.builderName = nameMethod;
+        this.builderFactory = factoryMethod;
+    }
+
+    public boolean isVirtual() {
+        return ofVirtual != null;
+    }
+
+    /**
+     * Returns a factory for threads named {@code namePrefix1},
+     * {@code namePrefix2}, and so on.
+     *
+     * @param namePrefix Thread name prefix, e.g. "csv-chunk-"
+     * @param daemon     Whether platform threads are daemons; virtual threads
+     *                   always are
+     */
+    public ThreadFactory factory(String namePrefix, boolean daemon) {
+        if (isVirtual()) {
+            try {
+                Object builder = builderName.invoke(ofVirtual.invoke(null), namePrefix, 1L);
+                return (ThreadFactory) builderFactory.invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Failed to create virtual thread factory", e);
+            }
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+
+    /**
+     * Interrupts the threads of an executor and waits until all of them have
+     * exited, so that nothing they use outlives the caller. An interrupt of
+     * the waiting thread does not cut the wait short; it is restored once the
+     * workers are gone.
+     */
+    public static void shutdownAndAwait(ExecutorService executor) {
+        executor.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(SHUTDOWN_WARNING_SECONDS, TimeUnit.SECONDS)) {
+                    break;
+                }
+                log.warn("Still waiting for worker threads to stop after {} s", SHUTDOWN_WARNING_SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
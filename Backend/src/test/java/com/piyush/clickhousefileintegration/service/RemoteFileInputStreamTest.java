@@ -0,0 +1,201 @@
+package com.piyush.clickhousefileintegration.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs against a minimal HTTP/1.1 server on a local socket, which can cut a
+ * response short by closing the connection or by holding it open silently.
+ */
+class RemoteFileInputStreamTest {
+
+	private static final byte[] FILE = new byte[1_000_000];
+	private static final int CUT_AT = 300_000;
+
+	static {
+		new Random(42).nextBytes(FILE);
+	}
+
+	private enum Fault {
+		NONE, DROP, STALL
+	}
+
+	private final List<String> ranges = new CopyOnWriteArrayList<>();
+	private final List<String> validators = new CopyOnWriteArrayList<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	private ServerSocket server;
+	private volatile Fault fault = Fault.NONE;
+	private volatile boolean ignoreRanges;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(() -> {
+			while (!server.isClosed()) {
+				try {
+					Socket socket = server.accept();
+					Thread handler = new Thread(() -> serve(socket));
+					handler.setDaemon(true);
+					handler.start();
+				} catch (IOException e) {
+					return;
+				}
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	@AfterEach
+	void stopServer() throws IOException {
+		stopped.countDown();
+		server.close();
+	}
+
+	/**
+	 * Serves {@link #FILE} with range support; the first response stops after
+	 * {@link #CUT_AT} bytes when a fault is set.
+	 */
+	private void serve(Socket socket) {
+		try (socket) {
+			BufferedReader reader = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+			String range = null;
+			String validator = null;
+			String line;
+			while ((line = reader.readLine()) != null && !line.isEmpty()) {
+				String lower = line.toLowerCase();
+				if (lower.startsWith("range:")) {
+					range = line.substring("range:".length()).trim();
+				} else if (lower.startsWith("if-range:")) {
+					validator = line.substring("if-range:".length()).trim();
+				}
+			}
+			boolean first = requests.incrementAndGet() == 1;
+			ranges.add(String.valueOf(range));
+			validators.add(String.valueOf(validator));
+
+			int start = 0;
+			StringBuilder head = new StringBuilder();
+			if (range != null && !ignoreRanges) {
+				start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+				head.append("HTTP/1.1 206 Partial Content\r\n")
+						.append("Content-Range: bytes ").append(start).append('-').append(FILE.length - 1)
+						.append('/').append(FILE.length).append("\r\n");
+			} else {
+				head.append("HTTP/1.1 200 OK\r\n");
+			}
+			head.append("Content-Length: ").append(FILE.length - start).append("\r\n")
+					.append("ETag: \"v1\"\r\n")
+					.append("Accept-Ranges: bytes\r\n")
+					.append("Connection: close\r\n\r\n");
+
+			OutputStream out = socket.getOutputStream();
+			out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+			int end = first && fault != Fault.NONE ? CUT_AT : FILE.length;
+			out.write(FILE, start, end - start);
+			out.flush();
+			if (first && fault == Fault.STALL) {
+				stopped.await();
+			}
+		} catch (IOException | InterruptedException e) {
+			// Client went away
+		}
+	}
+
+	private RemoteFileInputStream open() throws IOException, InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(
+				URI.create("http://127.0.0.1:" + server.getLocalPort() + "/data.csv"));
+		return RemoteFileInputStream.open(HttpClient.newHttpClient(), request, 3, 500, 4, Thread::new);
+	}
+
+	@Test
+	void streamsWholeFile() throws Exception {
+		try (RemoteFileInputStream in = open()) {
+			assertEquals(FILE.length, in.getContentLength());
+			assertArrayEquals(FILE, in.readAllBytes());
+			assertEquals(0, in.getResumeCount());
+		}
+		assertEquals(List.of("null"), ranges);
+	}
+
+	@Test
+	void resumesAfterDroppedConnection() throws Exception {
+		fault = Fault.DROP;
+		try (RemoteFileInputStream in = open()) {
+			assertArrayEquals(FILE, in.readAllBytes());
+			assertEquals(1, in.getResumeCount());
+		}
+		assertResumedOnce();
+		assertEquals("\"v1\"", validators.get(1));
+	}
+
+	@Test
+	void resumesAfterStalledConnection() throws Exception {
+		fault = Fault.STALL;
+		try (RemoteFileInputStream in = open()) {
+			assertArrayEquals(FILE, in.readAllBytes());
+			assertEquals(1, in.getResumeCount());
+		}
+		assertResumedOnce();
+	}
+
+	/**
+	 * The HTTP client may drop bytes it had buffered when the response fails,
+	 * so the resume can start a little before {@link #CUT_AT}.
+	 */
+	private void assertResumedOnce() {
+		assertEquals(2, ranges.size(), ranges.toString());
+		assertEquals("null", ranges.get(0));
+		String range = ranges.get(1);
+		assertTrue(range.startsWith("bytes=") && range.endsWith("-"), range);
+		long offset = Long.parseLong(range.substring("bytes=".length(), range.length() - 1));
+		assertTrue(offset > 0 && offset <= CUT_AT, range);
+	}
+
+	@Test
+	void failsWhenServerIgnoresRange() throws Exception {
+		fault = Fault.DROP;
+		ignoreRanges = true;
+		try (RemoteFileInputStream in = open()) {
+			IOException e = assertThrows(IOException.class, in::readAllBytes);
+			String prefix = "Cannot resume download at byte ";
+			String message = e.getMessage();
+			assertTrue(message.startsWith(prefix), message);
+			long offset = Long.parseLong(message.substring(prefix.length(), message.indexOf(':')));
+			assertTrue(offset > 0 && offset <= CUT_AT, message);
+		}
+	}
+
+	@Test
+	void closeStopsDownload() throws Exception {
+		RemoteFileInputStream in = open();
+		assertEquals(FILE[0] & 0xFF, in.read());
+		in.close();
+		assertThrows(IOException.class, in::read);
+	}
+}
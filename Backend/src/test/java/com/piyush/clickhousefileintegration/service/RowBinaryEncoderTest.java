@@ -0,0 +1,277 @@
+package com.piyush.clickhousefileintegration.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Encodes values and decodes the bytes again as ClickHouse would read them
+ * (little-endian, LEB128 string lengths, a null flag byte before Nullable
+ * values).
+ */
+class RowBinaryEncoderTest {
+
+	private static final ZoneId SERVER_ZONE = ZoneId.of("Europe/Berlin");
+
+	private static ByteBuffer encodeRow(List<String> types, Object... values) throws Exception {
+		RowBinaryEncoder encoder = new RowBinaryEncoder(types, SERVER_ZONE);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encoder.open(out);
+		encoder.writeRow(values);
+		encoder.flush();
+		return ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer encode(String type, Object value) throws Exception {
+		return encodeRow(List.of(type), value);
+	}
+
+	/**
+	 * Encodes one text column through the batch path.
+	 */
+	private static ByteBuffer encodeBatch(String type, String... values) throws Exception {
+		ColumnBatch batch = new ColumnBatch(ColumnBatch.Schema.allStrings(List.of("c")), 16);
+		for (String value : values) {
+			if (value == null) {
+				batch.setNull(0);
+			} else {
+				batch.setString(0, value);
+			}
+			batch.commitRow();
+		}
+		RowBinaryEncoder encoder = new RowBinaryEncoder(List.of("c"), List.of(type), SERVER_ZONE);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encoder.open(out);
+		encoder.writeBatch(batch, new int[] { 0 });
+		encoder.flush();
+		return ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static long readVarInt(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[(int) readVarInt(in)];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static BigInteger readBigInteger(ByteBuffer in, int width, boolean signed) {
+		byte[] bigEndian = new byte[width];
+		for (int i = width - 1; i >= 0; i--) {
+			bigEndian[i] = in.get();
+		}
+		return signed ? new BigInteger(bigEndian) : new BigInteger(1, bigEndian);
+	}
+
+	@Test
+	void encodesIntegers() throws Exception {
+		ByteBuffer in = encodeRow(List.of("Int8", "UInt8", "Int16", "UInt16", "Int32", "UInt32", "Int64", "UInt64"),
+				"-128", "255", "-32768", "65535", "-2147483648", "4294967295", "-9223372036854775808",
+				"18446744073709551615");
+		assertEquals(-128, in.get());
+		assertEquals(255, in.get() & 0xFF);
+		assertEquals(-32768, in.getShort());
+		assertEquals(65535, in.getShort() & 0xFFFF);
+		assertEquals(Integer.MIN_VALUE, in.getInt());
+		assertEquals(4294967295L, in.getInt() & 0xFFFFFFFFL);
+		assertEquals(Long.MIN_VALUE, in.getLong());
+		assertEquals("18446744073709551615", Long.toUnsignedString(in.getLong()));
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	void encodesWideIntegers() throws Exception {
+		ByteBuffer in = encodeRow(List.of("Int128", "UInt128", "Int256", "UInt256"),
+				"-170141183460469231731687303715884105728", "340282366920938463463374607431768211455", "-1",
+				"12345678901234567890123456789");
+		assertEquals(new BigInteger("-170141183460469231731687303715884105728"), readBigInteger(in, 16, true));
+		assertEquals(new BigInteger("340282366920938463463374607431768211455"), readBigInteger(in, 16, false));
+		assertEquals(BigInteger.ONE.negate(), readBigInteger(in, 32, true));
+		assertEquals(new BigInteger("12345678901234567890123456789"), readBigInteger(in, 32, false));
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	void encodesFloatsAndBooleans() throws Exception {
+		ByteBuffer in = encodeRow(List.of("Float32", "Float64", "Bool", "Bool"), "1.5", "-2.25e300", "true", "0");
+		assertEquals(1.5f, in.getFloat());
+		assertEquals(-2.25e300, in.getDouble());
+		assertEquals(1, in.get());
+		assertEquals(0, in.get());
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	void encodesStrings() throws Exception {
+		ByteBuffer in = encodeRow(List.of("String", "String", "FixedString(4)", "LowCardinality(String)"),
+				"ascii", "größe", "ab", "dict");
+		assertEquals("ascii", readString(in));
+		assertEquals("größe", readString(in));
+		byte[] fixed = new byte[4];
+		in.get(fixed);
+		assertArrayEquals(new byte[] { 'a', 'b', 0, 0 }, fixed);
+		assertEquals("dict", readString(in));
+		assertFalse(in.hasRemaining());
+
+		assertThrows(IOException.class, () -> encode("FixedString(2)", "abc"));
+	}
+
+	@Test
+	void encodesDatesAndTimes() throws Exception {
+		ByteBuffer in = encodeRow(List.of("Date", "Date32", "DateTime", "DateTime('UTC')", "DateTime64(3, 'UTC')",
+				"DateTime64(6)"), "2024-02-29", "1900-01-01", "2024-01-02 03:04:05", "2024-01-02T03:04:05",
+				"2024-01-02 03:04:05.678", "2024-01-02 03:04:05.000001");
+		assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), in.getShort() & 0xFFFF);
+		assertEquals(LocalDate.of(1900, 1, 1).toEpochDay(), in.getInt());
+		assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5).atZone(SERVER_ZONE).toEpochSecond(),
+				in.getInt() & 0xFFFFFFFFL);
+		long utcSeconds = LocalDateTime.of(2024, 1, 2, 3, 4, 5).toEpochSecond(ZoneOffset.UTC);
+		assertEquals(utcSeconds, in.getInt() & 0xFFFFFFFFL);
+		assertEquals(utcSeconds * 1000 + 678, in.getLong());
+		assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4, 5).atZone(SERVER_ZONE).toEpochSecond() * 1_000_000 + 1,
+				in.getLong());
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	void encodesDecimalsAndUuids() throws Exception {
+		UUID uuid = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+		ByteBuffer in = encodeRow(
+				List.of("Decimal(9, 2)", "Decimal64(4)", "Decimal(38, 10)", "Decimal256(2)", "UUID"),
+				"-12.345", "3.14159", "1.5", "7", uuid.toString());
+		assertEquals(-1235, in.getInt());
+		assertEquals(31416L, in.getLong());
+		assertEquals(BigInteger.valueOf(15_000_000_000L), readBigInteger(in, 16, true));
+		assertEquals(BigInteger.valueOf(700), readBigInteger(in, 32, true));
+		assertEquals(uuid.getMostSignificantBits(), in.getLong());
+		assertEquals(uuid.getLeastSignificantBits(), in.getLong());
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	void encodesNullable() throws Exception {
+		ByteBuffer in = encodeRow(List.of("Nullable(Int32)", "Nullable(Int32)", "Nullable(String)",
+				"LowCardinality(Nullable(String))", "Int32"), null, "7", "", "x", "");
+		assertEquals(1, in.get());
+		assertEquals(0, in.get());
+		assertEquals(7, in.getInt());
+		assertEquals(1, in.get());
+		assertEquals(0, in.get());
+		assertEquals("x", readString(in));
+		// Empty values in non-Nullable columns take the type's default
+		assertEquals(0, in.getInt());
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	void batchPathMatchesObjectPath() throws Exception {
+		String[] values = { "0", "-17", "123456789012345678", "9223372036854775807", "", null };
+		for (String type : List.of("Int64", "Nullable(Int64)", "Nullable(String)", "String", "Float64")) {
+			String[] present = type.startsWith("Nullable") ? values
+					: Arrays.stream(values).filter(v -> v != null).toArray(String[]::new);
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			RowBinaryEncoder encoder = new RowBinaryEncoder(List.of(type), SERVER_ZONE);
+			encoder.open(expected);
+			for (String value : present) {
+				encoder.writeRow(new Object[] { value });
+			}
+			encoder.flush();
+			assertArrayEquals(expected.toByteArray(), encodeBatch(type, present).array(), type);
+		}
+
+		ByteBuffer in = encodeBatch("UInt32", "4294967295", "+5");
+		assertEquals(4294967295L, in.getInt() & 0xFFFFFFFFL);
+		assertEquals(5, in.getInt());
+	}
+
+	@Test
+	void batchPathReadsTypedColumns() throws Exception {
+		ColumnBatch batch = new ColumnBatch(new ColumnBatch.Schema(List.of("l", "d"),
+				new ColumnBatch.Kind[] { ColumnBatch.Kind.LONG, ColumnBatch.Kind.DOUBLE }), 4);
+		batch.setLong(0, 300);
+		batch.setDouble(1, 2.5);
+		batch.commitRow();
+		RowBinaryEncoder encoder = new RowBinaryEncoder(List.of("Int16", "Float32"), SERVER_ZONE);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encoder.open(out);
+		encoder.writeBatch(batch, new int[] { 0, 1 });
+		encoder.flush();
+		ByteBuffer in = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(300, in.getShort());
+		assertEquals(2.5f, in.getFloat());
+
+		RowBinaryEncoder narrow = new RowBinaryEncoder(List.of("UInt8", "Float32"), SERVER_ZONE);
+		narrow.open(new ByteArrayOutputStream());
+		assertThrows(SQLDataException.class, () -> narrow.writeBatch(batch, new int[] { 0, 1 }));
+	}
+
+	@Test
+	void rejectsOutOfRangeIntegers() {
+		List<String[]> cases = new ArrayList<>();
+		cases.add(new String[] { "Int8", "128" });
+		cases.add(new String[] { "UInt8", "300" });
+		cases.add(new String[] { "UInt8", "-1" });
+		cases.add(new String[] { "Int16", "-32769" });
+		cases.add(new String[] { "UInt16", "65536" });
+		cases.add(new String[] { "Int32", "2147483648" });
+		cases.add(new String[] { "UInt32", "-1" });
+		cases.add(new String[] { "UInt32", "4294967296" });
+		cases.add(new String[] { "Int64", "9223372036854775808" });
+		cases.add(new String[] { "UInt64", "-1" });
+		cases.add(new String[] { "UInt64", "18446744073709551616" });
+		cases.add(new String[] { "Nullable(UInt8)", "256" });
+		for (String[] c : cases) {
+			assertThrows(SQLDataException.class, () -> encode(c[0], c[1]), c[0] + " " + c[1]);
+			assertThrows(SQLDataException.class, () -> encodeBatch(c[0], c[1]), c[0] + " " + c[1] + " (batch)");
+		}
+	}
+
+	@Test
+	void namesRowAndColumnOfInvalidValues() throws Exception {
+		ColumnBatch batch = new ColumnBatch(ColumnBatch.Schema.allStrings(List.of("id", "age")), 4);
+		for (String[] row : new String[][] { { "1", "30" }, { "2", "300" } }) {
+			batch.setString(0, row[0]);
+			batch.setString(1, row[1]);
+			batch.commitRow();
+		}
+		RowBinaryEncoder encoder = new RowBinaryEncoder(List.of("id", "age"), List.of("Int32", "UInt8"),
+				SERVER_ZONE);
+		encoder.open(new ByteArrayOutputStream());
+		encoder.writeRow(new Object[] { "0", "1" });
+
+		SQLException e = assertThrows(SQLDataException.class, () -> encoder.writeBatch(batch, new int[] { 0, 1 }));
+		assertTrue(e.getMessage().contains("row 3"), e.getMessage());
+		assertTrue(e.getMessage().contains("column 'age' (UInt8)"), e.getMessage());
+		assertTrue(e.getMessage().contains("300"), e.getMessage());
+	}
+}
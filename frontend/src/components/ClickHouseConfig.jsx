@@ -22,6 +22,8 @@ const ClickHouseConfig = ({ selectionType, setColumns, formDataRef }) => {
     user: "default",
     jwtToken: "",
     secure: false,
+    compression: "none",
+    compressionLevel: null,
   });
 
   const handleFormChange = (e) => {
@@ -29,7 +31,14 @@ const ClickHouseConfig = ({ selectionType, setColumns, formDataRef }) => {
 
     const updatedFormData = {
       ...formData,
-      [id]: id === "port" ? Number(value) : value,
+      [id]:
+        id === "port"
+          ? Number(value)
+          : id === "compressionLevel"
+          ? value === ""
+            ? null
+            : Number(value)
+          : value,
     };
 
     setFormData(updatedFormData);
@@ -206,6 +215,45 @@ const ClickHouseConfig = ({ selectionType, setColumns, formDataRef }) => {
           </div>
         </div>
 
+        {/* Wire Compression */}
+        <div className="grid grid-cols-1 md:grid-cols-2 gap-6 mb-4">
+          <div>
+            <label
+              htmlFor="clickhouseSourceCompression"
+              className="block text-sm font-medium mb-1 text-gray-800"
+            >
+              Compression:
+            </label>
+            <select
+              id="compression"
+              onChange={(e) => handleFormChange(e)}
+              className="w-full border border-gray-300 rounded-md px-3 py-2 focus:outline-none focus:ring-3 focus:ring-[rgba(70,130,246,0.6)]"
+            >
+              <option value="none">None</option>
+              <option value="lz4">LZ4</option>
+              <option value="zstd">ZSTD</option>
+            </select>
+          </div>
+          <div>
+            <label
+              htmlFor="clickhouseSourceCompressionLevel"
+              className="block text-sm font-medium mb-1 text-gray-800"
+            >
+              Compression Level:
+            </label>
+            <input
+              type="number"
+              id="compressionLevel"
+              placeholder="Default"
+              min={0}
+              max={22}
+              disabled={formData.compression === "none"}
+              onChange={(e) => handleFormChange(e)}
+              className="w-full border border-gray-300 rounded-md px-3 py-2 focus:outline-none focus:ring-3 focus:ring-[rgba(70,130,246,0.6)]"
+            />
+          </div>
+        </div>
+
         {/* Test & Load Buttons */}
         <div className="grid grid-cols-1 md:grid-cols-2 gap-6 mb-4">
           {selectionType === "source" ? (
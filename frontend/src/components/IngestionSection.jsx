@@ -1,9 +1,16 @@
 import { useRef, useState } from "react";
-import { executeIngestion } from "../services/flatFileService";
+import {
+  cancelJob,
+  downloadJobResult,
+  executeIngestion,
+  listenToJob,
+} from "../services/flatFileService";
 
 const IngestionSection = ({ source, visible, formDataRef }) => {
   const [showProgress, setShowProgress] = useState(false);
   const [progress, setProgress] = useState(0);
+  const [progressDetail, setProgressDetail] = useState("");
+  const [jobId, setJobId] = useState(null);
   const [showStatus, setShowStatus] = useState(false);
   const [statusMessage, setStatusMessage] = useState("");
   const [statusType, setStatusType] = useState("success");
@@ -12,46 +19,63 @@ const IngestionSection = ({ source, visible, formDataRef }) => {
 
   const ref = useRef(null);
 
+  const onJobProgress = (status) => {
+    if (status.progressPercent >= 0) {
+      setProgress(status.progressPercent);
+    }
+    const eta = status.etaSeconds >= 0 ? `, ETA ${status.etaSeconds}s` : "";
+    setProgressDetail(
+      `${status.rowsWritten} rows (${Math.round(status.rowsPerSecond)} rows/s${eta})`
+    );
+  };
+
   const onStart = async () => {
     setShowProgress(true);
     setShowStatus(false);
     setProgress(0);
+    setProgressDetail("");
     setShowResult(false);
 
     try {
-      const res = await executeIngestion(formDataRef);
+      const id = await executeIngestion(formDataRef);
+      setJobId(id);
 
-      const interval = setInterval(() => {
-        setProgress((prev) => {
-          if (prev >= 100) {
-            clearInterval(interval);
-            setShowProgress(false);
-            setShowStatus(true);
-            setStatusType("success");
-            setStatusMessage(
-              source === "clickhouse"
-                ? "Export completed successfully. Your updated flatfile has been downloaded."
-                : "Import completed successfully. All records have been added to your ClickHouse table."
-            );
-            setShowResult(true);
+      const status = await listenToJob(id, onJobProgress);
 
-            // Scroll to bottom
-            setTimeout(() => {
-              ref.current?.scrollIntoView({ behavior: "smooth" });
-            }, 100);
+      if (status.downloadAvailable) {
+        const tableName = formDataRef.current.get("tableName") || "data";
+        await downloadJobResult(id, `${tableName}.csv`);
+      }
 
-            return 100;
-          }
-          return prev + 30;
-        });
-      }, 300);
+      setProgress(100);
+      setShowProgress(false);
+      setShowStatus(true);
+      setStatusType("success");
+      setStatusMessage(
+        source === "clickhouse"
+          ? "Export completed successfully. Your updated flatfile has been downloaded."
+          : "Import completed successfully. All records have been added to your ClickHouse table."
+      );
+      setTotalRecords(status.recordCount);
+      setShowResult(true);
 
-      setTotalRecords(res); // record count
+      // Scroll to bottom
+      setTimeout(() => {
+        ref.current?.scrollIntoView({ behavior: "smooth" });
+      }, 100);
     } catch (error) {
       setShowProgress(false);
       setShowStatus(true);
       setStatusType("error");
-      setStatusMessage(error.response.data);
+      setStatusMessage(error.response?.data?.message || error.message);
+    } finally {
+      setJobId(null);
+    }
+  };
+
+  const onCancel = async () => {
+    if (jobId) {
+      await cancelJob(jobId);
     }
   };
 
@@ -96,6 +120,17 @@ const IngestionSection = ({ source, visible, formDataRef }) => {
                 style={{ width: `${progress}%` }}
               />
             </div>
+            <div className="flex justify-between items-center mt-1">
+              <span className="text-sm text-gray-600">{progressDetail}</span>
+              {jobId && (
+                <button
+                  onClick={onCancel}
+                  className="text-sm text-red-600 hover:text-red-800 font-medium"
+                >
+                  Cancel
+                </button>
+              )}
+            </div>
           </div>
         )}
 
@@ -100,35 +100,69 @@ const executeIngestion = (formDataRef) => {
       headers: {
         "Content-Type": "multipart/form-data",
       },
-      responseType:
-        ingestionRequest.targetType === "flatfile" ? "blob" : "json",
-    })
-    .then((res) => {
-      if (ingestionRequest.targetType === "flatfile") {
-        // Read recordCount from header (server must send header as X-Record-Count)
-        const recordCount = res.headers["x-record-count"];
-
-        // Automatically download
-        const url = window.URL.createObjectURL(res.data);
-        const link = document.createElement("a");
-        link.href = url;
-        link.setAttribute(
-          "download",
-          `${ingestionRequest.tableName || "data"}.csv`
-        );
-        document.body.appendChild(link);
-        link.click();
-        document.body.removeChild(link);
-        window.URL.revokeObjectURL(url);
-
-        return Number(recordCount);
-      } else {
-        return res.data;
-      }
     })
+    .then((res) => res.data.jobId)
     .catch((err) => {
       throw err;
     });
 };
 
-export { fetchFlatFileSchema, fetchFlatFilePreviewData, executeIngestion };
+// Subscribes to job progress over SSE; resolves with the final status once
+// the job completes and rejects if it fails or is cancelled.
+const listenToJob = (jobId, onProgress) => {
+  return new Promise((resolve, reject) => {
+    const eventSource = new EventSource(`${URL}/jobs/${jobId}/events`);
+
+    eventSource.addEventListener("progress", (event) => {
+      onProgress(JSON.parse(event.data));
+    });
+
+    eventSource.addEventListener("completed", (event) => {
+      eventSource.close();
+      const status = JSON.parse(event.data);
+      onProgress(status);
+      resolve(status);
+    });
+
+    ["failed", "cancelled"].forEach((name) => {
+      eventSource.addEventListener(name, (event) => {
+        eventSource.close();
+        reject(new Error(JSON.parse(event.data).message));
+      });
+    });
+
+    eventSource.onerror = () => {
+      if (eventSource.readyState === EventSource.CLOSED) {
+        reject(new Error("Lost connection to the ingestion job"));
+      }
+    };
+  });
+};
+
+const cancelJob = (jobId) => {
+  return axios.delete(`${URL}/jobs/${jobId}`).then((res) => res.data);
+};
+
+const downloadJobResult = (jobId, fileName) => {
+  return axios
+    .get(`${URL}/jobs/${jobId}/download`, { responseType: "blob" })
+    .then((res) => {
+      const url = window.URL.createObjectURL(res.data);
+      const link = document.createElement("a");
+      link.href = url;
+      link.setAttribute("download", fileName);
+      document.body.appendChild(link);
+      link.click();
+      document.body.removeChild(link);
+      window.URL.revokeObjectURL(url);
+    });
+};
+
+export {
+  fetchFlatFileSchema,
+  fetchFlatFilePreviewData,
+  executeIngestion,
+  listenToJob,
+  cancelJob,
+  downloadJobResult,
+};